@@ -0,0 +1,224 @@
+/*
+ * Copyright (C) 2026 Timo Vesalainen <timo.vesalainen@iki.fi>
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.vesalainen.home;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.vesalainen.util.logging.JavaLogging;
+
+/**
+ * Creates threads and executors. Platform threads are used by default. If 
+ * system property org.vesalainen.home.threads=virtual is set and runtime 
+ * supports virtual threads (Java 21) all threads are virtual. Virtual threads
+ * are looked up reflectively so that this compiles with Java 8.
+ * @author Timo Vesalainen <timo.vesalainen@iki.fi>
+ */
+public class ExecutorFactory extends JavaLogging
+{
+    public static final String THREADS = "org.vesalainen.home.threads";
+    private static ExecutorFactory factory;
+    private MethodHandle virtualFactory;
+    private MethodHandle threadPerTask;
+
+    protected ExecutorFactory(boolean virtual)
+    {
+        super(ExecutorFactory.class);
+        if (virtual)
+        {
+            lookupVirtual();
+        }
+    }
+    /**
+     * Returns factory selected by system property.
+     * @return 
+     */
+    public static synchronized ExecutorFactory getDefault()
+    {
+        if (factory == null)
+        {
+            factory = new ExecutorFactory("virtual".equalsIgnoreCase(System.getProperty(THREADS)));
+        }
+        return factory;
+    }
+    /**
+     * Replaces default factory. Must be called before any executors are 
+     * created.
+     * @param factory 
+     */
+    public static synchronized void setDefault(ExecutorFactory factory)
+    {
+        ExecutorFactory.factory = factory;
+    }
+    /**
+     * Returns platform thread factory
+     * @return 
+     */
+    public static ExecutorFactory platform()
+    {
+        return new ExecutorFactory(false);
+    }
+    /**
+     * Returns virtual thread factory or platform if virtual threads are not
+     * supported.
+     * @return 
+     */
+    public static ExecutorFactory virtual()
+    {
+        return new ExecutorFactory(true);
+    }
+    
+    public boolean isVirtual()
+    {
+        return virtualFactory != null;
+    }
+    /**
+     * Returns executor for blocking tasks. With virtual threads each task gets
+     * its own thread and threads is ignored.
+     * @param name Thread name prefix
+     * @param threads Number of platform threads
+     * @return 
+     */
+    public ExecutorService newExecutor(String name, int threads)
+    {
+        if (isVirtual())
+        {
+            try
+            {
+                return (ExecutorService) threadPerTask.invoke(threadFactory(name));
+            }
+            catch (Throwable ex)
+            {
+                throw new RuntimeException(ex);
+            }
+        }
+        else
+        {
+            return Executors.newFixedThreadPool(threads, threadFactory(name));
+        }
+    }
+    /**
+     * Returns scheduled executor. 
+     * @param name Thread name prefix
+     * @param threads Number of threads
+     * @return 
+     */
+    public ScheduledExecutorService newScheduler(String name, int threads)
+    {
+        return new ScheduledThreadPoolExecutor(threads, threadFactory(name));
+    }
+    /**
+     * Returns new unstarted non-daemon thread.
+     * @param name
+     * @param task
+     * @return 
+     */
+    public Thread newThread(String name, Runnable task)
+    {
+        return newThread(name, false, task);
+    }
+    /**
+     * Returns new unstarted thread.
+     * @param name
+     * @param daemon Daemon status of platform thread. Virtual threads are 
+     * always daemon threads.
+     * @param task
+     * @return 
+     */
+    public Thread newThread(String name, boolean daemon, Runnable task)
+    {
+        Thread thread = threadFactory(name, daemon).newThread(task);
+        thread.setName(name);
+        return thread;
+    }
+    /**
+     * Returns thread factory creating non-daemon threads named name-n. 
+     * Executors of this factory use these threads, so they keep JVM running 
+     * until shut down.
+     * @param name
+     * @return 
+     */
+    public ThreadFactory threadFactory(String name)
+    {
+        return threadFactory(name, false);
+    }
+    /**
+     * Returns thread factory creating threads named name-n.
+     * @param name
+     * @param daemon Daemon status of platform threads. Virtual threads are 
+     * always daemon threads.
+     * @return 
+     */
+    public ThreadFactory threadFactory(String name, boolean daemon)
+    {
+        AtomicInteger seq = new AtomicInteger();
+        if (isVirtual())
+        {
+            try
+            {
+                ThreadFactory tf = (ThreadFactory) virtualFactory.invoke();
+                return (r)->
+                {
+                    Thread thread = tf.newThread(r);
+                    thread.setName(name+"-"+seq.incrementAndGet());
+                    return thread;
+                };
+            }
+            catch (Throwable ex)
+            {
+                throw new RuntimeException(ex);
+            }
+        }
+        else
+        {
+            return (r)->
+            {
+                Thread thread = new Thread(r, name+"-"+seq.incrementAndGet());
+                thread.setDaemon(daemon);
+                return thread;
+            };
+        }
+    }
+    /**
+     * Looks up Thread.ofVirtual().factory() and 
+     * Executors.newThreadPerTaskExecutor.
+     */
+    private void lookupVirtual()
+    {
+        try
+        {
+            MethodHandles.Lookup lookup = MethodHandles.publicLookup();
+            Class<?> builderCls = Class.forName("java.lang.Thread$Builder$OfVirtual");
+            MethodHandle ofVirtual = lookup.findStatic(Thread.class, "ofVirtual", MethodType.methodType(builderCls));
+            MethodHandle factory = lookup.findVirtual(builderCls, "factory", MethodType.methodType(ThreadFactory.class));
+            threadPerTask = lookup.findStatic(Executors.class, "newThreadPerTaskExecutor", MethodType.methodType(ExecutorService.class, ThreadFactory.class));
+            virtualFactory = MethodHandles.filterReturnValue(ofVirtual, factory);
+            config("using virtual threads");
+        }
+        catch (ReflectiveOperationException ex)
+        {
+            warning("virtual threads not supported in %s", System.getProperty("java.version"));
+        }
+    }
+
+}
@@ -17,16 +17,26 @@
 package org.vesalainen.home;
 
 import static java.lang.Math.*;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import static java.nio.charset.StandardCharsets.UTF_8;
+import java.nio.file.Path;
+import static java.nio.file.StandardOpenOption.*;
 import java.time.Duration;
 import java.time.Instant;
 import java.time.ZoneId;
 import java.time.ZonedDateTime;
 import java.time.temporal.TemporalAccessor;
 import java.util.ArrayList;
-import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.AtomicReferenceArray;
 import java.util.function.Function;
 import java.util.function.ToDoubleFunction;
 import java.util.logging.Level;
@@ -39,28 +49,271 @@ import org.vesalainen.util.concurrent.PredicateSynchronizer;
  */
 public class IndexedData
 {
+    private static final int MAGIC = 0x48494458;
+    private static final int VERSION = 1;
     private final int period;
     private final long periodInMillis;
     private final int capacity;
-    private final Map<String,Data> map = new HashMap<>();
-    
-    public IndexedData(Duration period, Duration window)
+    private final Map<String,Data> map = new ConcurrentHashMap<>();
+    private final List<Data> derived = new CopyOnWriteArrayList<>();
+    private final boolean fixed;
+    private MappedByteBuffer store;
+    /**
+     * Creates IndexedData. If parameters are given they are registered as 
+     * double parameters and registry is fixed. Only supplier targets can be 
+     * added later. Otherwise parameters are created at first use.
+     * @param period
+     * @param window
+     * @param parameters 
+     */
+    public IndexedData(Duration period, Duration window, String... parameters)
     {
-        this((int)period.getSeconds(), (int)(window.getSeconds()/period.getSeconds())+1);
+        this((int)period.getSeconds(), (int)(window.getSeconds()/period.getSeconds())+1, parameters);
     }
 
-    public IndexedData(int period, int capacity)
+    public IndexedData(int period, int capacity, String... parameters)
     {
         this.period = period;
         this.periodInMillis = period*1000;
         this.capacity = capacity;
+        for (String parameter : parameters)
+        {
+            register(parameter, true);
+        }
+        this.fixed = parameters.length > 0;
+    }
+    /**
+     * Creates IndexedData with parameters stored in memory-mapped file. 
+     * Existing data is loaded from the file if period, capacity and 
+     * parameters match. Otherwise the file is initialized. Supplied 
+     * parameters are not stored.
+     * @param period
+     * @param window
+     * @param path
+     * @param parameters
+     * @throws IOException 
+     */
+    public IndexedData(Duration period, Duration window, Path path, String... parameters) throws IOException
+    {
+        this((int)period.getSeconds(), (int)(window.getSeconds()/period.getSeconds())+1, path, parameters);
+    }
+    public IndexedData(int period, int capacity, Path path, String... parameters) throws IOException
+    {
+        this(period, capacity, parameters);
+        if (parameters.length == 0)
+        {
+            throw new IllegalArgumentException("no parameters to store");
+        }
+        ByteBuffer header = header(parameters);
+        int offset = (header.limit()+7) & ~7;
+        int size = offset + parameters.length*capacity*(Integer.BYTES+Long.BYTES);
+        try (FileChannel channel = FileChannel.open(path, READ, WRITE, CREATE))
+        {
+            boolean match = channel.size() == size;
+            if (match)
+            {
+                ByteBuffer bb = ByteBuffer.allocate(header.limit());
+                channel.read(bb, 0);
+                bb.flip();
+                match = header.equals(bb);
+            }
+            if (!match)
+            {
+                channel.truncate(0);
+            }
+            store = channel.map(FileChannel.MapMode.READ_WRITE, 0, size);
+            if (!match)
+            {
+                store.put(header);
+            }
+            for (String parameter : parameters)
+            {
+                DoubleData data = (DoubleData) getData(parameter);
+                data.attach(offset, !match);
+                offset += capacity*(Integer.BYTES+Long.BYTES);
+            }
+        }
+    }
+    private ByteBuffer header(String... parameters)
+    {
+        int len = 5*Integer.BYTES;
+        byte[][] names = new byte[parameters.length][];
+        for (int ii=0;ii<parameters.length;ii++)
+        {
+            names[ii] = parameters[ii].toLowerCase().getBytes(UTF_8);
+            len += Short.BYTES + names[ii].length;
+        }
+        ByteBuffer bb = ByteBuffer.allocate(len);
+        bb.putInt(MAGIC);
+        bb.putInt(VERSION);
+        bb.putInt(period);
+        bb.putInt(capacity);
+        bb.putInt(parameters.length);
+        for (byte[] name : names)
+        {
+            bb.putShort((short) name.length);
+            bb.put(name);
+        }
+        bb.flip();
+        return bb;
     }
+    /**
+     * Writes stored parameters to file.
+     */
+    public void flush()
+    {
+        if (store != null)
+        {
+            store.force();
+        }
+    }
+    /**
+     * Adds supplier for target parameter. Target value is derived from 
+     * parameters lazily for each period and kept until one of parameters 
+     * is written for the same period.
+     * @param <T>
+     * @param target
+     * @param supplier
+     * @param parameters 
+     */
     public <T> void addSupplier(String target, Function<Double[],T> supplier, String... parameters)
     {
-        Data data = getData(target);
-        data.initializers.add(new ObjectInitializer(target, supplier, parameters));
+        addObjectSupplier(target, (double[] p)->
+        {
+            Double[] b = new Double[p.length];
+            for (int ii=0;ii<p.length;ii++)
+            {
+                b[ii] = p[ii];
+            }
+            return supplier.apply(b);
+        }, parameters);
+    }
+    /**
+     * Adds supplier for object target parameter. Parameters are read as
+     * doubles without boxing.
+     * @param <T>
+     * @param target
+     * @param supplier
+     * @param parameters 
+     */
+    public <T> void addObjectSupplier(String target, Function<double[],T> supplier, String... parameters)
+    {
+        Data data = register(target, false);
+        addInitializer(data, new ObjectInitializer(data, supplier, dependencies(data, parameters)));
+    }
+
+    /**
+     * Adds supplier for primitive double parameter. Parameters are read as
+     * doubles without boxing.
+     * @param target
+     * @param supplier
+     * @param parameters 
+     */
+    public void addDoubleSupplier(String target, ToDoubleFunction<double[]> supplier, String... parameters)
+    {
+        Data data = register(target, true);
+        addInitializer(data, new DoubleInitializer(data, supplier, dependencies(data, parameters)));
+    }
+    /**
+     * Derives all supplied parameters for periods from..to (inclusive) in
+     * dependency order. Periods missing parameter data are skipped.
+     * @param from
+     * @param to 
+     */
+    public void recompute(int from, int to)
+    {
+        for (Data data : topologicalOrder())
+        {
+            for (int periodIndex=from;periodIndex<=to;periodIndex++)
+            {
+                for (ParameterInitializer initializer : data.initializers)
+                {
+                    try
+                    {
+                        initializer.init(periodIndex);
+                    }
+                    catch (OutOfDataException ex)
+                    {
+                    }
+                }
+            }
+        }
+    }
+    private Data[] dependencies(Data target, String... parameters)
+    {
+        Data[] datas = new Data[parameters.length];
+        for (int ii=0;ii<parameters.length;ii++)
+        {
+            Data data = fixed ? getDoubleData(parameters[ii]) : register(parameters[ii], true);
+            if (data == target || target.reaches(data))
+            {
+                throw new IllegalArgumentException(target+" <- "+data+" would create a cycle");
+            }
+            datas[ii] = data;
+        }
+        return datas;
+    }
+    private synchronized void addInitializer(Data target, ParameterInitializer initializer)
+    {
+        for (Data data : initializer.parameters)
+        {
+            data.downstream.addIfAbsent(target);
+        }
+        target.initializers.add(initializer);
+        if (!derived.contains(target))
+        {
+            derived.add(target);
+        }
+    }
+    private List<Data> topologicalOrder()
+    {
+        List<Data> order = new ArrayList<>();
+        for (Data data : derived)
+        {
+            topologicalOrder(data, order);
+        }
+        return order;
+    }
+    private void topologicalOrder(Data data, List<Data> order)
+    {
+        if (!order.contains(data))
+        {
+            for (ParameterInitializer initializer : data.initializers)
+            {
+                for (Data parameter : initializer.parameters)
+                {
+                    topologicalOrder(parameter, order);
+                }
+            }
+            if (!data.initializers.isEmpty())
+            {
+                order.add(data);
+            }
+        }
     }
 
+    /**
+     * Returns handle to parameter. Handle is resolved once so access doesn't 
+     * need name lookup. Parameter is created as object parameter if it 
+     * doesn't exist.
+     * @param <T>
+     * @param parameter
+     * @return 
+     */
+    public <T> ParameterHandle<T> handle(String parameter)
+    {
+        return new ParameterHandle<>(parameter, getData(parameter));
+    }
+    /**
+     * Returns handle to parameter. Parameter is created as double parameter
+     * if it doesn't exist.
+     * @param parameter
+     * @return 
+     */
+    public ParameterHandle<Double> doubleHandle(String parameter)
+    {
+        return new ParameterHandle<>(parameter, getDoubleData(parameter));
+    }
     public int getCapacity()
     {
         return capacity;
@@ -75,6 +328,21 @@ public class IndexedData
         Data data = getData(parameter);
         return data.getMaxIndex();
     }
+    /**
+     * Returns start of period following the last period having data for
+     * all parameters.
+     * @param parameters
+     * @return 
+     */
+    public ZonedDateTime getDataEnd(String... parameters)
+    {
+        int end = Integer.MAX_VALUE;
+        for (String parameter : parameters)
+        {
+            end = min(end, getDoubleData(parameter).getMaxIndex()+1);
+        }
+        return period(getMillis(end));
+    }
     public int getMinIndex(String parameter)
     {
         Data data = getData(parameter);
@@ -106,6 +374,51 @@ public class IndexedData
         Data data = getData(parameter);
         return data.get(periodIndex);
     }
+    public double getDoubleAndWait(int periodIndex, String parameter)
+    {
+        Data data = getDoubleData(parameter);
+        return data.getDoubleAndWait(periodIndex);
+    }
+    /**
+     * Returns parameter value as primitive double. Parameter is created as 
+     * double column if it doesn't exist.
+     * @param parameter
+     * @return
+     * @throws OutOfDataException 
+     */
+    public double getDouble(String parameter) throws OutOfDataException
+    {
+        return getDouble(getIndex(), parameter);
+    }
+    public double getDouble(TemporalAccessor accessor, String parameter) throws OutOfDataException
+    {
+        return getDouble(getIndex(accessor), parameter);
+    }
+    public double getDouble(int periodIndex, String parameter) throws OutOfDataException
+    {
+        Data data = getDoubleData(parameter);
+        return data.getDouble(periodIndex);
+    }
+    /**
+     * Sets parameter value as primitive double. Parameter is created as 
+     * double column if it doesn't exist.
+     * @param accessor
+     * @param parameter
+     * @param value 
+     */
+    public void setDouble(TemporalAccessor accessor, String parameter, double value)
+    {
+        setDouble(getIndex(accessor), parameter, value);
+    }
+    public void setDouble(String parameter, double value)
+    {
+        setDouble(getIndex(), parameter, value);
+    }
+    public void setDouble(int periodIndex, String parameter, double value)
+    {
+        Data data = getDoubleData(parameter);
+        data.setDouble(periodIndex, value);
+    }
     public <T> void set(TemporalAccessor accessor, String parameter, T value)
     {
         set(getIndex(accessor), parameter, value);
@@ -157,6 +470,65 @@ public class IndexedData
         return period;
     }
 
+    /**
+     * Resolved parameter.
+     * @param <T> 
+     */
+    public class ParameterHandle<T>
+    {
+        private final String name;
+        private final Data data;
+
+        private ParameterHandle(String name, Data data)
+        {
+            this.name = name;
+            this.data = data;
+        }
+
+        public String getName()
+        {
+            return name;
+        }
+        public T get() throws OutOfDataException
+        {
+            return data.get(getIndex());
+        }
+        public T get(int periodIndex) throws OutOfDataException
+        {
+            return data.get(periodIndex);
+        }
+        public T getAndWait(int periodIndex)
+        {
+            return data.getAndWait(periodIndex);
+        }
+        public double getDouble() throws OutOfDataException
+        {
+            return data.getDouble(getIndex());
+        }
+        public double getDouble(int periodIndex) throws OutOfDataException
+        {
+            return data.getDouble(periodIndex);
+        }
+        public double getDoubleAndWait(int periodIndex)
+        {
+            return data.getDoubleAndWait(periodIndex);
+        }
+        public void set(int periodIndex, T value)
+        {
+            data.set(periodIndex, value);
+        }
+        public void setDouble(int periodIndex, double value)
+        {
+            data.setDouble(periodIndex, value);
+        }
+
+        @Override
+        public String toString()
+        {
+            return name;
+        }
+        
+    }
     private interface Initializer
     {
         void init(int index) throws OutOfDataException;
@@ -164,70 +536,341 @@ public class IndexedData
     }
     private Data getData(String parameter)
     {
-        parameter = parameter.toLowerCase();
-        Data data = map.get(parameter);
+        return getData(parameter, false);
+    }
+    private Data getDoubleData(String parameter)
+    {
+        return getData(parameter, true);
+    }
+    private Data getData(String parameter, boolean numeric)
+    {
+        Data data = map.get(parameter.toLowerCase());
         if (data == null)
         {
-            data = new Data();
-            map.put(parameter, data);
+            if (fixed)
+            {
+                throw new IllegalArgumentException(parameter+" not registered");
+            }
+            data = register(parameter, numeric);
         }
         return data;
     }
-    private class Data
+    private Data register(String parameter, boolean numeric)
+    {
+        return map.computeIfAbsent(parameter.toLowerCase(), (p)->numeric ? new DoubleData(p) : new ObjectData(p));
+    }
+    /**
+     * Ring of values indexed by period index. Writers are serialized. Readers
+     * don't lock. Each slot has a sequence number which is odd while slot is 
+     * being written. Reader retries if sequence changed during read, so index
+     * and value are always read as a consistent pair. Writing a value clears
+     * the same period from derived parameters.
+     * <p>Each slot also has an epoch which is incremented by every write and
+     * clear. Derived value is stored only if target epoch didn't change 
+     * while parameters were read.
+     */
+    private abstract class Data
     {
-        private final int[] indexes = new int[capacity];
-        private final Object[] arr = new Object[capacity];
-        private int maxIndex;
-        private int minIndex = Integer.MAX_VALUE;
+        private final String name;
+        private final AtomicLongArray seq = new AtomicLongArray(capacity);
+        private final AtomicIntegerArray indexes = new AtomicIntegerArray(capacity);
+        private final AtomicLongArray epochs = new AtomicLongArray(capacity);
+        private volatile int maxIndex;
+        private volatile int minIndex = Integer.MAX_VALUE;
         private PredicateSynchronizer sync = new PredicateSynchronizer();
-        private List<Initializer> initializers = new ArrayList<>();
+        private List<ParameterInitializer> initializers = new CopyOnWriteArrayList<>();
+        private CopyOnWriteArrayList<Data> downstream = new CopyOnWriteArrayList<>();
+
+        public Data(String name)
+        {
+            this.name = name;
+            for (int ii=0;ii<capacity;ii++)
+            {
+                indexes.set(ii, Integer.MIN_VALUE);
+            }
+        }
+        
+        protected abstract Object getValue(int slot);
+        protected abstract void setValue(int slot, Object value);
+        protected abstract void setDoubleValue(int slot, double value);
+        
         public <T> T getAndWait(int periodIndex)
         {
+            waitFor(periodIndex);
             try
             {
-                int index = periodIndex % capacity;
-                if (indexes[index] != periodIndex)
-                {
-                    callSuppliers(periodIndex, true);
-                }
-                sync.waitUntil(()->periodIndex <= getMaxIndex());
                 return get(periodIndex);
             }
-            catch (InterruptedException | OutOfDataException ex)
+            catch (OutOfDataException ex)
+            {
+                throw new RuntimeException(ex);
+            }
+        }
+        public double getDoubleAndWait(int periodIndex)
+        {
+            waitFor(periodIndex);
+            try
+            {
+                return getDouble(periodIndex);
+            }
+            catch (OutOfDataException ex)
             {
                 throw new RuntimeException(ex);
             }
         }
         public <T> T get(int periodIndex) throws OutOfDataException
         {
-            int index = periodIndex % capacity;
-            if (indexes[index] != periodIndex)
+            int slot = periodIndex % capacity;
+            boolean supplied = false;
+            while (true)
             {
-                callSuppliers(periodIndex, false);
+                long stamp = begin(slot);
+                int index = indexes.get(slot);
+                Object value = getValue(slot);
+                if (validate(slot, stamp))
+                {
+                    if (index == periodIndex)
+                    {
+                        return (T) value;
+                    }
+                    miss(periodIndex, supplied);
+                    supplied = true;
+                }
+            }
+        }
+        /**
+         * Returns value as double. Value is converted after it is found to
+         * belong to periodIndex.
+         * @param periodIndex
+         * @return
+         * @throws OutOfDataException 
+         */
+        public double getDouble(int periodIndex) throws OutOfDataException
+        {
+            Number value = get(periodIndex);
+            return value.doubleValue();
+        }
+        public <T> void set(int periodIndex, T value)
+        {
+            set(periodIndex, value, -1);
+        }
+        /**
+         * Sets value if epoch is -1 or slot epoch equals it. Derived value
+         * (epoch != -1) doesn't clear downstream because it was cleared 
+         * together with this slot.
+         * @param <T>
+         * @param periodIndex
+         * @param value
+         * @param epoch
+         * @return false if value was discarded.
+         * @see #epoch(int) 
+         */
+        public <T> boolean set(int periodIndex, T value, long epoch)
+        {
+            synchronized (this)
+            {
+                if (stale(periodIndex, epoch))
+                {
+                    return false;
+                }
+                int slot = prepare(periodIndex);
+                boolean ok = false;
+                try
+                {
+                    setValue(slot, value);
+                    ok = true;
+                }
+                finally
+                {
+                    commit(slot, periodIndex, ok);
+                }
             }
-            if (periodIndex < minIndex || periodIndex > maxIndex)
+            sync.update();
+            if (epoch == -1)
+            {
+                invalidate(periodIndex);
+            }
+            return true;
+        }
+        public void setDouble(int periodIndex, double value)
+        {
+            setDouble(periodIndex, value, -1);
+        }
+        /**
+         * Sets value if epoch is -1 or slot epoch equals it. Derived value
+         * (epoch != -1) doesn't clear downstream because it was cleared 
+         * together with this slot.
+         * @param periodIndex
+         * @param value
+         * @param epoch
+         * @return false if value was discarded.
+         * @see #epoch(int) 
+         */
+        public boolean setDouble(int periodIndex, double value, long epoch)
+        {
+            synchronized (this)
+            {
+                if (stale(periodIndex, epoch))
+                {
+                    return false;
+                }
+                int slot = prepare(periodIndex);
+                boolean ok = false;
+                try
+                {
+                    setDoubleValue(slot, value);
+                    ok = true;
+                }
+                finally
+                {
+                    commit(slot, periodIndex, ok);
+                }
+            }
+            sync.update();
+            if (epoch == -1)
+            {
+                invalidate(periodIndex);
+            }
+            return true;
+        }
+        /**
+         * Returns epoch of period's slot. Must be read before derived value
+         * parameters are read.
+         * @param periodIndex
+         * @return 
+         */
+        public long epoch(int periodIndex)
+        {
+            return epochs.get(periodIndex % capacity);
+        }
+        private boolean stale(int periodIndex, long epoch)
+        {
+            return epoch != -1 && epochs.get(periodIndex % capacity) != epoch;
+        }
+        private void invalidate(int periodIndex)
+        {
+            for (Data data : downstream)
+            {
+                data.clear(periodIndex);
+            }
+        }
+        private void clear(int periodIndex)
+        {
+            synchronized (this)
+            {
+                int slot = periodIndex % capacity;
+                epochs.incrementAndGet(slot);
+                if (indexes.get(slot) == periodIndex)
+                {
+                    seq.incrementAndGet(slot);
+                    indexes.set(slot, Integer.MIN_VALUE);
+                    persist(slot);
+                    seq.incrementAndGet(slot);
+                }
+            }
+            invalidate(periodIndex);
+        }
+        private boolean reaches(Data data)
+        {
+            for (Data d : downstream)
+            {
+                if (d == data || d.reaches(data))
+                {
+                    return true;
+                }
+            }
+            return false;
+        }
+        /**
+         * Waits until slot is not being written and returns its sequence
+         * number.
+         * @param slot
+         * @return 
+         */
+        protected long begin(int slot)
+        {
+            long stamp = seq.get(slot);
+            while ((stamp & 1) != 0)
+            {
+                Thread.yield();
+                stamp = seq.get(slot);
+            }
+            return stamp;
+        }
+        /**
+         * Returns true if slot was not written after begin returned stamp.
+         * @param slot
+         * @param stamp
+         * @return 
+         */
+        protected boolean validate(int slot, long stamp)
+        {
+            return seq.get(slot) == stamp;
+        }
+        protected void miss(int periodIndex, boolean supplied) throws OutOfDataException
+        {
+            if (supplied || initializers.isEmpty())
             {
                 throw new OutOfDataException(periodIndex+" not in range ["+minIndex+", "+maxIndex+"]");
             }
-            return (T) arr[index];
+            callSuppliers(periodIndex, false);
         }
-        public <T> void set(int periodIndex, T value)
+        private void waitFor(int periodIndex)
+        {
+            try
+            {
+                if (indexes.get(periodIndex % capacity) != periodIndex)
+                {
+                    callSuppliers(periodIndex, true);
+                }
+                sync.waitUntil(()->periodIndex <= getMaxIndex());
+            }
+            catch (InterruptedException | OutOfDataException ex)
+            {
+                throw new RuntimeException(ex);
+            }
+        }
+        private int prepare(int periodIndex)
         {
-            indexes[periodIndex % capacity] = periodIndex;
             if (getSize() > getCapacity())
             {
                 throw new IndexOutOfBoundsException("too much data");
             }
-            int index = periodIndex % capacity;
-            arr[index] = value;
+            int slot = periodIndex % capacity;
+            epochs.incrementAndGet(slot);
+            seq.incrementAndGet(slot);
+            return slot;
+        }
+        /**
+         * Called with slot written and locked.
+         * @param slot 
+         */
+        protected void persist(int slot)
+        {
+        }
+        protected void load(int slot, int periodIndex)
+        {
+            indexes.set(slot, periodIndex);
             maxIndex = max(maxIndex, periodIndex);
             minIndex = min(minIndex, periodIndex);
-            sync.update();
+        }
+        private void commit(int slot, int periodIndex, boolean ok)
+        {
+            if (ok)
+            {
+                indexes.set(slot, periodIndex);
+                persist(slot);
+            }
+            seq.incrementAndGet(slot);
+            if (ok)
+            {
+                maxIndex = max(maxIndex, periodIndex);
+                minIndex = min(minIndex, periodIndex);
+            }
         }
         private void callSuppliers(int periodIndex, boolean wait) throws OutOfDataException
         {
-            indexes[periodIndex % capacity] = periodIndex;
-            for (Initializer initializer : initializers)
+            for (ParameterInitializer initializer : initializers)
             {
                 if (wait)
                 {
@@ -243,6 +886,10 @@ public class IndexedData
         {
             return maxIndex;
         }
+        protected int indexes(int slot)
+        {
+            return indexes.get(slot);
+        }
         public int getMinIndex()
         {
             return max(minIndex, getIndex());
@@ -251,40 +898,220 @@ public class IndexedData
         {
             return getMaxIndex()-getMinIndex();
         }
+
+        @Override
+        public String toString()
+        {
+            return name;
+        }
+        
+    }
+    private class ObjectData extends Data
+    {
+        private final AtomicReferenceArray<Object> arr = new AtomicReferenceArray<>(capacity);
+
+        public ObjectData(String name)
+        {
+            super(name);
+        }
+
+        @Override
+        protected Object getValue(int slot)
+        {
+            return arr.get(slot);
+        }
+
+        @Override
+        protected void setValue(int slot, Object value)
+        {
+            arr.set(slot, value);
+        }
+
+        @Override
+        protected void setDoubleValue(int slot, double value)
+        {
+            arr.set(slot, value);
+        }
+        
     }
-    private class ObjectInitializer<T> implements Initializer
+    /**
+     * Numeric column without boxing. Objects are boxed only when accessed 
+     * with generic get. Values are stored as raw long bits.
+     */
+    private class DoubleData extends Data
     {
-        private final String target;
-        private final Function<Double[],T> supplier;
-        private final String[] parameters;
+        private final AtomicLongArray arr = new AtomicLongArray(capacity);
+        private int indexOffset = -1;
+        private int valueOffset;
+
+        public DoubleData(String name)
+        {
+            super(name);
+        }
+        /**
+         * Attaches column to store. Slots are loaded from store unless it
+         * is new.
+         * @param offset
+         * @param init 
+         */
+        private synchronized void attach(int offset, boolean init)
+        {
+            indexOffset = offset;
+            valueOffset = offset + capacity*Integer.BYTES;
+            for (int slot=0;slot<capacity;slot++)
+            {
+                if (init)
+                {
+                    store.putInt(indexOffset+slot*Integer.BYTES, Integer.MIN_VALUE);
+                }
+                else
+                {
+                    int periodIndex = store.getInt(indexOffset+slot*Integer.BYTES);
+                    if (periodIndex != Integer.MIN_VALUE)
+                    {
+                        arr.set(slot, store.getLong(valueOffset+slot*Long.BYTES));
+                        load(slot, periodIndex);
+                    }
+                }
+            }
+        }
+
+        @Override
+        protected void persist(int slot)
+        {
+            if (indexOffset >= 0)
+            {
+                store.putLong(valueOffset+slot*Long.BYTES, arr.get(slot));
+                store.putInt(indexOffset+slot*Integer.BYTES, indexes(slot));
+            }
+        }
 
-        public ObjectInitializer(String target, Function<Double[],T> supplier, String[] parameters)
+        @Override
+        public double getDouble(int periodIndex) throws OutOfDataException
+        {
+            int slot = periodIndex % capacity;
+            boolean supplied = false;
+            while (true)
+            {
+                long stamp = begin(slot);
+                int index = indexes(slot);
+                long bits = arr.get(slot);
+                if (validate(slot, stamp))
+                {
+                    if (index == periodIndex)
+                    {
+                        return Double.longBitsToDouble(bits);
+                    }
+                    miss(periodIndex, supplied);
+                    supplied = true;
+                }
+            }
+        }
+
+        @Override
+        protected Object getValue(int slot)
+        {
+            return Double.longBitsToDouble(arr.get(slot));
+        }
+
+        @Override
+        protected void setValue(int slot, Object value)
+        {
+            setDoubleValue(slot, ((Number)value).doubleValue());
+        }
+
+        @Override
+        protected void setDoubleValue(int slot, double value)
+        {
+            arr.set(slot, Double.doubleToRawLongBits(value));
+        }
+        
+    }
+    private abstract class ParameterInitializer implements Initializer
+    {
+        protected final Data target;
+        protected final Data[] parameters;
+
+        public ParameterInitializer(Data target, Data[] parameters)
         {
             this.target = target;
-            this.supplier = supplier;
             this.parameters = parameters;
         }
+    }
+    private class ObjectInitializer<T> extends ParameterInitializer
+    {
+        private final Function<double[],T> supplier;
+
+        public ObjectInitializer(Data target, Function<double[],T> supplier, Data[] parameters)
+        {
+            super(target, parameters);
+            this.supplier = supplier;
+        }
         @Override
         public void init(int periodIndex) throws OutOfDataException
         {
-            Double[] p = new Double[parameters.length];
-            int ii = 0;
-            for (String parameter : parameters)
+            double[] p = new double[parameters.length];
+            long epoch;
+            do
             {
-                p[ii++] = get(periodIndex, parameter);
-            }
-            set(periodIndex, target, supplier.apply(p));
+                epoch = target.epoch(periodIndex);
+                for (int ii=0;ii<parameters.length;ii++)
+                {
+                    p[ii] = parameters[ii].getDouble(periodIndex);
+                }
+            } while (!target.set(periodIndex, supplier.apply(p), epoch));
         }
         @Override
         public void waitAndInit(int periodIndex)
         {
-            Double[] p = new Double[parameters.length];
-            int ii = 0;
-            for (String parameter : parameters)
+            double[] p = new double[parameters.length];
+            long epoch;
+            do
             {
-                p[ii++] = getAndWait(periodIndex, parameter);
-            }
-            set(periodIndex, target, supplier.apply(p));
+                epoch = target.epoch(periodIndex);
+                for (int ii=0;ii<parameters.length;ii++)
+                {
+                    p[ii] = parameters[ii].getDoubleAndWait(periodIndex);
+                }
+            } while (!target.set(periodIndex, supplier.apply(p), epoch));
+        }
+    }
+    private class DoubleInitializer extends ParameterInitializer
+    {
+        private final ToDoubleFunction<double[]> supplier;
+
+        public DoubleInitializer(Data target, ToDoubleFunction<double[]> supplier, Data[] parameters)
+        {
+            super(target, parameters);
+            this.supplier = supplier;
+        }
+        @Override
+        public void init(int periodIndex) throws OutOfDataException
+        {
+            double[] p = new double[parameters.length];
+            long epoch;
+            do
+            {
+                epoch = target.epoch(periodIndex);
+                for (int ii=0;ii<parameters.length;ii++)
+                {
+                    p[ii] = parameters[ii].getDouble(periodIndex);
+                }
+            } while (!target.setDouble(periodIndex, supplier.applyAsDouble(p), epoch));
+        }
+        @Override
+        public void waitAndInit(int periodIndex)
+        {
+            double[] p = new double[parameters.length];
+            long epoch;
+            do
+            {
+                epoch = target.epoch(periodIndex);
+                for (int ii=0;ii<parameters.length;ii++)
+                {
+                    p[ii] = parameters[ii].getDoubleAndWait(periodIndex);
+                }
+            } while (!target.setDouble(periodIndex, supplier.applyAsDouble(p), epoch));
         }
     }
 }
@@ -0,0 +1,138 @@
+/*
+ * Copyright (C) 2026 Timo Vesalainen <timo.vesalainen@iki.fi>
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.vesalainen.home;
+
+import static java.lang.Math.max;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Lock-free latency histogram with logarithmic buckets. Each power of two is
+ * split into 8 linear sub-buckets giving about 12% resolution. Values are 
+ * recorded in nanoseconds and kept in microseconds.
+ * @author Timo Vesalainen <timo.vesalainen@iki.fi>
+ */
+public class LatencyHistogram
+{
+    private static final int SUB_BITS = 3;
+    private static final int SUB = 1<<SUB_BITS;
+    private final AtomicLongArray counts = new AtomicLongArray(64*SUB);
+    private final LongAdder count = new LongAdder();
+    private final LongAdder sum = new LongAdder();
+    private final AtomicLong max = new AtomicLong();
+
+    public void record(long nanos)
+    {
+        long us = max(0, nanos/1000);
+        counts.incrementAndGet(index(us));
+        count.increment();
+        sum.add(us);
+        long m = max.get();
+        while (us > m && !max.compareAndSet(m, us))
+        {
+            m = max.get();
+        }
+    }
+    public long getCount()
+    {
+        return count.sum();
+    }
+    /**
+     * Returns mean in microseconds
+     * @return 
+     */
+    public double getMean()
+    {
+        long n = count.sum();
+        return n > 0 ? (double)sum.sum()/n : 0;
+    }
+    /**
+     * Returns max in microseconds
+     * @return 
+     */
+    public long getMax()
+    {
+        return max.get();
+    }
+    /**
+     * Returns percentile in microseconds. Value is the lower bound of bucket.
+     * @param percentile 0 - 100
+     * @return 
+     */
+    public long getPercentile(double percentile)
+    {
+        long n = count.sum();
+        long limit = (long) Math.ceil(n*percentile/100);
+        long cnt = 0;
+        int len = counts.length();
+        for (int ii=0;ii<len;ii++)
+        {
+            cnt += counts.get(ii);
+            if (cnt >= limit && cnt > 0)
+            {
+                return lowerBound(ii);
+            }
+        }
+        return 0;
+    }
+    public void reset()
+    {
+        int len = counts.length();
+        for (int ii=0;ii<len;ii++)
+        {
+            counts.set(ii, 0);
+        }
+        count.reset();
+        sum.reset();
+        max.set(0);
+    }
+    static int index(long value)
+    {
+        if (value < SUB)
+        {
+            return (int) value;
+        }
+        int msb = 63 - Long.numberOfLeadingZeros(value);
+        int sub = (int) ((value >>> (msb - SUB_BITS)) & (SUB-1));
+        return (msb - SUB_BITS + 1)*SUB + sub;
+    }
+    static long lowerBound(int index)
+    {
+        int bucket = index / SUB;
+        int sub = index % SUB;
+        if (bucket == 0)
+        {
+            return sub;
+        }
+        int msb = bucket + SUB_BITS - 1;
+        return (1L<<msb) | ((long)sub << (msb - SUB_BITS));
+    }
+
+    @Override
+    public String toString()
+    {
+        return String.format("n=%d mean=%.1fms p50=%.1fms p90=%.1fms p99=%.1fms max=%.1fms", 
+                getCount(), 
+                getMean()/1000, 
+                getPercentile(50)/1000.0, 
+                getPercentile(90)/1000.0, 
+                getPercentile(99)/1000.0, 
+                getMax()/1000.0);
+    }
+    
+}
@@ -0,0 +1,115 @@
+/*
+ * Copyright (C) 2026 Timo Vesalainen <timo.vesalainen@iki.fi>
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.vesalainen.home;
+
+import java.util.ArrayDeque;
+import java.util.Queue;
+import java.util.concurrent.Executor;
+import static java.util.logging.Level.SEVERE;
+import org.vesalainen.util.logging.JavaLogging;
+
+/**
+ * Serial executor on top of shared executor. Tasks of one mailbox are run 
+ * one at a time in submission order, but different mailboxes run in parallel.
+ * @author Timo Vesalainen <timo.vesalainen@iki.fi>
+ */
+public class Mailbox extends JavaLogging implements Executor
+{
+    private final String name;
+    private final Executor executor;
+    private final Queue<Runnable> queue = new ArrayDeque<>();
+    private boolean running;
+    /**
+     * Creates mailbox
+     * @param name For logging
+     * @param executor Runs the tasks
+     */
+    public Mailbox(String name, Executor executor)
+    {
+        super(Mailbox.class);
+        this.name = name;
+        this.executor = executor;
+    }
+    
+    @Override
+    public void execute(Runnable task)
+    {
+        synchronized (queue)
+        {
+            queue.add(task);
+            if (running)
+            {
+                return;
+            }
+            running = true;
+        }
+        try
+        {
+            executor.execute(this::drain);
+        }
+        catch (RuntimeException ex)
+        {
+            synchronized (queue)
+            {
+                queue.clear();
+                running = false;
+            }
+            throw ex;
+        }
+    }
+    /**
+     * Returns number of waiting tasks.
+     * @return 
+     */
+    public int size()
+    {
+        synchronized (queue)
+        {
+            return queue.size();
+        }
+    }
+    private void drain()
+    {
+        while (true)
+        {
+            Runnable task;
+            synchronized (queue)
+            {
+                task = queue.poll();
+                if (task == null)
+                {
+                    running = false;
+                    return;
+                }
+            }
+            try
+            {
+                task.run();
+            }
+            catch (Throwable ex)
+            {
+                log(SEVERE, ex, "%s: task failed", name);
+            }
+        }
+    }
+
+    @Override
+    public String toString()
+    {
+        return "Mailbox{" + name + '}';
+    }
+}
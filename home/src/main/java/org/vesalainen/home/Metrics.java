@@ -0,0 +1,187 @@
+/*
+ * Copyright (C) 2026 Timo Vesalainen <timo.vesalainen@iki.fi>
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.vesalainen.home;
+
+import com.sun.net.httpserver.HttpServer;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import static java.nio.charset.StandardCharsets.UTF_8;
+import java.util.Map;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.LongSupplier;
+import org.vesalainen.util.logging.JavaLogging;
+
+/**
+ * Registry of named latency histograms, counters and gauges. Lookups create
+ * metrics on first use. Hot paths should look metrics up once and keep the
+ * reference, recording is then allocation-free.
+ * 
+ * <p>Metrics are exported as plain text lines sorted by name.
+ * @author Timo Vesalainen <timo.vesalainen@iki.fi>
+ */
+public class Metrics extends JavaLogging
+{
+    private static Metrics metrics;
+    private final Map<String,LatencyHistogram> histograms = new ConcurrentSkipListMap<>();
+    private final Map<String,LongAdder> counters = new ConcurrentSkipListMap<>();
+    private final Map<String,LongSupplier> gauges = new ConcurrentSkipListMap<>();
+
+    public Metrics()
+    {
+        super(Metrics.class);
+    }
+    
+    public static synchronized Metrics getDefault()
+    {
+        if (metrics == null)
+        {
+            metrics = new Metrics();
+        }
+        return metrics;
+    }
+    /**
+     * Returns histogram. Creates it if it doesn't exist.
+     * @param name
+     * @return 
+     */
+    public LatencyHistogram histogram(String name)
+    {
+        return histograms.computeIfAbsent(name, (n)->new LatencyHistogram());
+    }
+    /**
+     * Registers existing histogram. Replaces earlier with same name.
+     * @param name
+     * @param histogram 
+     */
+    public void register(String name, LatencyHistogram histogram)
+    {
+        histograms.put(name, histogram);
+    }
+    /**
+     * Returns counter. Creates it if it doesn't exist.
+     * @param name
+     * @return 
+     */
+    public LongAdder counter(String name)
+    {
+        return counters.computeIfAbsent(name, (n)->new LongAdder());
+    }
+    /**
+     * Registers gauge which is read at export. Replaces earlier with same 
+     * name.
+     * @param name
+     * @param gauge 
+     */
+    public void gauge(String name, LongSupplier gauge)
+    {
+        gauges.put(name, gauge);
+    }
+    /**
+     * Removes gauge if it is still registered with name.
+     * @param name
+     * @param gauge 
+     * @return true if removed
+     */
+    public boolean removeGauge(String name, LongSupplier gauge)
+    {
+        return gauges.remove(name, gauge);
+    }
+    /**
+     * Returns all metrics as text. One metric per line.
+     * @return 
+     */
+    public String toText()
+    {
+        StringBuilder sb = new StringBuilder();
+        histograms.forEach((n, h)->sb.append(n).append(' ').append(h).append('\n'));
+        counters.forEach((n, c)->sb.append(n).append(' ').append(c.sum()).append('\n'));
+        gauges.forEach((n, g)->sb.append(n).append(' ').append(g.getAsLong()).append('\n'));
+        return sb.toString();
+    }
+    /**
+     * Logs all metrics at config level.
+     */
+    public void log()
+    {
+        for (String line : toText().split("\n"))
+        {
+            if (!line.isEmpty())
+            {
+                config("%s", line);
+            }
+        }
+    }
+    /**
+     * Logs metrics periodically.
+     * @param scheduler
+     * @param period
+     * @param unit
+     * @return 
+     */
+    public ScheduledFuture<?> schedule(ScheduledExecutorService scheduler, long period, TimeUnit unit)
+    {
+        return scheduler.scheduleWithFixedDelay(this::log, period, period, unit);
+    }
+    /**
+     * Starts http server in loopback interface which returns metrics as 
+     * text/plain in /metrics.
+     * @param port Port or 0 for any free port.
+     * @return Started server. Caller is responsible to stop it.
+     * @throws IOException 
+     */
+    public HttpServer serve(int port) throws IOException
+    {
+        return serve(InetAddress.getLoopbackAddress(), port);
+    }
+    /**
+     * Starts http server which returns metrics as text/plain in /metrics.
+     * @param address Bind address or null for all interfaces.
+     * @param port Port or 0 for any free port.
+     * @return Started server. Caller is responsible to stop it.
+     * @throws IOException 
+     */
+    public HttpServer serve(InetAddress address, int port) throws IOException
+    {
+        HttpServer server = HttpServer.create(new InetSocketAddress(address, port), 0);
+        server.createContext("/metrics", (exchange)->
+        {
+            try
+            {
+                byte[] bytes = toText().getBytes(UTF_8);
+                exchange.getResponseHeaders().set("Content-Type", "text/plain; charset=utf-8");
+                exchange.sendResponseHeaders(200, bytes.length);
+                try (OutputStream os = exchange.getResponseBody())
+                {
+                    os.write(bytes);
+                }
+            }
+            finally
+            {
+                exchange.close();
+            }
+        });
+        server.start();
+        config("metrics at http://%s/metrics", server.getAddress());
+        return server;
+    }
+}
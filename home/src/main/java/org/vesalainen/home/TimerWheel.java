@@ -0,0 +1,266 @@
+/*
+ * Copyright (C) 2026 Timo Vesalainen <timo.vesalainen@iki.fi>
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.vesalainen.home;
+
+import java.util.concurrent.Executor;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.LongSupplier;
+import static java.util.logging.Level.SEVERE;
+import org.vesalainen.util.logging.JavaLogging;
+
+/**
+ * Hashed timer wheel. Schedule and cancel are O(1). Timeouts are checked once
+ * per tick by a single periodic task. Task is never run before the delay, but
+ * can be about one tick late. Expired tasks are run in given executor.
+ * @author Timo Vesalainen <timo.vesalainen@iki.fi>
+ */
+public class TimerWheel extends JavaLogging
+{
+    private final long tickNanos;
+    private final int mask;
+    private final Timeout[] wheel;
+    private final LongSupplier clock;
+    private final long start;
+    private long tick;
+    private int size;
+    private ScheduledFuture<?> ticker;
+    /**
+     * Creates timer wheel
+     * @param scheduler Runs the periodic tick
+     * @param tickDuration
+     * @param unit
+     * @param wheelSize Number of slots. Rounded up to power of two.
+     */
+    public TimerWheel(ScheduledExecutorService scheduler, long tickDuration, TimeUnit unit, int wheelSize)
+    {
+        this(scheduler, System::nanoTime, tickDuration, unit, wheelSize);
+    }
+    /**
+     * Creates timer wheel with given clock
+     * @param scheduler Runs the periodic tick. If null tick must be called 
+     * by caller.
+     * @param clock Nano time source
+     * @param tickDuration
+     * @param unit
+     * @param wheelSize Number of slots. Rounded up to power of two.
+     */
+    public TimerWheel(ScheduledExecutorService scheduler, LongSupplier clock, long tickDuration, TimeUnit unit, int wheelSize)
+    {
+        super(TimerWheel.class);
+        this.clock = clock;
+        this.start = clock.getAsLong();
+        this.tickNanos = unit.toNanos(tickDuration);
+        if (tickNanos <= 0)
+        {
+            throw new IllegalArgumentException("tick "+tickDuration);
+        }
+        int slots = Integer.highestOneBit(Math.max(1, wheelSize-1))<<1;
+        this.mask = slots-1;
+        this.wheel = new Timeout[slots];
+        for (int ii=0;ii<slots;ii++)
+        {
+            Timeout head = new Timeout(null, null, 0);
+            head.next = head;
+            head.prev = head;
+            wheel[ii] = head;
+        }
+        if (scheduler != null)
+        {
+            this.ticker = scheduler.scheduleAtFixedRate(this::tick, tickDuration, tickDuration, unit);
+        }
+    }
+    /**
+     * Runs task in executor after delay. 
+     * @param task
+     * @param executor
+     * @param delay
+     * @param unit
+     * @return 
+     */
+    public Timeout schedule(Runnable task, Executor executor, long delay, TimeUnit unit)
+    {
+        Timeout timeout = new Timeout(task, executor, 0);
+        long nanos = clock.getAsLong() - start + unit.toNanos(delay);
+        long deadline = (nanos + tickNanos - 1) / tickNanos;
+        synchronized (this)
+        {
+            timeout.deadline = Math.max(tick + 1, deadline);
+            link(timeout);
+            size++;
+        }
+        return timeout;
+    }
+    /**
+     * Returns number of waiting timeouts.
+     * @return 
+     */
+    public synchronized int size()
+    {
+        return size;
+    }
+    /**
+     * Stops ticking. Waiting timeouts are not run.
+     */
+    public void stop()
+    {
+        if (ticker != null)
+        {
+            ticker.cancel(false);
+        }
+    }
+    /**
+     * Expires all timeouts up to current time. Called periodically by 
+     * scheduler.
+     */
+    public void tick()
+    {
+        long now = now();
+        while (true)
+        {
+            Timeout expired = null;
+            synchronized (this)
+            {
+                if (tick >= now)
+                {
+                    return;
+                }
+                tick++;
+                Timeout head = wheel[(int)(tick & mask)];
+                Timeout t = head.next;
+                while (t != head)
+                {
+                    Timeout next = t.next;
+                    if (t.deadline <= tick)
+                    {
+                        unlink(t);
+                        size--;
+                        if (t.state.compareAndSet(WAITING, FIRED))
+                        {
+                            t.next = expired;
+                            expired = t;
+                        }
+                    }
+                    t = next;
+                }
+            }
+            while (expired != null)
+            {
+                Timeout next = expired.next;
+                expired.next = null;
+                expired.fire();
+                expired = next;
+            }
+        }
+    }
+    private long now()
+    {
+        return (clock.getAsLong() - start) / tickNanos;
+    }
+    private void link(Timeout t)
+    {
+        Timeout head = wheel[(int)(t.deadline & mask)];
+        t.prev = head.prev;
+        t.next = head;
+        head.prev.next = t;
+        head.prev = t;
+    }
+    private void unlink(Timeout t)
+    {
+        t.prev.next = t.next;
+        t.next.prev = t.prev;
+        t.prev = null;
+        t.next = null;
+    }
+    private static final int WAITING = 0;
+    private static final int FIRED = 1;
+    private static final int DONE = 2;
+    private static final int CANCELLED = 3;
+    
+    public class Timeout
+    {
+        private final Runnable task;
+        private final Executor executor;
+        private final AtomicInteger state = new AtomicInteger(WAITING);
+        private long deadline;
+        private Timeout next;
+        private Timeout prev;
+
+        private Timeout(Runnable task, Executor executor, long deadline)
+        {
+            this.task = task;
+            this.executor = executor;
+            this.deadline = deadline;
+        }
+        /**
+         * Cancels timeout. Task is not run after this unless it was already 
+         * started.
+         * @return true if task was cancelled
+         */
+        public boolean cancel()
+        {
+            if (state.compareAndSet(WAITING, CANCELLED))
+            {
+                synchronized (TimerWheel.this)
+                {
+                    if (prev != null)
+                    {
+                        unlink(this);
+                        size--;
+                    }
+                }
+                return true;
+            }
+            return state.compareAndSet(FIRED, CANCELLED);
+        }
+        /**
+         * Returns true if task is run or cancelled.
+         * @return 
+         */
+        public boolean isDone()
+        {
+            int s = state.get();
+            return s == DONE || s == CANCELLED;
+        }
+
+        public boolean isCancelled()
+        {
+            return state.get() == CANCELLED;
+        }
+        
+        private void fire()
+        {
+            try
+            {
+                executor.execute(this::run);
+            }
+            catch (RuntimeException ex)
+            {
+                log(SEVERE, ex, "executing timeout failed");
+            }
+        }
+        private void run()
+        {
+            if (state.compareAndSet(FIRED, DONE))
+            {
+                task.run();
+            }
+        }
+    }
+}
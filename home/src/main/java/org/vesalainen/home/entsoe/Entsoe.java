@@ -67,6 +67,7 @@ public class Entsoe extends DefaultHandler implements AttachedLogger
     private final ScheduledExecutorService executor;
     private int lastPosition;
     private double lastPrice;
+    private boolean started;
 
     public Entsoe(ScheduledExecutorService executor, String securityToken, String domain, IndexedData data)
     {
@@ -97,6 +98,16 @@ public class Entsoe extends DefaultHandler implements AttachedLogger
     private ZonedDateTime read()
     {
         ZonedDateTime e = ZonedDateTime.now().withZoneSameInstant(ZoneId.of("Z")).truncatedTo(DAYS);
+        if (!started)
+        {
+            started = true;
+            ZonedDateTime stored = data.getDataEnd("price");
+            if (!stored.isBefore(e.plusDays(1)))
+            {
+                fine("prices stored until %s", stored);
+                return stored;
+            }
+        }
         return read(e, e.plusDays(1));
     }
     private ZonedDateTime read(
@@ -203,11 +214,11 @@ public class Entsoe extends DefaultHandler implements AttachedLogger
                 for (int ii=lastPosition;ii<position-1;ii++)
                 {
                     ZonedDateTime zdt = start.plus(resolution.multipliedBy(ii)).withZoneSameInstant(ZoneId.systemDefault());
-                    data.set(zdt, "price", lastPrice);
+                    data.setDouble(zdt, "price", lastPrice);
                     fine("price %s %f", zdt, lastPrice);
                 }
                 ZonedDateTime zdt = start.plus(resolution.multipliedBy(position-1)).withZoneSameInstant(ZoneId.systemDefault());
-                data.set(zdt, "price", price);
+                data.setDouble(zdt, "price", price);
                 fine("price %s %f", zdt, price);
                 lastPosition = position;
                 lastPrice = price;
@@ -18,12 +18,13 @@ package org.vesalainen.home.entsoe;
 
 import static java.lang.Math.abs;
 import static java.lang.Math.max;
+import java.io.IOException;
+import java.nio.file.Path;
 import java.time.Duration;
 import java.util.Arrays;
 import java.util.Iterator;
 import java.util.PriorityQueue;
 import java.util.concurrent.ExecutionException;
-import java.util.concurrent.Executors;
 import java.util.concurrent.Future;
 import java.util.concurrent.ScheduledExecutorService;
 import java.util.concurrent.ScheduledFuture;
@@ -31,7 +32,9 @@ import java.util.concurrent.TimeUnit;
 import java.util.logging.Level;
 import static java.util.logging.Level.SEVERE;
 import java.util.logging.Logger;
+import org.vesalainen.home.ExecutorFactory;
 import org.vesalainen.home.IndexedData;
+import org.vesalainen.home.IndexedData.ParameterHandle;
 import org.vesalainen.home.BoundedPriorityQueue;
 import org.vesalainen.home.OutOfDataException;
 import org.vesalainen.home.Restarter;
@@ -47,6 +50,8 @@ import org.vesalainen.util.logging.JavaLogging;
 public class Optimizer extends JavaLogging
 {
     private final IndexedData quarts;
+    private final ParameterHandle<Humidifier> humidifier;
+    private final ParameterHandle<Double> price;
     private int quartCount;
     private BoundedPriorityQueue<Candidate> queue = new BoundedPriorityQueue<>(100000);
     private ScheduledExecutorService pool;
@@ -55,6 +60,7 @@ public class Optimizer extends JavaLogging
     private final double minRH;
     private final int seconds;
     private final int qSize;
+    private static final String[] PARAMETERS = new String[]{"price", "Pressure", "Temperature", "DewPoint", "Humidity"};
 
     public Optimizer(
             String securityToken, 
@@ -67,15 +73,45 @@ public class Optimizer extends JavaLogging
             double vaporizingPower,
             double volume
     )
+    {
+        this(securityToken, domain, place, maxRH, minRH, inTemp, vaporMass, vaporizingPower, volume, null);
+    }
+    /**
+     * 
+     * @param securityToken
+     * @param domain
+     * @param place
+     * @param maxRH
+     * @param minRH
+     * @param inTemp
+     * @param vaporMass
+     * @param vaporizingPower
+     * @param volume
+     * @param store File where prices and forecast are stored over restarts
+     * or null.
+     */
+    public Optimizer(
+            String securityToken, 
+            String domain, 
+            String place,
+            double maxRH,
+            double minRH,
+            double inTemp,
+            double vaporMass,
+            double vaporizingPower,
+            double volume,
+            Path store
+    )
     {
         super(Optimizer.class);
-        this.pool = Executors.newScheduledThreadPool(2);
-        Duration ofDays = Duration.ofDays(2);
+        this.pool = ExecutorFactory.getDefault().newScheduler("optimizer", 2);
         this.maxRH = maxRH;
         this.minRH = minRH;
-        this.quarts = new IndexedData(Duration.ofMinutes(15), ofDays);
+        this.quarts = createQuarts(Duration.ofMinutes(15), Duration.ofDays(2), store);
         HumidifierFactory factory = new HumidifierFactory(maxRH, minRH, inTemp, vaporMass, vaporizingPower, volume);
-        quarts.addSupplier("humidifier", factory::create, "Pressure", "Temperature", "DewPoint", "Humidity");
+        quarts.addObjectSupplier("humidifier", factory::create, "Pressure", "Temperature", "DewPoint", "Humidity");
+        this.humidifier = quarts.handle("humidifier");
+        this.price = quarts.doubleHandle("price");
         OpenData openData = new OpenData(pool, place, quarts);
         openData.startReadingAndWait();
 
@@ -84,6 +120,23 @@ public class Optimizer extends JavaLogging
         this.seconds = quarts.getSeconds();
         this.qSize = quarts.getCapacity();
     }
+    private IndexedData createQuarts(Duration period, Duration window, Path store)
+    {
+        if (store != null)
+        {
+            try
+            {
+                IndexedData data = new IndexedData(period, window, store, PARAMETERS);
+                config("loaded %s until %s", store, data.getDataEnd(PARAMETERS));
+                return data;
+            }
+            catch (IOException ex)
+            {
+                log(SEVERE, ex, "%s not usable, data is not stored", store);
+            }
+        }
+        return new IndexedData(period, window, PARAMETERS);
+    }
     public void reStart()
     {
         if (future == null || future.isDone())
@@ -201,7 +254,7 @@ public class Optimizer extends JavaLogging
     {
         try
         {
-            return quarts.get("price");
+            return price.getDouble();
         }
         catch (OutOfDataException ex)
         {
@@ -218,19 +271,18 @@ public class Optimizer extends JavaLogging
         public Candidate() throws OutOfDataException
         {
             this.qIndex = quarts.getIndex();
-            Humidifier humidifier = quarts.get(qIndex, "humidifier");
-            this.rh = (float) humidifier.inRHUsingOutAir();
+            this.rh = (float) humidifier.get(qIndex).inRHUsingOutAir();
         }
         public boolean burn(boolean on) throws OutOfDataException
         {
             qIndex++;
-            Humidifier humidifier = quarts.get(qIndex, "humidifier");
-            double deltaCirc = humidifier.relativeHumidityDeltaCirculation(seconds, rh);
-            double deltaVapor = humidifier.relativeHumidityDeltaVaporizing(seconds, rh);
+            Humidifier hum = humidifier.get(qIndex);
+            double deltaCirc = hum.relativeHumidityDeltaCirculation(seconds, rh);
+            double deltaVapor = hum.relativeHumidityDeltaVaporizing(seconds, rh);
             set(qIndex, on);
             if (on)
             {
-                cost += (double)quarts.get(qIndex, "price");
+                cost += price.getDouble(qIndex);
                 rh += deltaCirc + deltaVapor;
                 if (rh > maxRH)
                 {
@@ -38,7 +38,7 @@ public class HumidifierFactory
         this.vaporazingPower = vaporazingPower;
         this.volume = volume;
     }
-    public Humidifier create(Double... p)
+    public Humidifier create(double... p)
     {
         if (p.length != 4)
         {
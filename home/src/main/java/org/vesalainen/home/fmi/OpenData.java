@@ -69,6 +69,7 @@ public class OpenData extends DefaultHandler implements AttachedLogger
     private final Duration duration;
     private final String parameters;
     private final Duration timestep;
+    private boolean started;
 
     public OpenData(ScheduledExecutorService executor, String place, IndexedData data)
     {
@@ -106,6 +107,20 @@ public class OpenData extends DefaultHandler implements AttachedLogger
     {
         ZonedDateTime start = dat.currentPeriod().withZoneSameInstant(ZoneId.of("Z")).truncatedTo(HOURS); //ZonedDateTime.now().withZoneSameInstant(ZoneId.of("Z")).truncatedTo(HOURS);
         ZonedDateTime end = start.plus(duration);
+        if (!started)
+        {
+            started = true;
+            ZonedDateTime stored = dat.getDataEnd(parameters.split(",")).withZoneSameInstant(ZoneId.of("Z"));
+            if (!stored.isBefore(end))
+            {
+                fine("forecast stored until %s", stored);
+                return stored;
+            }
+            if (stored.isAfter(start))
+            {
+                start = stored.truncatedTo(HOURS);
+            }
+        }
         fine("read forecast %s - %s", start, end);
         return readForecast(
                 place, 
@@ -177,16 +192,18 @@ public class OpenData extends DefaultHandler implements AttachedLogger
         int count = arr.length/fields.size();
         finest("set %d %s", count, timestep);
         int index = 0;
+        int from = dat.getIndex(begin);
         for (int ii=0;ii<count;ii++)
         {
             for (String field : fields)
             {
                 double v = arr[index++];
                 fine("set %s: %s = %f", begin, field, v);
-                dat.set(begin, field, v);
+                dat.setDouble(begin, field, v);
             }
             begin = begin.plus(timestep);
         }
+        dat.recompute(from, dat.getIndex(begin)-1);
         return begin;
     }
 
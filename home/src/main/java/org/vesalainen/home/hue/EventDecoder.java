@@ -0,0 +1,662 @@
+/*
+ * Copyright (C) 2026 Timo Vesalainen <timo.vesalainen@iki.fi>
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.vesalainen.home.hue;
+
+import java.util.function.Consumer;
+
+/**
+ * Streaming decoder for event stream data frames. Walks the frame once and
+ * picks only the fields used by event handlers into a reused HueEvent. Other
+ * values are skipped without building a json tree.
+ * 
+ * <p>Not thread-safe. Use one decoder per thread.
+ * @author Timo Vesalainen <timo.vesalainen@iki.fi>
+ */
+public class EventDecoder
+{
+    private static final String[] TYPES = new String[]{
+        "light",
+        "grouped_light",
+        "light_level",
+        "grouped_light_level",
+        "motion",
+        "grouped_motion",
+        "temperature",
+        "button",
+        "device",
+        "device_power",
+        "zigbee_connectivity",
+        "zgp_connectivity",
+        "room",
+        "zone",
+        "scene",
+        "bridge",
+        "bridge_home",
+        "entertainment",
+        "camera_motion",
+        "contact",
+        "tamper",
+        "relative_rotary",
+        "behavior_instance",
+        "geofence_client",
+        "homekit",
+        "matter",
+        "smart_scene"
+    };
+    private final HueEvent event = new HueEvent();
+    private String data;
+    private int pos;
+    private int start;
+    private int end;
+    private boolean escaped;
+    /**
+     * Decodes data frame which is an array of events. Consumer is called for 
+     * each data item with the same HueEvent instance.
+     * @param data
+     * @param consumer 
+     * @throws IllegalArgumentException if data is not valid json.
+     */
+    public void decode(String data, Consumer<HueEvent> consumer)
+    {
+        this.data = data;
+        this.pos = 0;
+        try
+        {
+            expect('[');
+            if (!consume(']'))
+            {
+                do
+                {
+                    envelope(consumer);
+                } while (consume(','));
+                expect(']');
+            }
+        }
+        finally
+        {
+            this.data = null;
+        }
+    }
+    private void envelope(Consumer<HueEvent> consumer)
+    {
+        expect('{');
+        if (consume('}'))
+        {
+            return;
+        }
+        do
+        {
+            key();
+            if (keyIs("data"))
+            {
+                expect('[');
+                if (!consume(']'))
+                {
+                    do
+                    {
+                        event.clear();
+                        event.data = data;
+                        event.start = pos;
+                        item();
+                        event.end = pos;
+                        consumer.accept(event);
+                    } while (consume(','));
+                    expect(']');
+                }
+            }
+            else
+            {
+                skipValue();
+            }
+        } while (consume(','));
+        expect('}');
+    }
+    private void item()
+    {
+        expect('{');
+        if (consume('}'))
+        {
+            return;
+        }
+        do
+        {
+            key();
+            if (keyIs("type"))
+            {
+                event.type = type();
+            }
+            else if (keyIs("id"))
+            {
+                event.id = string();
+            }
+            else if (keyIs("owner"))
+            {
+                owner();
+            }
+            else if (keyIs("on"))
+            {
+                on();
+            }
+            else if (keyIs("dimming"))
+            {
+                dimming();
+            }
+            else if (keyIs("color_temperature"))
+            {
+                colorTemperature();
+            }
+            else if (keyIs("color"))
+            {
+                color();
+            }
+            else if (keyIs("light"))
+            {
+                light();
+            }
+            else if (keyIs("motion"))
+            {
+                motion();
+            }
+            else
+            {
+                skipValue();
+            }
+        } while (consume(','));
+        expect('}');
+    }
+    private void owner()
+    {
+        if (objectStart())
+        {
+            do
+            {
+                key();
+                if (keyIs("rid"))
+                {
+                    event.ownerRid = string();
+                }
+                else
+                {
+                    skipValue();
+                }
+            } while (consume(','));
+            expect('}');
+        }
+    }
+    private void on()
+    {
+        if (objectStart())
+        {
+            do
+            {
+                key();
+                if (keyIs("on"))
+                {
+                    event.hasOn = true;
+                    event.on = bool();
+                }
+                else
+                {
+                    skipValue();
+                }
+            } while (consume(','));
+            expect('}');
+        }
+    }
+    private void dimming()
+    {
+        if (objectStart())
+        {
+            do
+            {
+                key();
+                if (keyIs("brightness"))
+                {
+                    event.brightness = number();
+                }
+                else
+                {
+                    skipValue();
+                }
+            } while (consume(','));
+            expect('}');
+        }
+    }
+    private void colorTemperature()
+    {
+        if (objectStart())
+        {
+            do
+            {
+                key();
+                if (keyIs("mirek") && !isNull())
+                {
+                    event.hasMirek = true;
+                    event.mirek = (int) number();
+                }
+                else
+                {
+                    skipValue();
+                }
+            } while (consume(','));
+            expect('}');
+        }
+    }
+    private void color()
+    {
+        if (objectStart())
+        {
+            do
+            {
+                key();
+                if (keyIs("xy"))
+                {
+                    if (objectStart())
+                    {
+                        do
+                        {
+                            key();
+                            if (keyIs("x"))
+                            {
+                                event.colorX = number();
+                            }
+                            else if (keyIs("y"))
+                            {
+                                event.colorY = number();
+                            }
+                            else
+                            {
+                                skipValue();
+                            }
+                        } while (consume(','));
+                        expect('}');
+                    }
+                }
+                else
+                {
+                    skipValue();
+                }
+            } while (consume(','));
+            expect('}');
+        }
+    }
+    private void light()
+    {
+        if (objectStart())
+        {
+            do
+            {
+                key();
+                if (keyIs("light_level"))
+                {
+                    event.hasLightLevel = true;
+                    event.lightLevel = (int) number();
+                }
+                else if (keyIs("light_level_report"))
+                {
+                    if (objectStart())
+                    {
+                        do
+                        {
+                            key();
+                            if (keyIs("light_level"))
+                            {
+                                event.hasLightLevel = true;
+                                event.lightLevel = (int) number();
+                            }
+                            else
+                            {
+                                skipValue();
+                            }
+                        } while (consume(','));
+                        expect('}');
+                    }
+                }
+                else
+                {
+                    skipValue();
+                }
+            } while (consume(','));
+            expect('}');
+        }
+    }
+    private void motion()
+    {
+        if (objectStart())
+        {
+            do
+            {
+                key();
+                if (keyIs("motion"))
+                {
+                    event.hasMotion = true;
+                    event.motion = bool();
+                }
+                else if (keyIs("motion_report"))
+                {
+                    if (objectStart())
+                    {
+                        do
+                        {
+                            key();
+                            if (keyIs("motion"))
+                            {
+                                event.hasMotion = true;
+                                event.motion = bool();
+                            }
+                            else
+                            {
+                                skipValue();
+                            }
+                        } while (consume(','));
+                        expect('}');
+                    }
+                }
+                else
+                {
+                    skipValue();
+                }
+            } while (consume(','));
+            expect('}');
+        }
+    }
+    /**
+     * Consumes '{'. If object is empty or value is not an object it is skipped
+     * and returns false.
+     * @return 
+     */
+    private boolean objectStart()
+    {
+        skipWhitespace();
+        if (peek() != '{')
+        {
+            skipValue();
+            return false;
+        }
+        pos++;
+        return !consume('}');
+    }
+    /**
+     * Parses key and ':'. Key bounds are left in start and end.
+     */
+    private void key()
+    {
+        scanString();
+        expect(':');
+    }
+    private boolean keyIs(String key)
+    {
+        return !escaped && end - start == key.length() && data.regionMatches(start, key, 0, key.length());
+    }
+    private String type()
+    {
+        scanString();
+        if (!escaped)
+        {
+            int len = end - start;
+            for (String t : TYPES)
+            {
+                if (t.length() == len && data.regionMatches(start, t, 0, len))
+                {
+                    return t;
+                }
+            }
+        }
+        return stringValue();
+    }
+    private String string()
+    {
+        scanString();
+        return stringValue();
+    }
+    private String stringValue()
+    {
+        if (!escaped)
+        {
+            return data.substring(start, end);
+        }
+        StringBuilder sb = new StringBuilder(end - start);
+        for (int ii=start;ii<end;ii++)
+        {
+            char cc = data.charAt(ii);
+            if (cc == '\\')
+            {
+                cc = data.charAt(++ii);
+                switch (cc)
+                {
+                    case 'b':
+                        sb.append('\b');
+                        break;
+                    case 'f':
+                        sb.append('\f');
+                        break;
+                    case 'n':
+                        sb.append('\n');
+                        break;
+                    case 'r':
+                        sb.append('\r');
+                        break;
+                    case 't':
+                        sb.append('\t');
+                        break;
+                    case 'u':
+                        sb.append((char)Integer.parseInt(data.substring(ii+1, ii+5), 16));
+                        ii += 4;
+                        break;
+                    default:
+                        sb.append(cc);
+                        break;
+                }
+            }
+            else
+            {
+                sb.append(cc);
+            }
+        }
+        return sb.toString();
+    }
+    /**
+     * Scans string. Content bounds without quotes are left in start and end.
+     */
+    private void scanString()
+    {
+        expect('"');
+        start = pos;
+        escaped = false;
+        while (true)
+        {
+            char cc = next();
+            if (cc == '"')
+            {
+                end = pos - 1;
+                return;
+            }
+            if (cc == '\\')
+            {
+                escaped = true;
+                next();
+            }
+        }
+    }
+    private boolean bool()
+    {
+        skipWhitespace();
+        if (data.startsWith("true", pos))
+        {
+            pos += 4;
+            return true;
+        }
+        if (data.startsWith("false", pos))
+        {
+            pos += 5;
+            return false;
+        }
+        throw error("boolean expected");
+    }
+    private boolean isNull()
+    {
+        skipWhitespace();
+        return data.startsWith("null", pos);
+    }
+    private double number()
+    {
+        skipWhitespace();
+        boolean negative = consume('-');
+        long mantissa = 0;
+        int scale = 0;
+        int digits = 0;
+        char cc = peek();
+        while (cc >= '0' && cc <= '9')
+        {
+            mantissa = 10*mantissa + cc - '0';
+            digits++;
+            cc = advance();
+        }
+        if (cc == '.')
+        {
+            cc = advance();
+            while (cc >= '0' && cc <= '9')
+            {
+                mantissa = 10*mantissa + cc - '0';
+                scale--;
+                digits++;
+                cc = advance();
+            }
+        }
+        if (digits == 0 || digits > 18)
+        {
+            throw error("number expected");
+        }
+        if (cc == 'e' || cc == 'E')
+        {
+            advance();
+            boolean negExp = consume('-');
+            if (!negExp)
+            {
+                consume('+');
+            }
+            int exp = 0;
+            cc = peek();
+            while (cc >= '0' && cc <= '9')
+            {
+                exp = 10*exp + cc - '0';
+                cc = advance();
+            }
+            scale += negExp ? -exp : exp;
+        }
+        double value = mantissa;
+        if (scale < 0)
+        {
+            value /= Math.pow(10, -scale);
+        }
+        else if (scale > 0)
+        {
+            value *= Math.pow(10, scale);
+        }
+        return negative ? -value : value;
+    }
+    private void skipValue()
+    {
+        skipWhitespace();
+        char cc = peek();
+        switch (cc)
+        {
+            case '"':
+                scanString();
+                break;
+            case '{':
+            case '[':
+                int depth = 0;
+                do
+                {
+                    cc = next();
+                    switch (cc)
+                    {
+                        case '{':
+                        case '[':
+                            depth++;
+                            break;
+                        case '}':
+                        case ']':
+                            depth--;
+                            break;
+                        case '"':
+                            pos--;
+                            scanString();
+                            break;
+                    }
+                } while (depth > 0);
+                break;
+            default:
+                while (pos < data.length())
+                {
+                    cc = data.charAt(pos);
+                    if (cc == ',' || cc == '}' || cc == ']' || Character.isWhitespace(cc))
+                    {
+                        break;
+                    }
+                    pos++;
+                }
+                break;
+        }
+    }
+    private void expect(char cc)
+    {
+        if (!consume(cc))
+        {
+            throw error("'"+cc+"' expected");
+        }
+    }
+    private boolean consume(char cc)
+    {
+        skipWhitespace();
+        if (pos < data.length() && data.charAt(pos) == cc)
+        {
+            pos++;
+            return true;
+        }
+        return false;
+    }
+    private void skipWhitespace()
+    {
+        while (pos < data.length() && Character.isWhitespace(data.charAt(pos)))
+        {
+            pos++;
+        }
+    }
+    private char peek()
+    {
+        return pos < data.length() ? data.charAt(pos) : 0;
+    }
+    private char advance()
+    {
+        pos++;
+        return peek();
+    }
+    private char next()
+    {
+        if (pos >= data.length())
+        {
+            throw error("unexpected end");
+        }
+        return data.charAt(pos++);
+    }
+    private IllegalArgumentException error(String msg)
+    {
+        return new IllegalArgumentException(msg+" at "+pos+" in "+data);
+    }
+}
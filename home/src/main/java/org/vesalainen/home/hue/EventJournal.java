@@ -0,0 +1,310 @@
+/*
+ * Copyright (C) 2026 Timo Vesalainen <timo.vesalainen@iki.fi>
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.vesalainen.home.hue;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import static java.nio.channels.FileChannel.MapMode.READ_ONLY;
+import static java.nio.channels.FileChannel.MapMode.READ_WRITE;
+import static java.nio.charset.StandardCharsets.UTF_8;
+import java.nio.file.Path;
+import static java.nio.file.StandardOpenOption.*;
+import org.vesalainen.util.logging.JavaLogging;
+
+/**
+ * Append-only memory-mapped journal of raw event stream frames.
+ * 
+ * <p>File starts with magic and version ints. Each record is 
+ * <pre>
+ * int length of data
+ * byte type
+ * long time in millis
+ * byte[length] UTF-8 data
+ * </pre>
+ * Length is written last so that a record is visible only after it is
+ * complete. Zero length ends the journal. This makes journal readable
+ * after crash when mapped tail is zero-filled.
+ * @author Timo Vesalainen <timo.vesalainen@iki.fi>
+ */
+public class EventJournal
+{
+    /**
+     * Event stream data frame.
+     */
+    public static final int FRAME = 1;
+    /**
+     * All resources as returned from /clip/v2/resource.
+     */
+    public static final int RESOURCES = 2;
+    private static final int MAGIC = 0x4855454A;
+    private static final int VERSION = 1;
+    private static final int HEADER = 8;
+    private static final int RECORD_HEADER = 13;
+    private static final int CHUNK = 1<<20;
+    private static final int WINDOW = 1<<26;
+    /**
+     * Opens journal for appending. Creates it if it doesn't exist.
+     * @param path
+     * @return
+     * @throws IOException 
+     */
+    public static Writer append(Path path) throws IOException
+    {
+        return new Writer(path, CHUNK);
+    }
+    /**
+     * Opens journal for reading.
+     * @param path
+     * @return
+     * @throws IOException 
+     */
+    public static Reader read(Path path) throws IOException
+    {
+        return new Reader(path, WINDOW);
+    }
+    public static class Writer extends JavaLogging implements Closeable
+    {
+        private final FileChannel channel;
+        private final int chunk;
+        private MappedByteBuffer buffer;
+        private long base;
+
+        Writer(Path path, int chunk) throws IOException
+        {
+            super(Writer.class);
+            this.chunk = chunk;
+            long end;
+            try (Reader reader = new Reader(path, WINDOW, true))
+            {
+                while (reader.next())
+                {
+                }
+                end = reader.getPosition();
+            }
+            this.channel = FileChannel.open(path, READ, WRITE, CREATE);
+            map(end, 0);
+            if (end == 0)
+            {
+                buffer.putInt(MAGIC);
+                buffer.putInt(VERSION);
+            }
+            config("journal %s at %d", path, end);
+        }
+        /**
+         * Appends event stream frame with current time.
+         * @param data 
+         * @throws java.io.IOException 
+         */
+        public void append(String data) throws IOException
+        {
+            append(FRAME, System.currentTimeMillis(), data);
+        }
+        public synchronized void append(int type, long time, String data) throws IOException
+        {
+            byte[] bytes = data.getBytes(UTF_8);
+            int need = RECORD_HEADER + bytes.length;
+            if (buffer.remaining() < need + 4)
+            {
+                map(getPosition(), need + 4);
+            }
+            int start = buffer.position();
+            buffer.position(start + 4);
+            buffer.put((byte) type);
+            buffer.putLong(time);
+            buffer.put(bytes);
+            buffer.putInt(start, bytes.length);
+        }
+        /**
+         * Returns end position of journal.
+         * @return 
+         */
+        public synchronized long getPosition()
+        {
+            return base + buffer.position();
+        }
+        /**
+         * Forces written records to storage.
+         */
+        public synchronized void flush()
+        {
+            buffer.force();
+        }
+
+        @Override
+        public synchronized void close() throws IOException
+        {
+            buffer.force();
+            try
+            {
+                channel.truncate(getPosition());
+            }
+            catch (IOException ex)
+            {
+                fine("truncate failed %s", ex);
+            }
+            channel.close();
+        }
+
+        private void map(long position, int need) throws IOException
+        {
+            if (buffer != null)
+            {
+                buffer.force();
+            }
+            base = position;
+            buffer = channel.map(READ_WRITE, base, Math.max(chunk, need));
+        }
+    }
+    /**
+     * Cursor over journal records.
+     */
+    public static class Reader implements Closeable
+    {
+        private final FileChannel channel;
+        private final long size;
+        private final int window;
+        private ByteBuffer buffer;
+        private long base;
+        private long position;
+        private int type;
+        private long time;
+        private int length;
+        private int dataOffset;
+
+        Reader(Path path, int window) throws IOException
+        {
+            this(path, window, false);
+        }
+        private Reader(Path path, int window, boolean create) throws IOException
+        {
+            this.window = window;
+            if (create)
+            {
+                channel = FileChannel.open(path, READ, WRITE, CREATE);
+            }
+            else
+            {
+                channel = FileChannel.open(path, READ);
+            }
+            this.size = channel.size();
+            if (size > 0)
+            {
+                map(0, HEADER);
+                if (buffer.getInt(0) != MAGIC)
+                {
+                    channel.close();
+                    throw new IOException(path+" is not journal");
+                }
+                if (buffer.getInt(4) != VERSION)
+                {
+                    channel.close();
+                    throw new IOException(path+" version "+buffer.getInt(4)+" not supported");
+                }
+                position = HEADER;
+            }
+        }
+        /**
+         * Moves to next record.
+         * @return false if there are no more records.
+         * @throws IOException 
+         */
+        public boolean next() throws IOException
+        {
+            if (position + RECORD_HEADER > size)
+            {
+                return false;
+            }
+            int off = offset(RECORD_HEADER);
+            int len = buffer.getInt(off);
+            if (len <= 0 || position + RECORD_HEADER + len > size)
+            {
+                return false;
+            }
+            off = offset(RECORD_HEADER + len);
+            length = len;
+            type = buffer.get(off + 4);
+            time = buffer.getLong(off + 5);
+            dataOffset = off + RECORD_HEADER;
+            position += RECORD_HEADER + len;
+            return true;
+        }
+        /**
+         * Returns type of current record.
+         * @return 
+         * @see EventJournal#FRAME
+         * @see EventJournal#RESOURCES
+         */
+        public int getType()
+        {
+            return type;
+        }
+        /**
+         * Returns time of current record.
+         * @return 
+         */
+        public long getTime()
+        {
+            return time;
+        }
+        /**
+         * Returns data of current record.
+         * @return 
+         */
+        public String getData()
+        {
+            byte[] bytes = new byte[length];
+            ByteBuffer dup = buffer.duplicate();
+            dup.position(dataOffset);
+            dup.get(bytes);
+            return new String(bytes, UTF_8);
+        }
+        /**
+         * Returns position after current record.
+         * @return 
+         */
+        public long getPosition()
+        {
+            return position;
+        }
+
+        @Override
+        public void close() throws IOException
+        {
+            channel.close();
+        }
+        /**
+         * Returns buffer offset of position making sure that need bytes are
+         * mapped.
+         */
+        private int offset(int need) throws IOException
+        {
+            if (buffer == null || position < base || position + need > base + buffer.limit())
+            {
+                map(position, need);
+            }
+            return (int) (position - base);
+        }
+        private void map(long pos, int need) throws IOException
+        {
+            base = pos;
+            buffer = channel.map(READ_ONLY, base, Math.min(size - base, Math.max(window, need)));
+        }
+    }
+}
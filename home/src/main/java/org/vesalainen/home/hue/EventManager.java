@@ -21,12 +21,10 @@ import java.io.BufferedReader;
 import java.io.IOException;
 import static java.lang.Integer.*;
 import static java.lang.Math.abs;
-import java.lang.reflect.Constructor;
-import java.lang.reflect.Field;
-import java.lang.reflect.InvocationTargetException;
 import java.math.BigDecimal;
 import java.nio.file.Files;
 import java.nio.file.Path;
+import java.nio.file.Paths;
 import java.time.Duration;
 import java.time.LocalTime;
 import java.util.ArrayList;
@@ -37,18 +35,28 @@ import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
-import java.util.concurrent.Executors;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
 import java.util.concurrent.ScheduledExecutorService;
-import java.util.concurrent.ScheduledFuture;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.LongSupplier;
 import static java.util.concurrent.TimeUnit.MILLISECONDS;
 import static java.util.logging.Level.SEVERE;
 import org.json.JSONArray;
 import org.json.JSONObject;
-import org.json.JSONPointer;
-import org.json.JSONPointerException;
 import org.json.XML;
+import org.vesalainen.home.ExecutorFactory;
 import org.vesalainen.home.IndexedData;
+import org.vesalainen.home.LatencyHistogram;
+import org.vesalainen.home.Mailbox;
+import org.vesalainen.home.Metrics;
+import org.vesalainen.home.TimerWheel;
+import org.vesalainen.home.TimerWheel.Timeout;
 import org.vesalainen.home.entsoe.Optimizer;
 import org.vesalainen.home.entsoe.Prices;
 import org.vesalainen.home.hue.Resources.Resource;
@@ -56,7 +64,6 @@ import org.vesalainen.math.LocalTimeCubicSpline;
 import static org.vesalainen.math.UnitType.DURATION_MILLI_SECONDS;
 import org.vesalainen.net.dns.Message;
 import org.vesalainen.net.dns.ResourceRecord;
-import org.vesalainen.util.ConvertUtility;
 import org.vesalainen.util.HashMapList;
 import org.vesalainen.util.MapList;
 import org.vesalainen.util.logging.JavaLogging;
@@ -68,78 +75,355 @@ import org.vesalainen.util.logging.JavaLogging;
 public class EventManager extends JavaLogging
 {
     private static final int VERSION = 1;
-    private static final JSONPointer LIGHT_LEVEL = new JSONPointer("/light/light_level");
-    private static final JSONPointer GROUPED_LIGHT_LEVEL = new JSONPointer("/light/light_level_report/light_level");
-    private static final JSONPointer BRIGHTNESS = new JSONPointer("/dimming/brightness");
-    private static final JSONPointer ONON = new JSONPointer("/on/on");
-    private static final JSONPointer RID = new JSONPointer("/owner/rid");
-    private static JSONPointer MOTION = new JSONPointer("/motion/motion");
-    private static JSONPointer GROUPED_MOTION = new JSONPointer("/motion/motion_report/motion");
+    private static final NodeBinder<Node> BINDER = new NodeBinder<>(Node.class, EventManager.class, EventManager.class, JSONObject.class, Node.class);
+    private static final long TIMER_TICK = 100;
+    private static final int TIMER_SLOTS = 1024;
     private static JSONObject ON = JSON.build("/on/on", true).get();
     private static JSONObject OFF = JSON.build("/on/on", false).get();
     private Hue hue;
     private String start;
     private Path path;
-    private ScheduledExecutorService pool = Executors.newSingleThreadScheduledExecutor();
+    private ScheduledExecutorService pool = ExecutorFactory.getDefault().newScheduler("event-manager", 1);
+    private final boolean actors;
+    private ExecutorService workers;
+    private final List<Mailbox> mailboxes = new CopyOnWriteArrayList<>();
+    private TimerWheel timers;
     private HueManager hueManager;
     private Set<Node> nodeSet = new HashSet<>();
     private MapList<String,Device> deviceMap = new HashMapList<>();
+    private Map<String,Route> routes = new HashMap<>();
+    private EventDecoder decoder = new EventDecoder();
+    private final Metrics metrics = Metrics.getDefault();
+    private final LatencyHistogram eventLatency = metrics.histogram("event.frame");
+    private final LatencyHistogram eventWait = metrics.histogram("event.wait");
+    private final LatencyHistogram motionToPut = metrics.histogram("event.motion.put");
+    private final LongAdder frames = metrics.counter("event.frames");
+    private final LongAdder dropped = metrics.counter("event.dropped");
+    private final LongAdder illegal = metrics.counter("event.illegal");
+    private final Map<String,LatencyHistogram> handlerTime = new ConcurrentHashMap<>();
+    private long frameTime;
+    private EventJournal.Writer journal;
+    private String bridgeAddress;
+    private String appKey;
+    private List<OccupancyListener> occupancyListeners = new CopyOnWriteArrayList<>();
 
     public EventManager(Path path) throws IOException
+    {
+        this(path, false);
+    }
+    /**
+     * Creates EventManager
+     * @param path Configuration file
+     * @param actors If true each device handles its events and timers in own
+     * mailbox on shared worker pool. Otherwise everything is run in single 
+     * thread.
+     * @throws IOException 
+     */
+    public EventManager(Path path, boolean actors) throws IOException
     {
         super(EventManager.class);
         this.path = path;
+        this.actors = actors;
     }
     public void start() throws IOException
     {
-        this.hue = new Hue("testApp", pool);
-        hue.readAllResources();
+        init(new Hue("testApp", pool, bridgeAddress, appKey, KeepAliveTransport::new));
+        info("start reading events");
+        hue.eventData(this::event);
+    }
+    /**
+     * Initializes using given hue without reading events. Frames are then fed
+     * with event method.
+     * @param hue
+     * @throws IOException 
+     * @see EventReplay
+     */
+    void init(Hue hue) throws IOException
+    {
+        init(hue, null);
+    }
+    /**
+     * Initializes using given hue and timer clock. If clock is not null 
+     * timers are not ticked periodically but by calling tick.
+     * @param hue
+     * @param clock Nano time source or null for system time.
+     * @throws IOException 
+     * @see EventReplay
+     */
+    void init(Hue hue, LongSupplier clock) throws IOException
+    {
+        if (actors)
+        {
+            workers = ExecutorFactory.getDefault().newExecutor("device", Runtime.getRuntime().availableProcessors());
+            config("running devices in mailboxes");
+        }
+        if (clock != null)
+        {
+            this.timers = new TimerWheel(null, clock, TIMER_TICK, MILLISECONDS, TIMER_SLOTS);
+        }
+        else
+        {
+            this.timers = new TimerWheel(pool, TIMER_TICK, MILLISECONDS, TIMER_SLOTS);
+        }
+        this.hue = hue;
+        JSONArray resources = hue.readAllResources();
+        if (journal != null)
+        {
+            journal.append(EventJournal.RESOURCES, System.currentTimeMillis(), resources.toString());
+        }
         loadConfig();
         for (Node node : nodeSet)
         {
             node.postInit();
         }
+        buildRoutes();
         pool.scheduleWithFixedDelay(this::updateLights, 1, 5, TimeUnit.MINUTES);
-        info("start reading events");
-        hue.events(this::event);
     }
-    private void event(JSONObject ev)
+    /**
+     * Returns hue or null if not started.
+     * @return 
+     */
+    Hue getHue()
+    {
+        return hue;
+    }
+    /**
+     * Expires timers up to current clock time.
+     * @see #init(org.vesalainen.home.hue.Hue, java.util.function.LongSupplier) 
+     */
+    void tick()
+    {
+        timers.tick();
+    }
+    /**
+     * Stops timers and threads. Hue is not closed.
+     */
+    public void stop()
+    {
+        if (timers != null)
+        {
+            timers.stop();
+        }
+        pool.shutdownNow();
+        if (workers != null)
+        {
+            workers.shutdownNow();
+        }
+    }
+    /**
+     * Sets bridge address and key. Must be called before start. Default is to
+     * search bridge with SSDP and use stored key.
+     * @param address host or host:port
+     * @param appKey Application key or null
+     */
+    public void setBridge(String address, String appKey)
+    {
+        this.bridgeAddress = address;
+        this.appKey = appKey;
+    }
+    /**
+     * Records resources and all event stream frames to journal. Must be 
+     * called before start. Journal is not closed by EventManager.
+     * @param journal 
+     */
+    public void setJournal(EventJournal.Writer journal)
+    {
+        this.journal = journal;
+    }
+    /**
+     * Returns frame handling latency. Time spent in queue is not included.
+     * @return 
+     */
+    public LatencyHistogram getEventLatency()
+    {
+        return eventLatency;
+    }
+    /**
+     * Waits until frames fed before this call are handled. In actor mode 
+     * waits also until device mailboxes are empty.
+     * @throws InterruptedException 
+     */
+    void sync() throws InterruptedException
+    {
+        barrier(pool);
+        boolean idle = !actors;
+        while (!idle)
+        {
+            for (Mailbox mailbox : mailboxes)
+            {
+                barrier(mailbox);
+            }
+            barrier(pool);
+            idle = true;
+            for (Mailbox mailbox : mailboxes)
+            {
+                if (mailbox.size() > 0)
+                {
+                    idle = false;
+                }
+            }
+        }
+    }
+    private void barrier(Executor executor) throws InterruptedException
     {
-        pool.execute(()->handleEvent(ev));
+        CompletableFuture<Void> future = new CompletableFuture<>();
+        executor.execute(()->future.complete(null));
+        try
+        {
+            future.get();
+        }
+        catch (ExecutionException ex)
+        {
+            throw new IllegalStateException(ex);
+        }
     }
-    private void handleEvent(JSONObject ev)
+    /**
+     * Adds listener for room occupancy changes. Listener is called in motion
+     * handling thread.
+     * @param listener 
+     */
+    public void addOccupancyListener(OccupancyListener listener)
     {
-        JSONArray ja = ev.getJSONArray("data");
-        for (Object o : ja)
+        occupancyListeners.add(listener);
+    }
+    public void removeOccupancyListener(OccupancyListener listener)
+    {
+        occupancyListeners.remove(listener);
+    }
+    /**
+     * Returns true if any motion sensor is on.
+     * @return 
+     */
+    public boolean isOccupied()
+    {
+        return hueManager != null && hueManager.motions != null && hueManager.motions.occupancy() > 0;
+    }
+    void event(String data)
+    {
+        if (journal != null)
         {
             try
             {
-                JSONObject jo = (JSONObject) o;
-                //logEvent(jo);
-                Resource res = hue.getResource((String) RID.queryFrom(o));
-                if (res != null)
+                journal.append(data);
+            }
+            catch (IOException ex)
+            {
+                log(SEVERE, ex, "journal append");
+            }
+        }
+        long received = System.nanoTime();
+        if (actors)
+        {
+            handleEvent(data, received);
+        }
+        else
+        {
+            pool.execute(()->handleEvent(data, received));
+        }
+    }
+    private void handleEvent(String data, long received)
+    {
+        long start = System.nanoTime();
+        eventWait.record(start - received);
+        frames.increment();
+        frameTime = received;
+        try
+        {
+            decoder.decode(data, this::handleEvent);
+        }
+        catch (IllegalArgumentException ex)
+        {
+            illegal.increment();
+            log(SEVERE, ex, "illegal event: %s", data);
+        }
+        eventLatency.record(System.nanoTime() - start);
+    }
+    private void handleEvent(HueEvent ev)
+    {
+        long start = System.nanoTime();
+        try
+        {
+            hue.getStateCache().update(ev);
+            String rid = ev.getOwnerRid();
+            String type = ev.getType();
+            if (rid != null && type != null)
+            {
+                Route route = routes.get(rid);
+                if (route != null)
                 {
-                    String type = jo.getString("type");
-                    //info("vvvvvvvvvvvvvvvvvv EVENT vvvvvvvvvvvvvvvvvvvvvvvvvvvvvvvvvvv");
-                    hueManager.event(res, type, jo);
-                    //info("^^^^^^^^^^^^^^^^^^ EVENT ^^^^^^^^^^^^^^^^^^^^^^^^^^^^^^^^^^^");
+                    route.event(ev, frameTime);
+                    handlerTime(type).record(System.nanoTime() - start);
                 }
+                else
+                {
+                    dropped.increment();
+                }
+            }
+        }
+        catch (Exception ex)
+        {
+            log(SEVERE, ex, "event: %s", ev);
+        }
+    }
+    private LatencyHistogram handlerTime(String type)
+    {
+        LatencyHistogram histogram = handlerTime.get(type);
+        if (histogram == null)
+        {
+            histogram = metrics.histogram("event.handler."+type);
+            handlerTime.put(type, histogram);
+        }
+        return histogram;
+    }
+    /**
+     * Resolves owner rids of configured devices and motion sensors. Events 
+     * for other rids are dropped.
+     */
+    private void buildRoutes()
+    {
+        Map<String,Route> map = new HashMap<>();
+        Map<String,List<Device>> devices = new HashMap<>();
+        for (Map.Entry<String,List<Device>> entry : deviceMap.entrySet())
+        {
+            for (Resource res : resolve(entry.getKey()))
+            {
+                devices.computeIfAbsent(res.getId(), (k)->new ArrayList<>()).addAll(entry.getValue());
+                map.computeIfAbsent(res.getId(), (k)->new Route(res));
             }
-            catch (JSONPointerException ex)
+        }
+        if (hueManager != null && hueManager.motions != null)
+        {
+            for (Motion motion : hueManager.motions.motions)
             {
-                //log(SEVERE, ex, "event: %s", ja);
+                for (Resource res : resolve(motion.name))
+                {
+                    map.computeIfAbsent(res.getId(), (k)->new Route(res)).motion = motion;
+                }
             }
-            catch (Exception ex)
+        }
+        devices.forEach((rid, list)->map.get(rid).devices = list.toArray(new Device[list.size()]));
+        routes = map;
+        config("%d routes", routes.size());
+    }
+    private List<Resource> resolve(String name)
+    {
+        List<Resource> list = new ArrayList<>();
+        for (Resource res : hue.getResources(name))
+        {
+            if (name.equals(res.getName()))
             {
-                log(SEVERE, ex, "event: %s", ja);
+                list.add(res);
             }
         }
+        return list;
     }
     private void updateLights()
     {
+        config("bridge queue %s", hue.getUpdateQueue());
+        metrics.log();
         for (Light light : hueManager.lights.lights)
         {
-            light.updateLight(false);
+            light.execute(()->light.updateLight(Priority.LOW));
         }
     }
     private boolean addNode(String name, Object json)
@@ -209,29 +493,23 @@ public class EventManager extends JavaLogging
                 break;
         }
     }
-    private boolean hasMotion(JSONObject jo)
+    /**
+     * Returns mailbox in actor mode. Otherwise returns executor which runs 
+     * the task immediately because everything is already in pool thread.
+     * @param name
+     * @return 
+     */
+    private Executor newMailbox(String name)
     {
-        String type = jo.getString("type");
-        switch (type)
+        if (actors)
         {
-            case "motion":
-            case "grouped_motion":
-                return true;
-            default:
-                return false;
+            Mailbox mailbox = new Mailbox(name, workers);
+            mailboxes.add(mailbox);
+            return mailbox;
         }
-    }
-    private boolean getMotion(JSONObject jo)
-    {
-        String type = jo.getString("type");
-        switch (type)
+        else
         {
-            case "motion":
-                return (boolean) MOTION.queryFrom(jo);
-            case "grouped_motion":
-                return (boolean) GROUPED_MOTION.queryFrom(jo);
-            default:
-                throw new IllegalArgumentException(type+" not motion");
+            return Runnable::run;
         }
     }
     private int getMirek()
@@ -307,106 +585,29 @@ public class EventManager extends JavaLogging
         }
         final boolean populate(String name, Object json)
         {
-            String pck = EventManager.class.getName();
-            try
+            if (json instanceof JSONObject)
             {
-                if (json instanceof JSONObject)
-                {
-                    String s = pck+"$"+name.substring(0, 1).toUpperCase()+name.substring(1);
-                    Class<?> cls = Class.forName(s);
-                    Constructor<?> cons = cls.getDeclaredConstructor(EventManager.class, JSONObject.class, Node.class);
-                    Node node = (Node) cons.newInstance(EventManager.this, json, this);
-                    nodeSet.add(node);
-                    JSON.walk(json, node::populate);
-                    node.init();
-                    try
-                    {
-                        fieldAdd(this, node);
-                    }
-                    catch (NoSuchFieldException ex)
-                    {
-                        try
-                        {
-                            fieldSet(this, name, node);
-                        }
-                        catch (NoSuchFieldException e)
-                        {
-                            if (!assign(name, node))
-                            {
-                                throw new IllegalArgumentException(name+" not assigned");
-                            }
-                        }
-                    }
-                }
-                else
+                Node node = BINDER.create(name, EventManager.this, json, this);
+                nodeSet.add(node);
+                JSON.walk(json, node::populate);
+                node.init();
+                if (!BINDER.add(this, node) && !BINDER.set(this, name, node) && !assign(name, node))
                 {
-                    if (!assign(name, json))
-                    {
-                        try
-                        {
-                            fieldSet(this, name, json);
-                        }
-                        catch (NoSuchFieldException ex1)
-                        {
-                            throw new RuntimeException(ex1);
-                        }
-                    }
+                    throw new IllegalArgumentException(name+" not assigned");
                 }
             }
-            catch (ClassNotFoundException | NoSuchMethodException | SecurityException | InstantiationException | IllegalAccessException | IllegalArgumentException | InvocationTargetException ex)
+            else
             {
-                throw new RuntimeException(ex);
+                if (!assign(name, json) && !BINDER.set(this, name, json))
+                {
+                    throw new IllegalArgumentException(name+" not found");
+                }
             }
             return true;
         }
         protected void init(){}
         protected void postInit(){}
         protected boolean assign(String name, Object value){return false;}
-
-        private void fieldSet(Node node, String name, Object value) throws NoSuchFieldException
-        {
-            Class<? extends Node> cls = node.getClass();
-            while (cls != null)
-            {
-                try
-                {
-                    Field field = cls.getDeclaredField(name);
-                    field.set(node, ConvertUtility.convert(field.getType(), value));
-                    return;
-                }
-                catch (NoSuchFieldException | SecurityException | IllegalArgumentException | IllegalAccessException ex)
-                {
-                }
-                cls = (Class<? extends Node>) cls.getSuperclass();
-            }
-            throw new NoSuchFieldException(name+" not found");
-        }
-        private void fieldAdd(Node node, Node value) throws NoSuchFieldException
-        {
-            Class<? extends Node> nodeCls = node.getClass();
-            while (nodeCls != null)
-            {
-                Class<?> valueCls = value.getClass();
-                while (valueCls != null)
-                {
-                    String name = valueCls.getSimpleName();
-                    name = name.toLowerCase();
-                    try
-                    {
-                        Field field = nodeCls.getDeclaredField(name+"s");
-                        List<Node> list = (List) field.get(this);
-                        list.add(value);
-                        return;
-                    }
-                    catch (NoSuchFieldException | SecurityException | IllegalArgumentException | IllegalAccessException ex)
-                    {
-                    }
-                    valueCls = (Class<?>) valueCls.getSuperclass();
-                }
-                nodeCls = (Class<? extends Node>) nodeCls.getSuperclass();
-            }
-            throw new NoSuchFieldException(value+" not found");
-        }
         
     }
     private class HueManager extends Node
@@ -417,33 +618,6 @@ public class EventManager extends JavaLogging
         {
             super(json, parent);
         }
-
-        private void event(Resource res, String type, JSONObject jo)
-        {
-            switch (type)
-            {
-                case "scene":
-                    break;
-                case "smart_scene":
-                    break;
-                case "temperature":
-                    break;
-                case "grouped_light":
-                case "light":
-                case "grouped_light_level":
-                case "light_level":
-                case "button":
-                case "relative_rotary":
-                    lights.event(res, type, jo);
-                    break;
-                case "motion":
-                case "grouped_motion":
-                    motions.event(res, type, jo);
-                    break;
-                default:
-                    break;
-            }
-        }
         
     }
     private class Lights extends Node
@@ -453,7 +627,7 @@ public class EventManager extends JavaLogging
         protected Level level;
         protected Temperature temperature;
         protected EnergyPrice energyPrice;
-        private Light lastOn;
+        private volatile Light lastOn;
         private MDNS mdns;
         
         public Lights(JSONObject json, Node parent)
@@ -489,25 +663,6 @@ public class EventManager extends JavaLogging
             }
         }
 
-        private void event(Resource res, String type, JSONObject jo)
-        {
-            String name = res.getName();
-            switch (type)
-            {
-                case "grouped_light":
-                case "light":
-                case "grouped_light_level":
-                case "light_level":
-                case "button":
-                case "relative_rotary":
-                    for (Device device : deviceMap.get(name))
-                    {
-                        device.event(res, type, jo);
-                    }
-                    break;
-            }
-        }        
-
         private void handleMDns(Message message)
         {
             if (message.isAuthoritative() && !message.isQuery())
@@ -528,6 +683,55 @@ public class EventManager extends JavaLogging
             }
         }
     }
+    /**
+     * Event handlers of one owner rid.
+     */
+    private class Route
+    {
+        private final Resource resource;
+        private Device[] devices = new Device[0];
+        private Motion motion;
+
+        public Route(Resource resource)
+        {
+            this.resource = resource;
+        }
+
+        private void event(HueEvent ev, long received)
+        {
+            String type = ev.getType();
+            switch (type)
+            {
+                case "grouped_light":
+                case "light":
+                case "grouped_light_level":
+                case "light_level":
+                case "button":
+                case "relative_rotary":
+                    for (Device device : devices)
+                    {
+                        HueEvent e = actors ? ev.copy() : ev;
+                        device.execute(()->device.event(resource, type, e));
+                    }
+                    break;
+                case "motion":
+                case "grouped_motion":
+                    if (motion != null)
+                    {
+                        Motions motions = hueManager.motions;
+                        boolean act = ev.isMotion();
+                        if (ev.hasMotion())
+                        {
+                            motions.execute(()->motions.event(motion, act, received));
+                        }
+                    }
+                    break;
+                default:
+                    break;
+            }
+        }
+        
+    }
     private class Circadian extends Node
     {
         protected List<Point> points = new ArrayList<>();
@@ -619,7 +823,13 @@ public class EventManager extends JavaLogging
     {
         protected Enter enter;
         protected List<Motion> motions = new ArrayList<>();
-        private Map<String,Motion> motionMap = new HashMap<>();
+        private Set<Exit> armed = new HashSet<>();
+        /**
+         * Changed only in motions mailbox (single pool thread in non-actor 
+         * mode) so ++/-- is safe. Volatile for isOccupied readers.
+         */
+        private volatile int occupancy;
+        private Executor mailbox;
         public Motions(JSONObject json, Node parent)
         {
             super(json, parent);
@@ -629,68 +839,104 @@ public class EventManager extends JavaLogging
         protected void init()
         {
             super.init();
+            mailbox = newMailbox("motions");
             HueManager mgr = (HueManager) parent;
             mgr.motions = this;
-            for (Motion motion : motions)
-            {
-                motionMap.put(motion.name, motion);
-            }
         }
 
-        private void event(Resource res, String type, JSONObject jo)
-        {
-            String name = res.getName();
-            boolean act = getMotion(jo);
-            Motion motion = motionMap.get(name);
-            if (motion != null)
-            {
-                int onCount = onCount();
-                cancelExists();
-                motion.on(act);
-                info("motion %s %s %d", name, act, onCount);
-                if (act)
+        private void event(Motion motion, boolean act, long received)
+        {
+            int onCount = occupancy;
+            cancelExits();
+            motion.on(act);
+            info("motion %s %s %d", motion.name, act, onCount);
+            if (act)
+            {
+                if (onCount == 0)
                 {
-                    if (onCount == 0)
+                    enter.event(act, received);
+                }
+                motion.event(act, received);
+            }
+            else
+            {
+                if (onCount == 1)
+                {
+                    if (!motion.exit(act))
                     {
-                        enter.event(act);
+                        motion.event(act, received);
                     }
-                    motion.event(act);
                 }
                 else
                 {
-                    if (onCount == 1)
-                    {
-                        if (!motion.exit(act))
-                        {
-                            motion.event(act);
-                        }
-                    }
-                    else
-                    {
-                        motion.event(act);
-                    }
+                    motion.event(act, received);
                 }
             }
         }
 
-        private int onCount()
+        private void execute(Runnable task)
+        {
+            mailbox.execute(task);
+        }
+
+        private int occupancy()
         {
-            int cnt = 0;
-            for (Motion m : motions)
+            return occupancy;
+        }
+        /**
+         * Maintains on count. Called when motion state actually changes.
+         * @param motion
+         * @param on 
+         */
+        private void changed(Motion motion, boolean on)
+        {
+            if (on)
+            {
+                occupancy++;
+                if (occupancy == 1)
+                {
+                    fireOccupancy(true, motion.name);
+                }
+            }
+            else
             {
-                if (m.on)
+                occupancy--;
+                if (occupancy == 0)
                 {
-                    cnt++;
+                    fireOccupancy(false, motion.name);
                 }
             }
-            return cnt;
         }
 
-        private void cancelExists()
+        private void fireOccupancy(boolean occupied, String sensor)
         {
-            for (Motion motion : motionMap.values())
+            for (OccupancyListener listener : occupancyListeners)
             {
-                motion.cancelExit();
+                try
+                {
+                    listener.occupancy(occupied, sensor);
+                }
+                catch (RuntimeException ex)
+                {
+                    log(SEVERE, ex, "occupancy listener %s", listener);
+                }
+            }
+        }
+
+        private void armed(Exit exit)
+        {
+            armed.add(exit);
+        }
+
+        private void cancelExits()
+        {
+            if (!armed.isEmpty())
+            {
+                for (Exit exit : armed)
+                {
+                    exit.cancelExit();
+                }
+                armed.clear();
             }
         }
         
@@ -703,12 +949,12 @@ public class EventManager extends JavaLogging
             super(json, parent);
         }
 
-        private void event(boolean act)
+        private void event(boolean act, long received)
         {
             info("enter");
             for (Action action : actions)
             {
-                action.event(act);
+                action.post(act, received);
             }
         }
         
@@ -723,11 +969,11 @@ public class EventManager extends JavaLogging
             super(json, parent);
         }
 
-        private void event(boolean act)
+        private void event(boolean act, long received)
         {
             for (Action action : actions)
             {
-                action.event(act);
+                action.post(act, received);
             }
         }
 
@@ -753,14 +999,10 @@ public class EventManager extends JavaLogging
 
         private void on(boolean act)
         {
-            this.on = act;
-        }
-
-        private void cancelExit()
-        {
-            if (exit != null)
+            if (this.on != act)
             {
-                exit.cancelExit();
+                this.on = act;
+                getParent(Motions.class).changed(this, act);
             }
         }
         
@@ -775,9 +1017,10 @@ public class EventManager extends JavaLogging
 
         private void event(boolean act)
         {
+            getParent(Motions.class).armed(this);
             for (Action action : actions)
             {
-                action.event(act);
+                action.post(act);
             }
         }
 
@@ -785,7 +1028,7 @@ public class EventManager extends JavaLogging
         {
             for (Action action : actions)
             {
-                action.cancel();
+                action.postCancel();
             }
         }
         
@@ -797,6 +1040,8 @@ public class EventManager extends JavaLogging
         protected boolean on;
         protected boolean setOn;
         private Map<String,Lever> leverMap = new HashMap<>();
+        private Executor mailbox;
+        private long cause;
         public Device(JSONObject json, Node parent)
         {
             super(json, parent);
@@ -807,16 +1052,15 @@ public class EventManager extends JavaLogging
             super(name);
         }
 
-        protected void event(Resource res, String type, JSONObject jo)
+        protected void event(Resource res, String type, HueEvent ev)
         {
             switch (type)
             {
                 case "light":
                 case "grouped_light":
-                    Boolean b = (Boolean) JSON.get(jo, "/on/on");
-                    if (b != null)
+                    if (ev.hasOn())
                     {
-                        setOn(b);
+                        setOn(ev.isOn());
                     }
                     break;
             }
@@ -826,7 +1070,12 @@ public class EventManager extends JavaLogging
         {
             if (!on)
             {
-                hue.update(updOn, ON);
+                long c = cause;
+                CompletableFuture<Void> future = hue.updateAsync(updOn, ON, Priority.HIGH);
+                if (c != 0)
+                {
+                    future.thenRun(()->motionToPut.record(System.nanoTime() - c));
+                }
             }
             else
             {
@@ -852,6 +1101,7 @@ public class EventManager extends JavaLogging
         protected void init()
         {
             super.init();
+            mailbox = newMailbox(name);
             updOn = hue.getResource(name, "/on/on:true");
             Boolean bb = (Boolean) hue.getValue(name, "/on/on:true");
             if (bb != null)
@@ -864,6 +1114,40 @@ public class EventManager extends JavaLogging
         {
             on = b;
         }
+        /**
+         * Runs task in this devices mailbox. In single thread mode task is run
+         * immediately.
+         * @param task 
+         */
+        protected void execute(Runnable task)
+        {
+            mailbox.execute(task);
+        }
+        /**
+         * Runs task after current task.
+         * @param task 
+         */
+        protected void later(Runnable task)
+        {
+            if (actors)
+            {
+                mailbox.execute(task);
+            }
+            else
+            {
+                pool.execute(task);
+            }
+        }
+        /**
+         * Runs task in this devices mailbox after delay.
+         * @param task
+         * @param delay Milliseconds
+         * @return 
+         */
+        protected Timeout schedule(Runnable task, long delay)
+        {
+            return timers.schedule(task, actors ? mailbox : pool, delay, MILLISECONDS);
+        }
         protected Lever getLever(String name)
         {
             Lever lever = leverMap.get(name);
@@ -908,24 +1192,24 @@ public class EventManager extends JavaLogging
             super(name);
         }
 
-        protected void updateLight(boolean force)
+        protected void updateLight(Priority priority)
         {
             int trg = target();
             config("UPD %s off=%d trg=%d", name, offLevel, trg);
             if (!check.isDone(DEEDS.SET_OFF) || offLevel < trg)
             {
-                updateBrightness(brightness());
+                updateBrightness(brightness(), priority);
             }
             else
             {
                 fine("%s brightness set to 0 because light not needed", name);
-                updateBrightness(0);
+                updateBrightness(0, priority);
             }
             check.done(DEEDS.SET_BRIGHTNESS);
             int mir = getMirek();
             if (mir != mirek)
             {
-                hue.update(updTemperature, "/color_temperature/mirek:"+mir);
+                hue.update(updTemperature, priority, "/color_temperature/mirek:"+mir);
             }
             else
             {
@@ -1020,42 +1304,34 @@ public class EventManager extends JavaLogging
         {
             info("dim %s %f", name, value);
             dim = value/100;
-            updateLight(true);
+            updateLight(Priority.HIGH);
         }
 
         @Override
-        protected void event(Resource res, String type, JSONObject jo)
+        protected void event(Resource res, String type, HueEvent ev)
         {
             switch (type)
             {
                 case "light":
-                    Integer m = (Integer) JSON.get(jo, "/color_temperature/mirek");
-                    if (m != null)
+                    if (ev.hasMirek())
                     {
-                        mirek = m;
+                        mirek = ev.getMirek();
                         fine("%s mirek=%d", name, mirek);
                     }
-                    BigDecimal x = (BigDecimal) JSON.get(jo, "/color/xy/x");
-                    if (x != null)
-                    {
-                        colorX = x.doubleValue();
-                        fine("%s color-x=%f", name, x);
-                    }
-                    BigDecimal y = (BigDecimal) JSON.get(jo, "/color/xy/x");
-                    if (y != null)
+                    if (ev.hasColor())
                     {
-                        colorY = y.doubleValue();
-                        fine("%s color-y=%f", name, y);
+                        colorX = ev.getColorX();
+                        colorY = ev.getColorY();
+                        fine("%s color=%f, %f", name, colorX, colorY);
                     }
                     break;
                 case "grouped_light":
-                    Boolean b = (Boolean) JSON.get(jo, "/on/on");
-                    if (b != null)
+                    if (ev.hasOn())
                     {
-                        setOn(b);
+                        setOn(ev.isOn());
                         for (Action action : actions)
                         {
-                            action.event(on);
+                            action.post(on);
                         }
                         if (on)
                         {
@@ -1063,20 +1339,18 @@ public class EventManager extends JavaLogging
                             info("last on %s", name);
                         }
                     }
-                    BigDecimal bd = (BigDecimal) JSON.get(jo, "/dimming/brightness");
-                    if (bd != null)
+                    if (ev.hasBrightness())
                     {
                         check.done(DEEDS.GOT_BRIGHTNESS);
-                        setBrightness(bd.doubleValue());
+                        setBrightness(ev.getBrightness());
                     }
                     break;
                 case "grouped_light_level":
-                    Integer ii = (Integer) JSON.get(jo, "/light/light_level_report/light_level");
-                    updateLevel(ii);
-                    break;
                 case "light_level":
-                    ii = (Integer) JSON.get(jo, "/light/light_level");
-                    updateLevel(ii);
+                    if (ev.hasLightLevel())
+                    {
+                        updateLevel(ev.getLightLevel());
+                    }
                     break;
             }
         }
@@ -1113,7 +1387,7 @@ public class EventManager extends JavaLogging
                 }
                 else
                 {
-                    pool.execute(()->updateLight(false));
+                    later(()->updateLight(Priority.NORMAL));
                 }
             }
         }
@@ -1128,17 +1402,16 @@ public class EventManager extends JavaLogging
                         (onLevel > trg && brightness > min))
                 {
                     fineAdj.adjust(onLevel, trg);
-                    updateLight(true);
+                    updateLight(Priority.NORMAL);
                     config("FINE %s trg=%d on=%d %f -> %f", name, trg, onLevel, bef, fineAdj.getAdj());
                 }
             }
         }
 
-        private void updateLevel(Integer level)
+        private void updateLevel(int lv)
         {
-            if (level != null && check.isDone(DEEDS.SET_ON, DEEDS.GOT_BRIGHTNESS))
+            if (check.isDone(DEEDS.SET_ON, DEEDS.GOT_BRIGHTNESS))
             {
-                int lv = level;
                 if (on)
                 {
                     check.done(DEEDS.GOT_ON_LEVEL);
@@ -1156,7 +1429,7 @@ public class EventManager extends JavaLogging
                     {
                         offLevel = lv;
                         info("%s offLevel=%d", name, lv);
-                        updateLight(false);
+                        updateLight(Priority.NORMAL);
                     }
                 }
             }
@@ -1168,7 +1441,7 @@ public class EventManager extends JavaLogging
             if (!manual)
             {
                 fine("%s brightness set to 0 because next set off", name);
-                updateBrightness(0);
+                updateBrightness(0, Priority.NORMAL);
                 info("%s set off", name);
                 super.off();
                 check.done(DEEDS.SET_OFF);
@@ -1186,7 +1459,7 @@ public class EventManager extends JavaLogging
             {
                 info("%s set on", name);
                 super.on();
-                updateLight(true);
+                updateLight(Priority.HIGH);
                 check.done(DEEDS.SET_ON);
             }
             else
@@ -1248,12 +1521,12 @@ public class EventManager extends JavaLogging
             return abs(a-b) < 2;
         }
 
-        private void updateBrightness(int br)
+        private void updateBrightness(int br, Priority priority)
         {
             setBrightness = br;
             if (!eq(setBrightness, brightness))
             {
-                hue.update(updBrightness, "/dimming/brightness:"+setBrightness);
+                hue.update(updBrightness, priority, "/dimming/brightness:"+setBrightness);
             }
             else
             {
@@ -1268,11 +1541,68 @@ public class EventManager extends JavaLogging
         protected long delay;
         protected String condition;
         private Lever lever;
-        private ScheduledFuture<?> future;
+        private Timeout future;
         public Action(JSONObject json, Node parent)
         {
             super(json, parent);
         }
+        /**
+         * Runs event in devices mailbox.
+         * @param act
+         * @return 
+         */
+        protected CompletableFuture<Boolean> post(boolean act)
+        {
+            return post(act, 0);
+        }
+        /**
+         * Runs event in devices mailbox.
+         * @param act
+         * @param cause Nano time of causing event or 0. Used for latency 
+         * metrics.
+         * @return 
+         */
+        protected CompletableFuture<Boolean> post(boolean act, long cause)
+        {
+            if (device == null)
+            {
+                return CompletableFuture.completedFuture(event(act));
+            }
+            CompletableFuture<Boolean> future = new CompletableFuture<>();
+            Device dev = device;
+            dev.execute(()->
+            {
+                dev.cause = cause;
+                try
+                {
+                    future.complete(event(act));
+                }
+                catch (RuntimeException ex)
+                {
+                    future.completeExceptionally(ex);
+                    throw ex;
+                }
+                finally
+                {
+                    dev.cause = 0;
+                }
+            });
+            return future;
+        }
+        /**
+         * Runs cancel in devices mailbox.
+         */
+        protected void postCancel()
+        {
+            if (device == null)
+            {
+                cancel();
+            }
+            else
+            {
+                device.execute(this::cancel);
+            }
+        }
         protected boolean event(boolean act)
         {
             if (act)
@@ -1295,7 +1625,7 @@ public class EventManager extends JavaLogging
             }
             else
             {
-                future = pool.schedule(act, delay, MILLISECONDS);
+                future = device.schedule(act, delay);
             }
         }
         protected boolean cancel()
@@ -1303,7 +1633,7 @@ public class EventManager extends JavaLogging
             if (future != null)
             {
                 boolean done = future.isDone();
-                future.cancel(true);
+                future.cancel();
                 future = null;
                 return done;
             }
@@ -1446,7 +1776,7 @@ public class EventManager extends JavaLogging
                 {
                     for (Action action : actions)
                     {
-                        action.event(act);
+                        action.post(act);
                     }
                     on = act;
                 }
@@ -1465,6 +1795,7 @@ public class EventManager extends JavaLogging
         protected double vaporMass;
         protected double vaporizingPower;
         protected double volume;
+        protected String store;
         protected List<Action> actions = new ArrayList<>();
         private Optimizer optimizer;
         public EnergyPrice(JSONObject json, Node parent)
@@ -1476,7 +1807,7 @@ public class EventManager extends JavaLogging
         protected void postInit()
         {
             super.postInit();
-            optimizer = new Optimizer(securityToken, domain, place, maxRH, minRH, inTemp, vaporMass, vaporizingPower, volume);
+            optimizer = new Optimizer(securityToken, domain, place, maxRH, minRH, inTemp, vaporMass, vaporizingPower, volume, store != null ? Paths.get(store) : null);
             optimizer.reStart();
             IndexedData quarts = optimizer.getQuarts();
             long delay = quarts.getMillis(quarts.getIndex()+1) - System.currentTimeMillis() + 1;
@@ -1492,29 +1823,43 @@ public class EventManager extends JavaLogging
                 info("energy %.2f€ %s", 
                         currentPrice, 
                         act);
-                boolean setOff = false;
+                List<CompletableFuture<Boolean>> results = new ArrayList<>();
                 for (Action action : actions)
                 {
-                    boolean r = action.event(act);
-                    if (r != act)
-                    {
-                        fine("humidifier is externally put off");
-                        setOff = true;
-                    }
-                }
-                if (setOff)
-                {
-                    optimizer.commit(false);
-                }
-                else
-                {
-                    optimizer.commit(act);
+                    results.add(action.post(act));
                 }
+                CompletableFuture.allOf(results.toArray(new CompletableFuture[results.size()]))
+                        .thenRun(()->commit(act, results))
+                        .exceptionally((ex)->
+                        {
+                            log(SEVERE, ex, "energy action failed");
+                            return null;
+                        });
             }
             catch (Throwable ex)
             {
                 log(SEVERE, ex, "energy action failed");
             }
         }
+        private void commit(boolean act, List<CompletableFuture<Boolean>> results)
+        {
+            boolean setOff = false;
+            for (CompletableFuture<Boolean> result : results)
+            {
+                if (result.join() != act)
+                {
+                    fine("humidifier is externally put off");
+                    setOff = true;
+                }
+            }
+            if (setOff)
+            {
+                optimizer.commit(false);
+            }
+            else
+            {
+                optimizer.commit(act);
+            }
+        }
     }
 }
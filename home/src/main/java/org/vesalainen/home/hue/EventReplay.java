@@ -0,0 +1,327 @@
+/*
+ * Copyright (C) 2026 Timo Vesalainen <timo.vesalainen@iki.fi>
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.vesalainen.home.hue;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import static java.util.concurrent.TimeUnit.*;
+import java.util.concurrent.atomic.LongAdder;
+import org.json.JSONArray;
+import org.json.JSONObject;
+import org.vesalainen.home.ExecutorFactory;
+import org.vesalainen.util.logging.JavaLogging;
+
+/**
+ * Replays recorded event journal into EventManager against stub bridge. 
+ * Resources are served from the journal and updates are counted but not
+ * sent anywhere.
+ * @author Timo Vesalainen <timo.vesalainen@iki.fi>
+ * @see EventJournal
+ */
+public class EventReplay extends JavaLogging
+{
+    private final Path config;
+    private final Path journal;
+    private final double speed;
+    private final boolean actors;
+    private long frames;
+    private long elapsed;
+    private StubTransport transport;
+    private EventManager manager;
+    private Hue hue;
+    private ScheduledExecutorService scheduler;
+    private final ReplayClock clock = new ReplayClock();
+    /**
+     * Creates EventReplay
+     * @param config EventManager configuration
+     * @param journal Recorded journal
+     * @param speed 1 = real time, 10 = ten times faster, 0 = as fast as 
+     * possible.
+     * @param actors 
+     */
+    public EventReplay(Path config, Path journal, double speed, boolean actors)
+    {
+        super(EventReplay.class);
+        this.config = config;
+        this.journal = journal;
+        this.speed = speed;
+        this.actors = actors;
+    }
+    
+    public void run() throws IOException, InterruptedException
+    {
+        scheduler = ExecutorFactory.getDefault().newScheduler("replay", 1);
+        try (EventJournal.Reader reader = EventJournal.read(journal))
+        {
+            if (!reader.next() || reader.getType() != EventJournal.RESOURCES)
+            {
+                throw new IOException(journal+" doesn't start with resources");
+            }
+            long base = reader.getTime();
+            transport = new StubTransport(new JSONArray(reader.getData()));
+            manager = new EventManager(config, actors);
+            hue = new Hue("replay", scheduler, clock, scheduler, "replay", "replay", (ip, key)->transport);
+            manager.init(hue, clock::nanoTime);
+            info("replaying %s speed %s", journal, speed);
+            long first = -1;
+            long start = System.nanoTime();
+            while (reader.next())
+            {
+                if (reader.getType() != EventJournal.FRAME)
+                {
+                    continue;
+                }
+                if (speed > 0)
+                {
+                    if (first < 0)
+                    {
+                        first = reader.getTime();
+                    }
+                    long due = start + (long) (MILLISECONDS.toNanos(reader.getTime() - first) / speed);
+                    long wait = due - System.nanoTime();
+                    if (wait > 0)
+                    {
+                        NANOSECONDS.sleep(wait);
+                    }
+                }
+                advance(MILLISECONDS.toNanos(reader.getTime() - base));
+                manager.event(reader.getData());
+                frames++;
+            }
+            manager.sync();
+            elapsed = System.nanoTime() - start;
+            drain();
+            info("%s", this);
+        }
+        finally
+        {
+            if (manager != null)
+            {
+                manager.stop();
+            }
+            if (hue != null)
+            {
+                hue.close();
+            }
+            scheduler.shutdownNow();
+        }
+    }
+    /**
+     * Advances clock to recorded time. Frames fed so far are handled before
+     * rate limit timers and device timers due by then are run.
+     * @param time 
+     * @throws InterruptedException 
+     */
+    private void advance(long time) throws InterruptedException
+    {
+        while (clock.runNext(time))
+        {
+            sync();
+        }
+        clock.setTime(time);
+        manager.tick();
+        sync();
+        while (clock.runNext(time))
+        {
+            sync();
+        }
+    }
+    /**
+     * Runs remaining rate limit timers so that all pending updates are sent.
+     * @throws InterruptedException 
+     */
+    private void drain() throws InterruptedException
+    {
+        sync();
+        while (clock.runNext(Long.MAX_VALUE))
+        {
+            sync();
+        }
+    }
+    /**
+     * Waits until event manager and update queue dispatching are idle.
+     * @throws InterruptedException 
+     */
+    private void sync() throws InterruptedException
+    {
+        manager.sync();
+        try
+        {
+            scheduler.submit(()->{}).get();
+        }
+        catch (ExecutionException ex)
+        {
+            throw new IllegalStateException(ex);
+        }
+    }
+    /**
+     * Returns number of replayed frames.
+     * @return 
+     */
+    public long getFrames()
+    {
+        return frames;
+    }
+    /**
+     * Returns replayed frames per second.
+     * @return 
+     */
+    public double getFramesPerSecond()
+    {
+        return elapsed > 0 ? frames * 1e9 / elapsed : 0;
+    }
+    /**
+     * Returns number of update requests sent to stub bridge. Updates are rate
+     * limited by recorded time, so count doesn't depend on replay speed.
+     * @return 
+     */
+    public long getUpdates()
+    {
+        return transport != null ? transport.updates.sum() : 0;
+    }
+    
+    public EventManager getManager()
+    {
+        return manager;
+    }
+
+    @Override
+    public String toString()
+    {
+        return String.format("frames=%d %.0f frames/s updates=%d event latency %s", 
+                frames, 
+                getFramesPerSecond(), 
+                getUpdates(), 
+                manager != null ? manager.getEventLatency() : null);
+    }
+    
+    /**
+     * Recorded time for update queue. Timers are run by replay thread when 
+     * recorded time passes them.
+     */
+    private static class ReplayClock implements UpdateQueue.Clock
+    {
+        private final PriorityQueue<Timer> timers = new PriorityQueue<>();
+        private long time;
+        private long seq;
+
+        @Override
+        public synchronized long nanoTime()
+        {
+            return time;
+        }
+
+        @Override
+        public synchronized void schedule(Runnable task, long delay)
+        {
+            timers.add(new Timer(time+delay, seq++, task));
+        }
+        private synchronized void setTime(long time)
+        {
+            this.time = Math.max(this.time, time);
+        }
+        /**
+         * Runs earliest timer if it is due at limit.
+         * @param limit
+         * @return true if timer was run
+         */
+        private boolean runNext(long limit)
+        {
+            Timer timer;
+            synchronized (this)
+            {
+                timer = timers.peek();
+                if (timer == null || timer.due > limit)
+                {
+                    return false;
+                }
+                timers.poll();
+                time = Math.max(time, timer.due);
+            }
+            timer.task.run();
+            return true;
+        }
+    }
+    private static class Timer implements Comparable<Timer>
+    {
+        private final long due;
+        private final long seq;
+        private final Runnable task;
+
+        public Timer(long due, long seq, Runnable task)
+        {
+            this.due = due;
+            this.seq = seq;
+            this.task = task;
+        }
+
+        @Override
+        public int compareTo(Timer o)
+        {
+            int c = Long.compare(due, o.due);
+            return c != 0 ? c : Long.compare(seq, o.seq);
+        }
+    }
+    private static class StubTransport implements HueTransport
+    {
+        private final JSONObject all;
+        private final Map<String,JSONObject> resources = new HashMap<>();
+        private final LongAdder updates = new LongAdder();
+
+        public StubTransport(JSONArray data)
+        {
+            this.all = new JSONObject().put("data", data).put("errors", new JSONArray());
+            for (int ii=0;ii<data.length();ii++)
+            {
+                JSONObject jo = data.getJSONObject(ii);
+                resources.put(jo.optString("id"), jo);
+            }
+        }
+        
+        
+        @Override
+        public Object request(String method, String path, JSONObject body) throws IOException
+        {
+            JSONObject resp = new JSONObject().put("errors", new JSONArray());
+            switch (method)
+            {
+                case "GET":
+                    if ("/clip/v2/resource".equals(path))
+                    {
+                        return all;
+                    }
+                    JSONArray data = new JSONArray();
+                    JSONObject res = resources.get(path.substring(path.lastIndexOf('/')+1));
+                    if (res != null)
+                    {
+                        data.put(res);
+                    }
+                    return resp.put("data", data);
+                case "PUT":
+                    updates.increment();
+                    return resp.put("data", new JSONArray());
+                default:
+                    throw new IOException(method+" not supported");
+            }
+        }
+    }
+}
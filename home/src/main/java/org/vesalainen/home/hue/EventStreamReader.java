@@ -0,0 +1,130 @@
+/*
+ * Copyright (C) 2026 Timo Vesalainen <timo.vesalainen@iki.fi>
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.vesalainen.home.hue;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.Reader;
+import java.util.function.BiConsumer;
+
+/**
+ * Server-sent events parser. Handles id:, data:, retry: and comment lines 
+ * and dispatches an event at each blank line. Last event id is kept over 
+ * successive streams, so it can be sent as Last-Event-ID when reconnecting.
+ * @author Timo Vesalainen <timo.vesalainen@iki.fi>
+ */
+public class EventStreamReader
+{
+    private String lastEventId;
+    private String idBuffer;
+    private long retry = -1;
+    /**
+     * Reads stream until end of stream.
+     * @param reader
+     * @param consumer Called with event id and data.
+     * @throws IOException 
+     */
+    public void read(Reader reader, BiConsumer<String,String> consumer) throws IOException
+    {
+        BufferedReader br = reader instanceof BufferedReader ? (BufferedReader) reader : new BufferedReader(reader);
+        StringBuilder data = new StringBuilder();
+        boolean hasData = false;
+        idBuffer = lastEventId;
+        String line = br.readLine();
+        while (line != null)
+        {
+            if (line.isEmpty())
+            {
+                lastEventId = idBuffer;
+                if (hasData)
+                {
+                    consumer.accept(lastEventId, data.toString());
+                }
+                data.setLength(0);
+                hasData = false;
+            }
+            else
+            {
+                if (line.charAt(0) != ':')
+                {
+                    String field;
+                    String value;
+                    int idx = line.indexOf(':');
+                    if (idx != -1)
+                    {
+                        field = line.substring(0, idx);
+                        int start = idx+1;
+                        if (start < line.length() && line.charAt(start) == ' ')
+                        {
+                            start++;
+                        }
+                        value = line.substring(start);
+                    }
+                    else
+                    {
+                        field = line;
+                        value = "";
+                    }
+                    switch (field)
+                    {
+                        case "data":
+                            if (hasData)
+                            {
+                                data.append('\n');
+                            }
+                            data.append(value);
+                            hasData = true;
+                            break;
+                        case "id":
+                            if (value.indexOf('\0') == -1)
+                            {
+                                idBuffer = value;
+                            }
+                            break;
+                        case "retry":
+                            try
+                            {
+                                retry = Long.parseLong(value);
+                            }
+                            catch (NumberFormatException ex)
+                            {
+                            }
+                            break;
+                    }
+                }
+            }
+            line = br.readLine();
+        }
+    }
+    /**
+     * Returns id of last complete event or null
+     * @return 
+     */
+    public String getLastEventId()
+    {
+        return lastEventId;
+    }
+    /**
+     * Returns reconnection time in milliseconds requested by server or -1
+     * @return 
+     */
+    public long getRetry()
+    {
+        return retry;
+    }
+    
+}
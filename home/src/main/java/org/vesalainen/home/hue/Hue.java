@@ -22,36 +22,39 @@ import java.io.InputStream;
 import java.io.InputStreamReader;
 import java.io.OutputStream;
 import java.io.PrintWriter;
-import java.net.DatagramPacket;
-import java.net.InetAddress;
-import java.net.MulticastSocket;
+import java.net.SocketTimeoutException;
 import java.net.URL;
-import java.security.KeyManagementException;
-import java.security.NoSuchAlgorithmException;
-import java.security.cert.X509Certificate;
-import java.util.ArrayList;
+import static java.nio.charset.StandardCharsets.UTF_8;
 import java.util.Collection;
+import java.util.Collections;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
 import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
 import java.util.concurrent.ScheduledExecutorService;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.BiFunction;
 import java.util.function.Consumer;
 import java.util.function.Function;
+import java.util.function.LongSupplier;
 import java.util.function.Predicate;
 import java.util.logging.Level;
+import static java.util.logging.Level.SEVERE;
+import static java.util.logging.Level.WARNING;
 import java.util.prefs.Preferences;
-import javax.net.ssl.HostnameVerifier;
 import javax.net.ssl.HttpsURLConnection;
-import javax.net.ssl.SSLContext;
-import javax.net.ssl.SSLSession;
-import javax.net.ssl.SSLSocketFactory;
-import javax.net.ssl.TrustManager;
-import javax.net.ssl.X509TrustManager;
 import org.json.JSONArray;
+import org.json.JSONException;
 import org.json.JSONObject;
 import org.json.JSONTokener;
+import org.vesalainen.home.ExecutorFactory;
+import org.vesalainen.home.LatencyHistogram;
+import org.vesalainen.home.Metrics;
 import org.vesalainen.home.hue.Resources.Resource;
 import org.vesalainen.util.logging.JavaLogging;
 
@@ -62,90 +65,105 @@ import org.vesalainen.util.logging.JavaLogging;
 public class Hue extends JavaLogging
 {
 
-    private static final TrustManager[] trustAllCerts;
-    private static final HostnameVerifier allHostsValid;
-    private static final SSLSocketFactory sslSocketFactory;
-
-    static
-    {
-        try
-        {
-            // Create a trust manager that does not validate certificate chains
-            trustAllCerts = new TrustManager[]
-            {
-                new X509TrustManager()
-                {
-                    public java.security.cert.X509Certificate[] getAcceptedIssuers()
-                    {
-                        return null;
-                    }
-
-                    public void checkClientTrusted(X509Certificate[] certs, String authType)
-                    {
-                    }
-
-                    public void checkServerTrusted(X509Certificate[] certs, String authType)
-                    {
-                    }
-                }
-            };
-
-            // Install the all-trusting trust manager
-            SSLContext sc = SSLContext.getInstance("SSL");
-            sc.init(null, trustAllCerts, new java.security.SecureRandom());
-            sslSocketFactory = sc.getSocketFactory();
-
-            // Create all-trusting host name verifier
-            allHostsValid = new HostnameVerifier()
-            {
-                public boolean verify(String hostname, SSLSession session)
-                {
-                    return true;
-                }
-            };
-
-        }
-        catch (NoSuchAlgorithmException | KeyManagementException ex)
-        {
-            throw new RuntimeException(ex);
-        }
-    }
     private final String appName;
     private String bridgeIp;
     private String appKey;
     private Resources resources;
+    private static final int IO_THREADS = 4;
+    private static final long MIN_BACKOFF = 1000;
+    private static final long MAX_BACKOFF = 60000;
+    /**
+     * Bridge sends keep-alive comments while stream is idle. Stream which 
+     * stays silent longer than this is assumed half-open.
+     */
+    private static final int EVENT_READ_TIMEOUT = 180000;
     private final ScheduledExecutorService pool;
+    private final ExecutorService io;
+    private final HueTransport transport;
+    private final UpdateQueue queue;
+    private final LatencyHistogram requestLatency = Metrics.getDefault().histogram("hue.request");
+    private final LatencyHistogram putLatency = Metrics.getDefault().histogram("hue.put");
+    private final LongAdder reconnects = Metrics.getDefault().counter("hue.reconnects");
+    private final LongAdder putErrors = Metrics.getDefault().counter("hue.put.errors");
+    private final LongSupplier queueSize;
 
     public Hue(String appName, ScheduledExecutorService pool) throws IOException
+    {
+        this(appName, pool, KeepAliveTransport::new);
+    }
+    public Hue(String appName, ScheduledExecutorService pool, BiFunction<String,String,HueTransport> transportFactory) throws IOException
+    {
+        this(appName, pool, null, null, transportFactory);
+    }
+    /**
+     * Creates Hue
+     * @param appName
+     * @param pool
+     * @param bridgeIp Bridge address or null to search it with SSDP
+     * @param appKey Application key or null to use stored key or authenticate.
+     * @param transportFactory
+     * @throws IOException 
+     */
+    public Hue(String appName, ScheduledExecutorService pool, String bridgeIp, String appKey, BiFunction<String,String,HueTransport> transportFactory) throws IOException
+    {
+        this(appName, pool, UpdateQueue.clock(pool), ExecutorFactory.getDefault().newExecutor("hue-io", IO_THREADS), bridgeIp, appKey, transportFactory);
+    }
+    /**
+     * Creates Hue with given update queue clock and io executor.
+     * @param appName
+     * @param pool
+     * @param clock Times update rate limits. 
+     * @param io Runs update requests. Shut down in close.
+     * @param bridgeIp Bridge address or null to search it with SSDP
+     * @param appKey Application key or null to use stored key or authenticate.
+     * @param transportFactory
+     * @throws IOException 
+     * @see EventReplay
+     */
+    Hue(String appName, ScheduledExecutorService pool, UpdateQueue.Clock clock, ExecutorService io, String bridgeIp, String appKey, BiFunction<String,String,HueTransport> transportFactory) throws IOException
     {
         super(Hue.class);
         this.appName = appName;
         this.pool = pool;
-        Preferences prefs = Preferences.userNodeForPackage(Hue.class);
-        bridgeIp = searchBridge();
-        config("hue-bridge-ip %s", bridgeIp);
-        appKey = prefs.get("hue-bridge-key", null);
+        this.io = io;
+        this.queue = new UpdateQueue(pool, clock, this::send);
+        this.bridgeIp = bridgeIp != null ? bridgeIp : searchBridge();
+        config("hue-bridge-ip %s", this.bridgeIp);
         if (appKey == null)
         {
-            appKey = authenticate();
-            prefs.put("hue-bridge-key", appKey);
+            Preferences prefs = Preferences.userNodeForPackage(Hue.class);
+            appKey = prefs.get("hue-bridge-key", null);
+            if (appKey == null)
+            {
+                appKey = authenticate();
+                prefs.put("hue-bridge-key", appKey);
+            }
         }
+        this.appKey = appKey;
         config("hue-bridge-key %s", appKey);
+        transport = transportFactory.apply(this.bridgeIp, appKey);
+        queueSize = queue::size;
+        Metrics.getDefault().gauge("hue.queue", queueSize);
     }
 
-    public void readAllResources() throws IOException
+    /**
+     * Reads all resources from bridge
+     * @return Resource data as read from bridge.
+     * @throws IOException 
+     */
+    public JSONArray readAllResources() throws IOException
     {
         JSONArray jsonArray = getAllResources();
         JSON.dump(jsonArray);
         this.resources = new Resources(jsonArray);
+        return jsonArray;
     }
 
     public JSONArray getAllResources()
     {
         try
         {
-            HttpsURLConnection urlConnection = getAuthenticatedConnection("/clip/v2/resource");
-            JSONObject res = (JSONObject) fetch(urlConnection);
+            JSONObject res = (JSONObject) request("GET", "/clip/v2/resource", null);
             return res.getJSONArray("data");
         }
         catch (IOException ex)
@@ -154,6 +172,14 @@ public class Hue extends JavaLogging
         }
     }
 
+    /**
+     * Returns value from resource snapshot. Snapshot is read in 
+     * readAllResources and kept fresh by events. Bridge is accessed only when
+     * value is missing from snapshot.
+     * @param name
+     * @param key
+     * @return 
+     */
     public Object getValue(String name, String key)
     {
         String k = key;
@@ -162,12 +188,21 @@ public class Hue extends JavaLogging
         {
             k = k.substring(0, idx);
         }
-        for (Resource r : getResource(name, key))
+        Collection<Resource> list = getResource(name, key);
+        for (Resource r : list)
+        {
+            Object jo = r.getValue(k);
+            if (jo != null)
+            {
+                return jo;
+            }
+        }
+        for (Resource r : list)
         {
             try
             {
-                HttpsURLConnection urlConnection = getAuthenticatedConnection("/clip/v2/resource/"+r.getType()+"/"+r.getId());
-                JSONObject res = (JSONObject) fetch(urlConnection);
+                fine("fetching %s %s", r, k);
+                JSONObject res = (JSONObject) request("GET", "/clip/v2/resource/"+r.getType()+"/"+r.getId(), null);
                 JSONArray ja = res.getJSONArray("data");
                 for (Object o : ja)
                 {
@@ -202,6 +237,10 @@ public class Hue extends JavaLogging
     {
         return resources.getResource(id);
     }
+    public ResourceStateCache getStateCache()
+    {
+        return resources.getStateCache();
+    }
     public void update(String name, Collection<String> upd)
     {
         update(name, JSON.build(upd));
@@ -210,30 +249,98 @@ public class Hue extends JavaLogging
     {
         update(name, JSON.build(upd));
     }
+    /**
+     * Reads event stream forever. Dropped stream is reconnected with 
+     * exponential backoff and Last-Event-ID so that events are not missed.
+     * Returns only if current thread is interrupted.
+     * @param consumer
+     * @throws IOException 
+     */
     public void events(Consumer<JSONObject> consumer) throws IOException
     {
-        HttpsURLConnection urlConnection = getAuthenticatedConnection("/eventstream/clip/v2");
-        urlConnection.setRequestProperty("Accept", "text/event-stream");
-        urlConnection.connect();
-        int responseCode = urlConnection.getResponseCode();
-        try (InputStream is = urlConnection.getInputStream();
-                InputStreamReader isr = new InputStreamReader(is);
-                BufferedReader br = new BufferedReader(isr);)
+        eventData((data)->dispatch(data, consumer));
+    }
+    /**
+     * Like events but passes raw data frames to consumer without parsing. 
+     * Consumer is responsible to update state cache.
+     * @param consumer
+     * @throws IOException 
+     * @see EventDecoder
+     * @see ResourceStateCache#update(org.vesalainen.home.hue.HueEvent) 
+     */
+    public void eventData(Consumer<String> consumer) throws IOException
+    {
+        EventStreamReader reader = new EventStreamReader();
+        long backoff = MIN_BACKOFF;
+        while (!Thread.currentThread().isInterrupted())
         {
-            while (true)
+            try
             {
-                String id = br.readLine();
-                if (id.startsWith("data:"))
+                HttpsURLConnection urlConnection = getAuthenticatedConnection("/eventstream/clip/v2");
+                urlConnection.setRequestProperty("Accept", "text/event-stream");
+                urlConnection.setReadTimeout(EVENT_READ_TIMEOUT);
+                String lastEventId = reader.getLastEventId();
+                if (lastEventId != null)
                 {
-                    JSONTokener jsonTokener = new JSONTokener(id.substring(5));
-                    JSONArray nextValue = (JSONArray) jsonTokener.nextValue();
-                    nextValue.forEach((o) ->
-                    {
-                        JSONObject jo = (JSONObject) o;
-                        consumer.accept(jo);
-                    });
+                    urlConnection.setRequestProperty("Last-Event-ID", lastEventId);
                 }
+                urlConnection.connect();
+                int responseCode = urlConnection.getResponseCode();
+                if (responseCode != 200)
+                {
+                    throw new IOException("event stream rc = "+responseCode);
+                }
+                info("event stream connected last id=%s", lastEventId);
+                backoff = MIN_BACKOFF;
+                try (InputStream is = urlConnection.getInputStream();
+                        InputStreamReader isr = new InputStreamReader(is, UTF_8);
+                        BufferedReader br = new BufferedReader(isr);)
+                {
+                    reader.read(br, (id, data)->consumer.accept(data));
+                }
+                warning("event stream closed");
+            }
+            catch (SocketTimeoutException ex)
+            {
+                warning("event stream silent for %d ms", EVENT_READ_TIMEOUT);
+            }
+            catch (IOException ex)
+            {
+                log(WARNING, ex, "event stream failed");
+            }
+            reconnects.increment();
+            if (reader.getRetry() > 0)
+            {
+                backoff = Math.max(backoff, reader.getRetry());
             }
+            try
+            {
+                info("reconnecting event stream in %d ms", backoff);
+                Thread.sleep(backoff);
+            }
+            catch (InterruptedException ex)
+            {
+                return;
+            }
+            backoff = Math.min(2*backoff, MAX_BACKOFF);
+        }
+    }
+    private void dispatch(String data, Consumer<JSONObject> consumer)
+    {
+        try
+        {
+            JSONTokener jsonTokener = new JSONTokener(data);
+            JSONArray nextValue = (JSONArray) jsonTokener.nextValue();
+            nextValue.forEach((o) ->
+            {
+                JSONObject jo = (JSONObject) o;
+                resources.event(jo);
+                consumer.accept(jo);
+            });
+        }
+        catch (JSONException | ClassCastException ex)
+        {
+            log(WARNING, ex, "illegal event %s", data);
         }
     }
 
@@ -287,18 +394,6 @@ public class Hue extends JavaLogging
         }
     }
 
-    private HttpsURLConnection getPutConnection(String path, String type, String id, JSONObject upd) throws IOException
-    {
-        HttpsURLConnection urlConnection = getAuthenticatedConnection(path+"/"+type+"/"+id);
-        urlConnection.setDoOutput(true);
-        urlConnection.setRequestMethod("PUT");
-        urlConnection.setRequestProperty("Content-Type", "application/json");
-        OutputStream os = urlConnection.getOutputStream();
-        PrintWriter pw = new PrintWriter(os);
-        upd.write(pw);
-        pw.flush();
-        return urlConnection;
-    }
     private HttpsURLConnection getAuthenticatedConnection(String path) throws IOException
     {
         HttpsURLConnection urlConnection = getHttpsUrlConnection(path);
@@ -308,12 +403,7 @@ public class Hue extends JavaLogging
 
     private HttpsURLConnection getHttpsUrlConnection(String path) throws IOException
     {
-        URL url = new URL("https://" + bridgeIp + path);
-        HttpsURLConnection urlConnection = (HttpsURLConnection) url.openConnection();
-        urlConnection.setSSLSocketFactory(sslSocketFactory);
-        urlConnection.setHostnameVerifier(allHostsValid);
-        urlConnection.setRequestProperty("accept", "application/json");
-        return urlConnection;
+        return UrlConnectionTransport.getHttpsUrlConnection(bridgeIp, path);
     }
 
     private String searchBridge() throws IOException
@@ -322,96 +412,101 @@ public class Hue extends JavaLogging
         URL loc = (URL) dev.get("LOCATION");
         return loc.getHost();
     }
-    private Object fetch(HttpsURLConnection con) throws IOException
+    private Object request(String method, String path, JSONObject body) throws IOException
     {
-        con.connect();
-        int rc = con.getResponseCode();
-        if (rc >= 200 && rc < 300)
+        long start = System.nanoTime();
+        try
         {
-            try (InputStream is = con.getInputStream())
-            {
-                JSONTokener jsonTokener = new JSONTokener(is);
-                Object obj = jsonTokener.nextValue();
-                if (rc == 200)
-                {
-                    return obj;
-                }
-                else
-                {
-                    String err = (String) JSON.get(obj, "errors:0:description");
-                    throw new IOException(err);
-                }
-            }
+            return transport.request(method, path, body);
         }
-        else
+        finally
         {
-            try (InputStream is = con.getErrorStream();
-                    InputStreamReader isr = new InputStreamReader(is);
-                    BufferedReader br = new BufferedReader(isr))
-            {
-                String line = br.readLine();
-                while (line != null)
-                {
-                    System.err.println(line);
-                    line = br.readLine();
-                }
-            }
-            throw new IOException("rc = "+rc);
+            requestLatency.record(System.nanoTime() - start);
         }
     }
-
-    public void update(String name, JSONObject upd)
+    /**
+     * Stops io threads, closes transport connections and removes queue gauge.
+     * Pool given in constructor is not shut down.
+     */
+    public void close()
     {
-        Set<String> keySet = JSON.keySet(upd);
-        update(name, (ks)->upd, (s)->s.containsAll(keySet));
+        Metrics.getDefault().removeGauge("hue.queue", queueSize);
+        io.shutdownNow();
+        transport.close();
     }
-    public Collection<Resource> getResource(String name, String... upd)
+    /**
+     * Returns latency histogram of update requests. Time spent waiting for
+     * io thread is not included. Histogram is hue.put in default metrics and 
+     * is kept over restarts.
+     * @return 
+     */
+    public LatencyHistogram getLatency()
     {
-        return getResource(name, JSON.build(upd));
+        return putLatency;
     }
-    public Collection<Resource> getResource(String name, JSONObject upd)
+
+    public void update(String name, JSONObject upd)
     {
-        List<Resource> list = new ArrayList<>();
-        Set<String> updSet = JSON.keySet(upd);
+        info("update %s", name);
+        Set<Resource> candidates = resources.getResourcesWithKeys(JSON.keySet(upd));
         for (Resource res : getResources(name))
         {
-            getResources(res, updSet, list);
-        }
-        return list;
-    }
-    private void getResources(Resource res, Set<String> updSet, List<Resource> list)
-    {
-        if (res != null)
-        {
-            Set<String> keySet = res.keySet();
-            if (keySet.containsAll(updSet))
+            if (candidates.contains(res))
             {
-                list.add(res);
+                update(res, upd);
+                return;
             }
-            else
+            for (Resource r : res.services())
             {
-                for (Resource r : res.services())
+                if (candidates.contains(r))
                 {
-                    getResources(r, updSet, list);
+                    update(r, upd);
+                    return;
                 }
-                if (list.isEmpty())
+            }
+            for (Resource r : res.childrens())
+            {
+                if (candidates.contains(r))
                 {
-                    for (Resource r : res.childrens())
-                    {
-                        getResources(r, updSet, list);
-                    }
+                    update(r, upd);
+                    return;
                 }
             }
         }
     }
+    public Collection<Resource> getResource(String name, String... upd)
+    {
+        return getResource(name, JSON.build(upd));
+    }
+    public Collection<Resource> getResource(String name, JSONObject upd)
+    {
+        return resources.getResources(name, JSON.keySet(upd));
+    }
     public void update(String name, Function<Set<String>,JSONObject> upd, Predicate<Set<String>> predicate)
+    {
+        update(name, upd, predicate, Collections.emptySet());
+    }
+    /**
+     * Updates first resource named name or its service or child which has 
+     * all keys and matches predicate. Candidates are first narrowed with 
+     * key index so that predicate is tested only for resources having keys.
+     * @param name
+     * @param upd
+     * @param predicate
+     * @param keys Key paths matching resource must have. If empty predicate
+     * is tested for all.
+     */
+    public void update(String name, Function<Set<String>,JSONObject> upd, Predicate<Set<String>> predicate, Collection<String> keys)
     {
         info("update %s", name);
+        Set<Resource> candidates = keys.isEmpty() ? null : resources.getResourcesWithKeys(keys);
+        if (candidates != null && candidates.isEmpty())
+        {
+            return;
+        }
         for (Resource res : getResources(name))
         {
-            Set<String> ks1 = res.keySet();
-            fine("trying.. %s", ks1);
-            if (predicate.test(ks1))
+            if (candidate(res, candidates) && predicate.test(res.keySet()))
             {
                 JSONObject d = upd.apply(res.valueSet());
                 update(res, d);
@@ -419,40 +514,71 @@ public class Hue extends JavaLogging
             }
             for (Resource r : res.services())
             {
-                Set<String> ks2 = r.keySet();
-                fine("trying.. %s", ks2);
-                if (r != null && predicate.test(ks2))
+                if (candidate(r, candidates))
                 {
-                    JSONObject d = upd.apply(ks2);
-                    update(r, d);
-                    return;
+                    Set<String> ks2 = r.keySet();
+                    fine("trying.. %s", ks2);
+                    if (predicate.test(ks2))
+                    {
+                        JSONObject d = upd.apply(ks2);
+                        update(r, d);
+                        return;
+                    }
                 }
             }
             for (Resource r : res.childrens())
             {
-                Set<String> ks2 = r.keySet();
-                fine("trying.. %s", ks2);
-                if (r != null && predicate.test(ks2))
+                if (candidate(r, candidates))
                 {
-                    JSONObject d = upd.apply(ks2);
-                    update(r, d);
-                    return;
+                    Set<String> ks2 = r.keySet();
+                    fine("trying.. %s", ks2);
+                    if (predicate.test(ks2))
+                    {
+                        JSONObject d = upd.apply(ks2);
+                        update(r, d);
+                        return;
+                    }
                 }
             }
         }
-        return;
+    }
+    private boolean candidate(Resource res, Set<Resource> candidates)
+    {
+        return res != null && (candidates == null || candidates.contains(res));
     }
 
     public void update(Collection<Resource> res, String... upd)
     {
         update(res, JSON.build(upd));
     }
+    public void update(Collection<Resource> res, Priority priority, String... upd)
+    {
+        update(res, JSON.build(upd), priority);
+    }
     public void update(Collection<Resource> res, JSONObject u)
     {
+        update(res, u, Priority.NORMAL);
+    }
+    public void update(Collection<Resource> res, JSONObject u, Priority priority)
+    {
+        for (Resource r : res)
+        {
+            updateAsync(r, u, priority);
+        }
+    }
+    public CompletableFuture<Void> updateAsync(Collection<Resource> res, JSONObject u)
+    {
+        return updateAsync(res, u, Priority.NORMAL);
+    }
+    public CompletableFuture<Void> updateAsync(Collection<Resource> res, JSONObject u, Priority priority)
+    {
+        CompletableFuture<?>[] futures = new CompletableFuture<?>[res.size()];
+        int ii = 0;
         for (Resource r : res)
         {
-            update(r, u);
+            futures[ii++] = updateAsync(r, u, priority);
         }
+        return CompletableFuture.allOf(futures);
     }
     public void update(Resource res, Collection<String>upd)
     {
@@ -460,20 +586,57 @@ public class Hue extends JavaLogging
     }
     public void update(Resource res, JSONObject upd)
     {
-        pool.schedule(()->upd(res, upd), res.getDelay(), TimeUnit.MILLISECONDS);
+        updateAsync(res, upd);
     }
-    private void upd(Resource res, JSONObject upd)
+    public CompletableFuture<Object> updateAsync(Resource res, JSONObject upd)
     {
-        try
-        {
-            info("update %s %s", res, upd);
-            HttpsURLConnection putConnection = getPutConnection("/clip/v2/resource", res.getType(), res.getId(), upd);
-            fetch(putConnection);
-        }
-        catch (IOException ex)
+        return updateAsync(res, upd, Priority.NORMAL);
+    }
+    /**
+     * Updates resource without blocking. Caller thread is only used to 
+     * queue the update. Updates are rate limited bridge-wide and pending 
+     * updates to the same resource are merged. Request is sent with 
+     * HueTransport.requestAsync. Java 8 has no non-blocking http client, so
+     * unless transport overrides it request blocks one of io pool threads
+     * until bridge responds. Updates behind slow requests wait for a free io 
+     * thread but caller is never blocked.
+     * @param res
+     * @param upd
+     * @param priority
+     * @return 
+     */
+    public CompletableFuture<Object> updateAsync(Resource res, JSONObject upd, Priority priority)
+    {
+        return queue.update(res, upd, priority);
+    }
+    /**
+     * Returns update queue for metrics
+     * @return 
+     */
+    public UpdateQueue getUpdateQueue()
+    {
+        return queue;
+    }
+    private CompletableFuture<Object> send(Resource res, JSONObject upd)
+    {
+        info("update %s %s", res, upd);
+        // time is measured from io task start, so waiting for io thread is not included
+        AtomicLong start = new AtomicLong(System.nanoTime());
+        Executor executor = (task)->io.execute(()->
         {
-            throw new RuntimeException(ex);
-        }
+            start.set(System.nanoTime());
+            task.run();
+        });
+        return transport.requestAsync("PUT", "/clip/v2/resource/"+res.getType()+"/"+res.getId(), upd, executor)
+                .whenComplete((r, ex)->
+                {
+                    putLatency.record(System.nanoTime() - start.get());
+                    if (ex != null)
+                    {
+                        putErrors.increment();
+                        log(SEVERE, ex, "update %s %s failed", res, upd);
+                    }
+                });
     }
 
 }
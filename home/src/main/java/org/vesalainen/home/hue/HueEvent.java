@@ -0,0 +1,244 @@
+/*
+ * Copyright (C) 2026 Timo Vesalainen <timo.vesalainen@iki.fi>
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.vesalainen.home.hue;
+
+import org.json.JSONObject;
+
+/**
+ * Mutable event holding the fields event handlers need. Instances are reused 
+ * by EventDecoder, so they must not be stored.
+ * @author Timo Vesalainen <timo.vesalainen@iki.fi>
+ */
+public class HueEvent
+{
+    String type;
+    String id;
+    String ownerRid;
+    boolean hasOn;
+    boolean on;
+    double brightness;
+    boolean hasMirek;
+    int mirek;
+    double colorX;
+    double colorY;
+    boolean hasLightLevel;
+    int lightLevel;
+    boolean hasMotion;
+    boolean motion;
+    // source data item span, used to merge all fields lazily
+    String data;
+    int start;
+    int end;
+
+    public HueEvent()
+    {
+        clear();
+    }
+    
+    final void clear()
+    {
+        type = null;
+        id = null;
+        ownerRid = null;
+        hasOn = false;
+        on = false;
+        brightness = Double.NaN;
+        hasMirek = false;
+        mirek = 0;
+        colorX = Double.NaN;
+        colorY = Double.NaN;
+        hasLightLevel = false;
+        lightLevel = 0;
+        hasMotion = false;
+        motion = false;
+        data = null;
+        start = 0;
+        end = 0;
+    }
+
+    /**
+     * Returns copy of this event. Use when event is passed to another thread.
+     * @return 
+     */
+    public HueEvent copy()
+    {
+        HueEvent ev = new HueEvent();
+        ev.type = type;
+        ev.id = id;
+        ev.ownerRid = ownerRid;
+        ev.hasOn = hasOn;
+        ev.on = on;
+        ev.brightness = brightness;
+        ev.hasMirek = hasMirek;
+        ev.mirek = mirek;
+        ev.colorX = colorX;
+        ev.colorY = colorY;
+        ev.hasLightLevel = hasLightLevel;
+        ev.lightLevel = lightLevel;
+        ev.hasMotion = hasMotion;
+        ev.motion = motion;
+        ev.data = data;
+        ev.start = start;
+        ev.end = end;
+        return ev;
+    }
+
+    public String getType()
+    {
+        return type;
+    }
+
+    public String getId()
+    {
+        return id;
+    }
+
+    public String getOwnerRid()
+    {
+        return ownerRid;
+    }
+
+    public boolean hasOn()
+    {
+        return hasOn;
+    }
+
+    public boolean isOn()
+    {
+        return on;
+    }
+
+    public boolean hasBrightness()
+    {
+        return !Double.isNaN(brightness);
+    }
+    
+    public double getBrightness()
+    {
+        return brightness;
+    }
+
+    public boolean hasMirek()
+    {
+        return hasMirek;
+    }
+
+    public int getMirek()
+    {
+        return mirek;
+    }
+
+    public boolean hasColor()
+    {
+        return !Double.isNaN(colorX) && !Double.isNaN(colorY);
+    }
+    
+    public double getColorX()
+    {
+        return colorX;
+    }
+
+    public double getColorY()
+    {
+        return colorY;
+    }
+    /**
+     * Returns true if event has light level or grouped light level report.
+     * @return 
+     */
+    public boolean hasLightLevel()
+    {
+        return hasLightLevel;
+    }
+
+    public int getLightLevel()
+    {
+        return lightLevel;
+    }
+    /**
+     * Returns true if event has motion or grouped motion report.
+     * @return 
+     */
+    public boolean hasMotion()
+    {
+        return hasMotion;
+    }
+
+    public boolean isMotion()
+    {
+        return motion;
+    }
+    /**
+     * Returns decoded fields as json delta using resource paths.
+     * @return 
+     */
+    public JSONObject toJSON()
+    {
+        JSON.Builder builder = JSON.build("/id", id);
+        if (type != null)
+        {
+            builder.set("/type", type);
+        }
+        if (hasOn)
+        {
+            builder.set("/on/on", on);
+        }
+        if (hasBrightness())
+        {
+            builder.set("/dimming/brightness", brightness);
+        }
+        if (hasMirek)
+        {
+            builder.set("/color_temperature/mirek", mirek);
+        }
+        if (hasColor())
+        {
+            builder.set("/color/xy/x", colorX);
+            builder.set("/color/xy/y", colorY);
+        }
+        if (hasLightLevel)
+        {
+            if ("grouped_light_level".equals(type))
+            {
+                builder.set("/light/light_level_report/light_level", lightLevel);
+            }
+            else
+            {
+                builder.set("/light/light_level", lightLevel);
+            }
+        }
+        if (hasMotion)
+        {
+            if ("grouped_motion".equals(type))
+            {
+                builder.set("/motion/motion_report/motion", motion);
+            }
+            else
+            {
+                builder.set("/motion/motion", motion);
+            }
+        }
+        return builder.get();
+    }
+
+    @Override
+    public String toString()
+    {
+        return "HueEvent{" + toJSON() + " owner=" + ownerRid + '}';
+    }
+    
+}
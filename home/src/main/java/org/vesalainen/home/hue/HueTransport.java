@@ -0,0 +1,70 @@
+/*
+ * Copyright (C) 2026 Timo Vesalainen <timo.vesalainen@iki.fi>
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.vesalainen.home.hue;
+
+import java.io.IOException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import org.json.JSONObject;
+
+/**
+ * Request/response channel to the bridge. Implementations are expected to be
+ * thread-safe.
+ * @author Timo Vesalainen <timo.vesalainen@iki.fi>
+ */
+public interface HueTransport
+{
+    /**
+     * Sends request and returns parsed JSON response.
+     * @param method GET, PUT, POST, ...
+     * @param path For example /clip/v2/resource
+     * @param body Request body or null
+     * @return
+     * @throws IOException 
+     */
+    Object request(String method, String path, JSONObject body) throws IOException;
+    /**
+     * Sends request without blocking the caller. Java 8 has no non-blocking
+     * http client, so default implementation runs blocking request in 
+     * executor. Non-blocking transports can override this.
+     * @param method
+     * @param path
+     * @param body
+     * @param executor
+     * @return 
+     */
+    default CompletableFuture<Object> requestAsync(String method, String path, JSONObject body, Executor executor)
+    {
+        CompletableFuture<Object> future = new CompletableFuture<>();
+        executor.execute(()->
+        {
+            try
+            {
+                future.complete(request(method, path, body));
+            }
+            catch (Throwable ex)
+            {
+                future.completeExceptionally(ex);
+            }
+        });
+        return future;
+    }
+    
+    default void close()
+    {
+    }
+}
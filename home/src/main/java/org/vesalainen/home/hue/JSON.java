@@ -16,16 +16,18 @@
  */
 package org.vesalainen.home.hue;
 
+import java.io.UnsupportedEncodingException;
+import java.net.URLDecoder;
 import java.util.Arrays;
 import java.util.Collection;
 import java.util.HashSet;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 import java.util.function.BiPredicate;
 import org.json.JSONArray;
 import org.json.JSONException;
 import org.json.JSONObject;
-import org.json.JSONPointer;
-import org.json.JSONPointerException;
 
 /**
  *
@@ -34,6 +36,8 @@ import org.json.JSONPointerException;
 public class JSON
 {
     public static final String DELIM = "/";
+    private static final int MAX_POINTERS = 4096;
+    private static final ConcurrentMap<String,String[]> POINTERS = new ConcurrentHashMap<>();
     
     public static void walk(Object obj, BiPredicate<String,Object> act)
     {
@@ -72,17 +76,202 @@ public class JSON
             }
         }
     }
+    /**
+     * Returns value at json pointer key or null if not found. Compiled
+     * pointers are cached and missing keys don't throw exceptions.
+     * @param ob
+     * @param key Json pointer like /on/on
+     * @return 
+     */
     public static Object get(Object ob, String key)
     {
-        JSONPointer jp = new JSONPointer(key);
-        try
+        String[] tokens = compile(key);
+        Object target = ob;
+        for (String token : tokens)
         {
-            return jp.queryFrom(ob);
+            if (target instanceof JSONObject)
+            {
+                target = ((JSONObject)target).opt(token);
+            }
+            else
+            {
+                if (target instanceof JSONArray)
+                {
+                    JSONArray ja = (JSONArray) target;
+                    int idx = index(token);
+                    if (idx < 0 || idx >= ja.length())
+                    {
+                        return null;
+                    }
+                    target = ja.opt(idx);
+                }
+                else
+                {
+                    return null;
+                }
+            }
+        }
+        return target;
+    }
+    /**
+     * Returns int value at key or def if not found or not a number.
+     * @param ob
+     * @param key
+     * @param def
+     * @return 
+     */
+    public static int getInt(Object ob, String key, int def)
+    {
+        Object o = get(ob, key);
+        return o instanceof Number ? ((Number)o).intValue() : def;
+    }
+    /**
+     * Returns double value at key or def if not found or not a number.
+     * @param ob
+     * @param key
+     * @param def
+     * @return 
+     */
+    public static double getDouble(Object ob, String key, double def)
+    {
+        Object o = get(ob, key);
+        return o instanceof Number ? ((Number)o).doubleValue() : def;
+    }
+    /**
+     * Returns boolean value at key or def if not found or not a boolean.
+     * @param ob
+     * @param key
+     * @param def
+     * @return 
+     */
+    public static boolean getBoolean(Object ob, String key, boolean def)
+    {
+        Object o = get(ob, key);
+        return o instanceof Boolean ? (Boolean)o : def;
+    }
+    static String[] compile(String key)
+    {
+        String[] tokens = POINTERS.get(key);
+        if (tokens == null)
+        {
+            tokens = parse(key);
+            if (POINTERS.size() < MAX_POINTERS)
+            {
+                POINTERS.putIfAbsent(key, tokens);
+            }
+        }
+        return tokens;
+    }
+    private static String[] parse(String key)
+    {
+        String ptr = key;
+        if (ptr.startsWith("#"))
+        {
+            try
+            {
+                ptr = URLDecoder.decode(ptr.substring(1), "UTF-8");
+            }
+            catch (UnsupportedEncodingException ex)
+            {
+                throw new RuntimeException(ex);
+            }
+        }
+        if (ptr.isEmpty())
+        {
+            return new String[0];
         }
-        catch (JSONPointerException ex)
+        if (!ptr.startsWith(DELIM))
         {
-            return null;
+            throw new IllegalArgumentException("json pointer "+key+" doesn't start with /");
+        }
+        String[] tokens = ptr.substring(1).split(DELIM, -1);
+        for (int ii=0;ii<tokens.length;ii++)
+        {
+            tokens[ii] = tokens[ii].replace("~1", "/").replace("~0", "~");
+        }
+        return tokens;
+    }
+    private static int index(String token)
+    {
+        int len = token.length();
+        if (len == 0 || len > 9)
+        {
+            return -1;
+        }
+        int idx = 0;
+        for (int ii=0;ii<len;ii++)
+        {
+            char cc = token.charAt(ii);
+            if (cc < '0' || cc > '9')
+            {
+                return -1;
+            }
+            idx = 10*idx + cc - '0';
+        }
+        return idx;
+    }
+    /**
+     * Deep merges src into target. Objects are merged recursively and other
+     * values overwrite existing ones. Objects of src are never shared with 
+     * target.
+     * @param target
+     * @param src
+     * @return target
+     */
+    public static JSONObject merge(JSONObject target, JSONObject src)
+    {
+        for (String key : src.keySet())
+        {
+            Object value = src.get(key);
+            if (value instanceof JSONObject)
+            {
+                JSONObject jo = target.optJSONObject(key);
+                if (jo == null)
+                {
+                    jo = new JSONObject();
+                    target.put(key, jo);
+                }
+                merge(jo, (JSONObject) value);
+            }
+            else
+            {
+                target.put(key, value);
+            }
+        }
+        return target;
+    }
+    /**
+     * Returns new object which is base deep merged with delta. Base is not 
+     * modified and unchanged objects are shared between base and result.
+     * @param base
+     * @param delta
+     * @return 
+     */
+    public static JSONObject mergeCopy(JSONObject base, JSONObject delta)
+    {
+        JSONObject copy = new JSONObject();
+        for (String key : base.keySet())
+        {
+            copy.put(key, base.get(key));
+        }
+        for (String key : delta.keySet())
+        {
+            Object value = delta.get(key);
+            if (value instanceof JSONObject)
+            {
+                JSONObject jo = copy.optJSONObject(key);
+                if (jo == null)
+                {
+                    jo = new JSONObject();
+                }
+                copy.put(key, mergeCopy(jo, (JSONObject) value));
+            }
+            else
+            {
+                copy.put(key, value);
+            }
         }
+        return copy;
     }
     public static Set<String> keySet(Object ob)
     {
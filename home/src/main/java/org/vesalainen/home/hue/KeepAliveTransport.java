@@ -0,0 +1,394 @@
+/*
+ * Copyright (C) 2026 Timo Vesalainen <timo.vesalainen@iki.fi>
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.vesalainen.home.hue;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.SocketException;
+import java.net.SocketTimeoutException;
+import static java.nio.charset.StandardCharsets.US_ASCII;
+import static java.nio.charset.StandardCharsets.UTF_8;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.Semaphore;
+import javax.net.ssl.SSLException;
+import javax.net.ssl.SSLSocket;
+import org.json.JSONException;
+import org.json.JSONObject;
+import org.json.JSONTokener;
+import org.vesalainen.util.logging.JavaLogging;
+
+/**
+ * HTTP/1.1 transport keeping a small pool of persistent TLS connections to
+ * the bridge. At most poolSize requests are in flight at the same time.
+ * @author Timo Vesalainen <timo.vesalainen@iki.fi>
+ */
+public class KeepAliveTransport extends JavaLogging implements HueTransport
+{
+    private static final int PORT = 443;
+    private static final int POOL_SIZE = 4;
+    private static final long IDLE_TIMEOUT = 30000;
+    private static final int SO_TIMEOUT = 10000;
+    private final String host;
+    private final String address;
+    private final int port;
+    private final String appKey;
+    private final BlockingQueue<Connection> idle = new LinkedBlockingQueue<>();
+    private final Semaphore permits;
+
+    public KeepAliveTransport(String host, String appKey)
+    {
+        this(host, appKey, POOL_SIZE);
+    }
+    public KeepAliveTransport(String host, String appKey, int poolSize)
+    {
+        super(KeepAliveTransport.class);
+        this.host = host;
+        int idx = host.lastIndexOf(':');
+        if (idx != -1 && host.indexOf(']', idx) == -1)
+        {
+            this.address = host.substring(0, idx);
+            this.port = Integer.parseInt(host.substring(idx+1));
+        }
+        else
+        {
+            this.address = host;
+            this.port = PORT;
+        }
+        this.appKey = appKey;
+        this.permits = new Semaphore(poolSize);
+    }
+
+    @Override
+    public Object request(String method, String path, JSONObject body) throws IOException
+    {
+        byte[] content = body != null ? body.toString().getBytes(UTF_8) : null;
+        Response resp = null;
+        permits.acquireUninterruptibly();
+        try
+        {
+            Connection con = pollIdle();
+            if (con != null)
+            {
+                try
+                {
+                    resp = exchange(con, method, path, content);
+                }
+                catch (StaleConnectionException ex)
+                {
+                    fine("stale connection %s", ex.getMessage());
+                }
+            }
+            if (resp == null)
+            {
+                resp = exchange(new Connection(), method, path, content);
+            }
+        }
+        finally
+        {
+            permits.release();
+        }
+        String str = new String(resp.body, UTF_8);
+        if (resp.rc >= 200 && resp.rc < 300)
+        {
+            if (str.trim().isEmpty())
+            {
+                return new JSONObject();
+            }
+            Object obj;
+            try
+            {
+                JSONTokener jsonTokener = new JSONTokener(str);
+                obj = jsonTokener.nextValue();
+            }
+            catch (JSONException ex)
+            {
+                throw new IOException("rc = "+resp.rc+" illegal body "+str, ex);
+            }
+            if (resp.rc != 200)
+            {
+                Object err = JSON.get(obj, "/errors/0/description");
+                if (err != null)
+                {
+                    throw new IOException(err.toString());
+                }
+            }
+            return obj;
+        }
+        else
+        {
+            throw new IOException("rc = "+resp.rc+" "+str);
+        }
+    }
+
+    @Override
+    public void close()
+    {
+        Connection con = idle.poll();
+        while (con != null)
+        {
+            con.close();
+            con = idle.poll();
+        }
+    }
+    
+    private Connection pollIdle()
+    {
+        long now = System.currentTimeMillis();
+        Connection con = idle.poll();
+        while (con != null && now - con.lastUsed > IDLE_TIMEOUT)
+        {
+            con.close();
+            con = idle.poll();
+        }
+        return con;
+    }
+    private Response exchange(Connection con, String method, String path, byte[] content) throws IOException
+    {
+        try
+        {
+            Response resp = con.exchange(method, path, content);
+            if (resp.keepAlive)
+            {
+                con.lastUsed = System.currentTimeMillis();
+                idle.offer(con);
+            }
+            else
+            {
+                con.close();
+            }
+            return resp;
+        }
+        catch (IOException ex)
+        {
+            con.close();
+            throw ex;
+        }
+    }
+    /**
+     * Thrown when reused connection fails before any response byte is read.
+     * Bridge has closed the connection so request can be sent again.
+     */
+    private static class StaleConnectionException extends IOException
+    {
+        public StaleConnectionException(String message, Throwable cause)
+        {
+            super(message, cause);
+        }
+    }
+    private static class Response
+    {
+        private int rc;
+        private boolean keepAlive = true;
+        private byte[] body;
+    }
+    private class Connection
+    {
+        private final SSLSocket socket;
+        private final InputStream in;
+        private final OutputStream out;
+        private long lastUsed;
+
+        public Connection() throws IOException
+        {
+            socket = (SSLSocket) UrlConnectionTransport.sslSocketFactory.createSocket(address, port);
+            socket.setSoTimeout(SO_TIMEOUT);
+            socket.setTcpNoDelay(true);
+            socket.startHandshake();
+            in = new BufferedInputStream(socket.getInputStream());
+            out = new BufferedOutputStream(socket.getOutputStream());
+            fine("new connection to %s", host);
+        }
+        
+        private Response exchange(String method, String path, byte[] content) throws IOException
+        {
+            StringBuilder sb = new StringBuilder();
+            sb.append(method).append(' ').append(path).append(" HTTP/1.1\r\n");
+            sb.append("Host: ").append(host).append("\r\n");
+            sb.append("Accept: application/json\r\n");
+            sb.append("hue-application-key: ").append(appKey).append("\r\n");
+            if (content != null)
+            {
+                sb.append("Content-Type: application/json\r\n");
+                sb.append("Content-Length: ").append(content.length).append("\r\n");
+            }
+            sb.append("\r\n");
+            try
+            {
+                out.write(sb.toString().getBytes(US_ASCII));
+                if (content != null)
+                {
+                    out.write(content);
+                }
+                out.flush();
+                in.mark(1);
+                if (in.read() == -1)
+                {
+                    throw new StaleConnectionException("closed by peer", null);
+                }
+                in.reset();
+            }
+            catch (SocketTimeoutException ex)
+            {
+                // request may have been processed
+                throw ex;
+            }
+            catch (SocketException | SSLException ex)
+            {
+                throw new StaleConnectionException(ex.getMessage(), ex);
+            }
+            Response resp = new Response();
+            int length;
+            boolean chunked;
+            do
+            {
+                String status = readLine();
+                String[] split = status.split(" ");
+                if (split.length < 2)
+                {
+                    throw new IOException("illegal status "+status);
+                }
+                resp.rc = Integer.parseInt(split[1]);
+                if (status.startsWith("HTTP/1.0"))
+                {
+                    resp.keepAlive = false;
+                }
+                length = -1;
+                chunked = false;
+                String line = readLine();
+                while (!line.isEmpty())
+                {
+                    int idx = line.indexOf(':');
+                    if (idx != -1)
+                    {
+                        String name = line.substring(0, idx).trim();
+                        String value = line.substring(idx+1).trim();
+                        if ("Content-Length".equalsIgnoreCase(name))
+                        {
+                            length = Integer.parseInt(value);
+                        }
+                        else if ("Transfer-Encoding".equalsIgnoreCase(name))
+                        {
+                            chunked = "chunked".equalsIgnoreCase(value);
+                        }
+                        else if ("Connection".equalsIgnoreCase(name))
+                        {
+                            resp.keepAlive = !"close".equalsIgnoreCase(value);
+                        }
+                    }
+                    line = readLine();
+                }
+            } while (resp.rc >= 100 && resp.rc < 200);    // interim responses have no body
+            ByteArrayOutputStream body = new ByteArrayOutputStream();
+            if (resp.rc == 204 || resp.rc == 304)
+            {
+                // no body regardless of headers
+            }
+            else if (chunked)
+            {
+                int size = Integer.parseInt(chunkSize(readLine()), 16);
+                while (size > 0)
+                {
+                    readFully(body, size);
+                    readLine();
+                    size = Integer.parseInt(chunkSize(readLine()), 16);
+                }
+                String line = readLine();
+                while (!line.isEmpty())
+                {
+                    line = readLine();
+                }
+            }
+            else
+            {
+                if (length >= 0)
+                {
+                    readFully(body, length);
+                }
+                else
+                {
+                    resp.keepAlive = false;
+                    int cc = in.read();
+                    while (cc != -1)
+                    {
+                        body.write(cc);
+                        cc = in.read();
+                    }
+                }
+            }
+            resp.body = body.toByteArray();
+            return resp;
+        }
+        private String chunkSize(String line)
+        {
+            int idx = line.indexOf(';');
+            if (idx != -1)
+            {
+                return line.substring(0, idx).trim();
+            }
+            return line.trim();
+        }
+        private void readFully(ByteArrayOutputStream body, int length) throws IOException
+        {
+            byte[] buf = new byte[Math.min(length, 8192)];
+            int remaining = length;
+            while (remaining > 0)
+            {
+                int rc = in.read(buf, 0, Math.min(remaining, buf.length));
+                if (rc == -1)
+                {
+                    throw new EOFException();
+                }
+                body.write(buf, 0, rc);
+                remaining -= rc;
+            }
+        }
+        private String readLine() throws IOException
+        {
+            StringBuilder sb = new StringBuilder();
+            int cc = in.read();
+            while (cc != '\n')
+            {
+                if (cc == -1)
+                {
+                    throw new EOFException();
+                }
+                if (cc != '\r')
+                {
+                    sb.append((char)cc);
+                }
+                cc = in.read();
+            }
+            return sb.toString();
+        }
+        private void close()
+        {
+            try
+            {
+                socket.close();
+            }
+            catch (IOException ex)
+            {
+            }
+        }
+    }
+}
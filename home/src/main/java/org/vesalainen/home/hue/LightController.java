@@ -17,9 +17,12 @@
 package org.vesalainen.home.hue;
 
 import java.io.IOException;
+import java.net.InetAddress;
 import java.nio.file.Path;
+import java.nio.file.Paths;
 import java.util.logging.Level;
 import java.util.logging.Logger;
+import org.vesalainen.home.Metrics;
 import org.vesalainen.util.LoggingCommandLine;
 import org.vesalainen.util.logging.JavaLogging;
 
@@ -33,6 +36,12 @@ public class LightController extends LoggingCommandLine
     public LightController()
     {
         addArgument(Path.class, "configuration file");
+        addOption("-actors", "run each device in own mailbox", null, Boolean.FALSE);
+        addOption("-journal", "record event stream to journal file", null, "");
+        addOption("-bridge", "bridge address host[:port] instead of SSDP search", null, "");
+        addOption("-key", "bridge application key", null, "");
+        addOption("-metrics", "metrics http port, 0 = disabled", null, 0);
+        addOption("-metricsAddress", "metrics http bind address, default loopback", null, "");
         //addOption("-f", "force port resolv", null, Boolean.FALSE);
         //addOption("-rt", "resolv timeout", null, 2000L);
     }
@@ -43,11 +52,51 @@ public class LightController extends LoggingCommandLine
         lc.command(args);
         JavaLogging log = JavaLogging.getLogger(LightController.class);
         Path configfile = lc.getArgument("configuration file");
+        Boolean actors = lc.getOption("-actors");
+        String journalfile = lc.getOption("-journal");
+        String bridge = lc.getOption("-bridge");
+        String key = lc.getOption("-key");
+        Integer metricsPort = lc.getOption("-metrics");
+        String metricsAddress = lc.getOption("-metricsAddress");
+        EventJournal.Writer journal = null;
+        if (!journalfile.isEmpty())
+        {
+            try
+            {
+                journal = EventJournal.append(Paths.get(journalfile));
+            }
+            catch (IOException ex)
+            {
+                log.log(Level.SEVERE, ex, "journal %s", ex.getMessage());
+                return;
+            }
+        }
+        if (metricsPort != 0)
+        {
+            try
+            {
+                if (metricsAddress.isEmpty())
+                {
+                    Metrics.getDefault().serve(metricsPort);
+                }
+                else
+                {
+                    Metrics.getDefault().serve(InetAddress.getByName(metricsAddress), metricsPort);
+                }
+            }
+            catch (IOException ex)
+            {
+                log.log(Level.SEVERE, ex, "metrics %s", ex.getMessage());
+            }
+        }
         while (true)
         {
+            EventManager em = null;
             try
             {
-                EventManager em = new EventManager(configfile);
+                em = new EventManager(configfile, actors);
+                em.setJournal(journal);
+                em.setBridge(bridge.isEmpty() ? null : bridge, key.isEmpty() ? null : key);
                 em.start();
             }
             catch (Exception ex)
@@ -55,6 +104,18 @@ public class LightController extends LoggingCommandLine
                 ex.printStackTrace();
                 log.log(Level.SEVERE, ex, "command-line %s", ex.getMessage());
             }
+            finally
+            {
+                if (em != null)
+                {
+                    em.stop();
+                    Hue hue = em.getHue();
+                    if (hue != null)
+                    {
+                        hue.close();
+                    }
+                }
+            }
         }
     }
 }
@@ -38,6 +38,7 @@ import java.util.function.Consumer;
 import java.util.function.Predicate;
 import java.util.logging.Level;
 import java.util.logging.Logger;
+import org.vesalainen.home.ExecutorFactory;
 import org.vesalainen.net.dns.Message;
 import org.vesalainen.net.dns.Question;
 import org.vesalainen.net.dns.RCodeException;
@@ -78,7 +79,7 @@ public class MDNS
     }
     public void startListening(Consumer<Message> act)
     {
-        thread = new Thread(()->listenAndWait(act));
+        thread = ExecutorFactory.getDefault().newThread("mdns", ()->listenAndWait(act));
         thread.start();
     }
     public void stopListening()
@@ -0,0 +1,259 @@
+/*
+ * Copyright (C) 2026 Timo Vesalainen <timo.vesalainen@iki.fi>
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.vesalainen.home.hue;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.Constructor;
+import java.lang.reflect.Field;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import org.vesalainen.util.ConvertUtility;
+
+/**
+ * Binds configuration elements to node classes. Element foo creates instance
+ * of nested class Foo. Child node is added to list field named by lower case
+ * class name + s (or super class name) or set to field with element name.
+ * Attributes are set to fields with the same name. Constructors and fields 
+ * are resolved once per class and name and cached as method handles.
+ * @author Timo Vesalainen <timo.vesalainen@iki.fi>
+ * @param <N> Node base type
+ */
+public class NodeBinder<N>
+{
+    private static final MethodHandles.Lookup LOOKUP = MethodHandles.lookup();
+    private final Class<N> base;
+    private final String prefix;
+    private final Class<?>[] params;
+    private final ConcurrentMap<String,MethodHandle> constructors = new ConcurrentHashMap<>();
+    private final ClassValue<ClassBinding> bindings = new ClassValue<ClassBinding>()
+    {
+        @Override
+        protected ClassBinding computeValue(Class<?> type)
+        {
+            return new ClassBinding(type);
+        }
+    };
+    /**
+     * Creates binder
+     * @param base Node base class
+     * @param outer Class where node classes are nested
+     * @param params Constructor parameter types
+     */
+    public NodeBinder(Class<N> base, Class<?> outer, Class<?>... params)
+    {
+        this.base = base;
+        this.prefix = outer.getName()+"$";
+        this.params = params;
+    }
+    /**
+     * Creates node for element.
+     * @param element
+     * @param args Constructor arguments
+     * @return 
+     * @throws IllegalArgumentException if no class for element
+     */
+    public N create(String element, Object... args)
+    {
+        MethodHandle mh = constructors.computeIfAbsent(element, this::constructor);
+        try
+        {
+            return base.cast(mh.invokeExact(args));
+        }
+        catch (RuntimeException | Error ex)
+        {
+            throw ex;
+        }
+        catch (Throwable ex)
+        {
+            throw new RuntimeException(ex);
+        }
+    }
+    /**
+     * Adds value to targets list field.
+     * @param target
+     * @param value
+     * @return false if no such field
+     */
+    public boolean add(N target, N value)
+    {
+        MethodHandle getter = bindings.get(target.getClass()).lister(value.getClass());
+        if (getter == NONE)
+        {
+            return false;
+        }
+        try
+        {
+            List<Object> list = (List<Object>) getter.invokeExact((Object)target);
+            list.add(value);
+            return true;
+        }
+        catch (RuntimeException | Error ex)
+        {
+            throw ex;
+        }
+        catch (Throwable ex)
+        {
+            throw new RuntimeException(ex);
+        }
+    }
+    /**
+     * Sets targets field name to value. Value is converted to field type.
+     * @param target
+     * @param name
+     * @param value
+     * @return false if no such field
+     */
+    public boolean set(N target, String name, Object value)
+    {
+        Setter setter = bindings.get(target.getClass()).setter(name);
+        if (setter == null)
+        {
+            return false;
+        }
+        try
+        {
+            Object v = ConvertUtility.convert(setter.type, value);
+            setter.handle.invokeExact((Object)target, v);
+            return true;
+        }
+        catch (RuntimeException | Error ex)
+        {
+            throw ex;
+        }
+        catch (Throwable ex)
+        {
+            throw new RuntimeException(ex);
+        }
+    }
+    private MethodHandle constructor(String element)
+    {
+        String name = prefix+element.substring(0, 1).toUpperCase()+element.substring(1);
+        try
+        {
+            Class<?> cls = Class.forName(name, true, base.getClassLoader());
+            if (!base.isAssignableFrom(cls))
+            {
+                throw new IllegalArgumentException(element+" is not a node");
+            }
+            Constructor<?> cons = cls.getDeclaredConstructor(params);
+            cons.setAccessible(true);
+            return LOOKUP.unreflectConstructor(cons)
+                    .asType(MethodType.genericMethodType(params.length))
+                    .asSpreader(Object[].class, params.length);
+        }
+        catch (ClassNotFoundException | NoSuchMethodException | IllegalAccessException ex)
+        {
+            throw new IllegalArgumentException(element+" unknown element", ex);
+        }
+    }
+    private static final MethodHandle NONE = MethodHandles.constant(Object.class, null);
+    
+    private static class Setter
+    {
+        private final MethodHandle handle;
+        private final Class<?> type;
+
+        public Setter(MethodHandle handle, Class<?> type)
+        {
+            this.handle = handle;
+            this.type = type;
+        }
+        
+    }
+    private static class ClassBinding
+    {
+        private final Class<?> type;
+        private final ConcurrentMap<String,Object> setters = new ConcurrentHashMap<>();
+        private final ConcurrentMap<Class<?>,MethodHandle> listers = new ConcurrentHashMap<>();
+
+        public ClassBinding(Class<?> type)
+        {
+            this.type = type;
+        }
+        
+        private Setter setter(String name)
+        {
+            Object s = setters.computeIfAbsent(name, this::resolveSetter);
+            return s instanceof Setter ? (Setter) s : null;
+        }
+        private MethodHandle lister(Class<?> valueCls)
+        {
+            return listers.computeIfAbsent(valueCls, this::resolveLister);
+        }
+        private Object resolveSetter(String name)
+        {
+            Field field = findField(name);
+            if (field != null)
+            {
+                try
+                {
+                    field.setAccessible(true);
+                    MethodHandle mh = LOOKUP.unreflectSetter(field)
+                            .asType(MethodType.methodType(void.class, Object.class, Object.class));
+                    return new Setter(mh, field.getType());
+                }
+                catch (IllegalAccessException ex)
+                {
+                    throw new IllegalArgumentException(ex);
+                }
+            }
+            return NONE;
+        }
+        private MethodHandle resolveLister(Class<?> valueCls)
+        {
+            Class<?> vc = valueCls;
+            while (vc != null)
+            {
+                Field field = findField(vc.getSimpleName().toLowerCase()+"s");
+                if (field != null && List.class.isAssignableFrom(field.getType()))
+                {
+                    try
+                    {
+                        field.setAccessible(true);
+                        return LOOKUP.unreflectGetter(field)
+                                .asType(MethodType.methodType(List.class, Object.class));
+                    }
+                    catch (IllegalAccessException ex)
+                    {
+                        throw new IllegalArgumentException(ex);
+                    }
+                }
+                vc = vc.getSuperclass();
+            }
+            return NONE;
+        }
+        private Field findField(String name)
+        {
+            Class<?> cls = type;
+            while (cls != null)
+            {
+                try
+                {
+                    return cls.getDeclaredField(name);
+                }
+                catch (NoSuchFieldException ex)
+                {
+                }
+                cls = cls.getSuperclass();
+            }
+            return null;
+        }
+    }
+}
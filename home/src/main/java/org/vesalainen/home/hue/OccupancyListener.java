@@ -0,0 +1,31 @@
+/*
+ * Copyright (C) 2026 Timo Vesalainen <timo.vesalainen@iki.fi>
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.vesalainen.home.hue;
+
+/**
+ * Listener for room level occupancy changes. Called when the first motion
+ * sensor turns on or the last turns off.
+ * @author Timo Vesalainen <timo.vesalainen@iki.fi>
+ */
+public interface OccupancyListener
+{
+    /**
+     * @param occupied True if room became occupied
+     * @param sensor Name of sensor causing the change
+     */
+    void occupancy(boolean occupied, String sensor);
+}
@@ -0,0 +1,59 @@
+/*
+ * Copyright (C) 2026 Timo Vesalainen <timo.vesalainen@iki.fi>
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.vesalainen.home.hue;
+
+import java.nio.file.Path;
+import java.util.logging.Level;
+import org.vesalainen.util.LoggingCommandLine;
+import org.vesalainen.util.logging.JavaLogging;
+
+/**
+ * Command line for EventReplay
+ * @author Timo Vesalainen <timo.vesalainen@iki.fi>
+ */
+public class ReplayController extends LoggingCommandLine
+{
+
+    public ReplayController()
+    {
+        addArgument(Path.class, "configuration file");
+        addArgument(Path.class, "journal file");
+        addOption("-speed", "replay speed 1 = real time, 0 = max", null, 0.0);
+        addOption("-actors", "run each device in own mailbox", null, Boolean.FALSE);
+    }
+    
+    public static void main(String... args)
+    {
+        ReplayController rc = new ReplayController();
+        rc.command(args);
+        JavaLogging log = JavaLogging.getLogger(ReplayController.class);
+        Path configfile = rc.getArgument("configuration file");
+        Path journal = rc.getArgument("journal file");
+        Double speed = rc.getOption("-speed");
+        Boolean actors = rc.getOption("-actors");
+        try
+        {
+            EventReplay replay = new EventReplay(configfile, journal, speed, actors);
+            replay.run();
+            System.out.println(replay);
+        }
+        catch (Exception ex)
+        {
+            log.log(Level.SEVERE, ex, "replay %s", ex.getMessage());
+        }
+    }
+}
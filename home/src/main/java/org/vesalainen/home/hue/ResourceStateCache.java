@@ -0,0 +1,318 @@
+/*
+ * Copyright (C) 2026 Timo Vesalainen <timo.vesalainen@iki.fi>
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.vesalainen.home.hue;
+
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+import org.json.JSONArray;
+import org.json.JSONObject;
+
+/**
+ * Live state of resources. Initial state comes from resource list and update
+ * events are deep merged into it.
+ * <p>
+ * Each resource state is an immutable versioned snapshot. Updates create a 
+ * new snapshot (sharing unchanged parts) and publish it through a volatile 
+ * reference, so readers never lock and always see a consistent state. Typed 
+ * accessors are plain field reads.
+ * <p>
+ * Decoded events update typed fields directly. Their json is merged lazily
+ * from the source data item when snapshot json is first read, so event 
+ * handling doesn't parse json but all fields of the event are still merged.
+ * @author Timo Vesalainen <timo.vesalainen@iki.fi>
+ */
+public class ResourceStateCache
+{
+    private final Map<String,Slot> map = new HashMap<>();
+    private static final int MAX_LAZY = 64;
+    private final AtomicLong version = new AtomicLong();
+
+    public ResourceStateCache(JSONArray jsonArray)
+    {
+        jsonArray.forEach((Object o) ->
+        {
+            JSONObject jo = (JSONObject) o;
+            String id = jo.optString("id", null);
+            if (id != null)
+            {
+                map.put(id, new Slot(new Snapshot(0, jo)));
+            }
+        });
+    }
+    /**
+     * Returns current snapshot or null if id is unknown
+     * @param id
+     * @return 
+     */
+    public Snapshot get(String id)
+    {
+        Slot slot = map.get(id);
+        return slot != null ? slot.snapshot : null;
+    }
+    /**
+     * Returns number of merged updates.
+     * @return 
+     */
+    public long getVersion()
+    {
+        return version.get();
+    }
+    /**
+     * Merges update event into cache
+     * @param ev Event from event stream
+     */
+    public void event(JSONObject ev)
+    {
+        if ("update".equals(ev.optString("type")))
+        {
+            JSONArray data = ev.optJSONArray("data");
+            if (data != null)
+            {
+                for (Object o : data)
+                {
+                    update((JSONObject) o);
+                }
+            }
+        }
+    }
+    /**
+     * Merges update delta into resource with same id
+     * @param delta
+     * @return true if resource was found
+     */
+    public boolean update(JSONObject delta)
+    {
+        Slot slot = map.get(delta.optString("id"));
+        if (slot != null)
+        {
+            synchronized (slot)
+            {
+                Snapshot old = slot.snapshot;
+                slot.snapshot = new Snapshot(old.version+1, JSON.mergeCopy(old.json, delta));
+            }
+            version.incrementAndGet();
+            return true;
+        }
+        return false;
+    }
+    /**
+     * Merges decoded event into resource with same id
+     * @param ev
+     * @return true if resource was found
+     */
+    public boolean update(HueEvent ev)
+    {
+        String id = ev.getId();
+        Slot slot = id != null ? map.get(id) : null;
+        if (slot != null)
+        {
+            synchronized (slot)
+            {
+                slot.snapshot = new Snapshot(slot.snapshot, ev);
+            }
+            version.incrementAndGet();
+            return true;
+        }
+        return false;
+    }
+    private static class Slot
+    {
+        private volatile Snapshot snapshot;
+
+        public Slot(Snapshot snapshot)
+        {
+            this.snapshot = snapshot;
+        }
+        
+    }
+    public static final class Snapshot
+    {
+        private final long version;
+        private volatile JSONObject json;
+        private volatile Snapshot prev;
+        private final String data;
+        private final int start;
+        private final int end;
+        private final int lazy;
+        private final boolean hasOn;
+        private final boolean on;
+        private final double brightness;
+        private final int mirek;
+        private final int lightLevel;
+        private final boolean hasMotion;
+        private final boolean motion;
+
+        private Snapshot(long version, JSONObject json)
+        {
+            this.version = version;
+            this.json = json;
+            this.data = null;
+            this.start = 0;
+            this.end = 0;
+            this.lazy = 0;
+            Object o = JSON.get(json, "/on/on");
+            this.hasOn = o instanceof Boolean;
+            this.on = hasOn && (Boolean) o;
+            this.brightness = JSON.getDouble(json, "/dimming/brightness", Double.NaN);
+            this.mirek = JSON.getInt(json, "/color_temperature/mirek", -1);
+            this.lightLevel = JSON.getInt(json, "/light/light_level", 
+                    JSON.getInt(json, "/light/light_level_report/light_level", -1));
+            Object m = JSON.get(json, "/motion/motion");
+            if (m == null)
+            {
+                m = JSON.get(json, "/motion/motion_report/motion");
+            }
+            this.hasMotion = m instanceof Boolean;
+            this.motion = hasMotion && (Boolean) m;
+        }
+        /**
+         * Creates snapshot from previous and decoded event. Source data item
+         * of event is merged to json when json is first needed.
+         * @param prev
+         * @param ev 
+         */
+        private Snapshot(Snapshot prev, HueEvent ev)
+        {
+            this.version = prev.version+1;
+            this.hasOn = ev.hasOn() || prev.hasOn;
+            this.on = ev.hasOn() ? ev.isOn() : prev.on;
+            this.brightness = ev.hasBrightness() ? ev.getBrightness() : prev.brightness;
+            this.mirek = ev.hasMirek() ? ev.getMirek() : prev.mirek;
+            this.lightLevel = ev.hasLightLevel() ? ev.getLightLevel() : prev.lightLevel;
+            this.hasMotion = ev.hasMotion() || prev.hasMotion;
+            this.motion = ev.hasMotion() ? ev.isMotion() : prev.motion;
+            this.data = ev.data;
+            this.start = ev.start;
+            this.end = ev.end;
+            if (data != null)
+            {
+                this.prev = prev;
+                this.lazy = prev.lazy+1;
+            }
+            else
+            {
+                this.json = JSON.mergeCopy(prev.getJson(), ev.toJSON());
+                this.lazy = 0;
+            }
+            if (lazy > MAX_LAZY)
+            {
+                getJson();
+            }
+        }
+        /**
+         * Returns version of this snapshot. Initial is 0 and each merged
+         * update increments.
+         * @return 
+         */
+        public long getVersion()
+        {
+            return version;
+        }
+        /**
+         * Returns json of resource. Returned object must not be modified.
+         * @return 
+         */
+        public JSONObject getJson()
+        {
+            JSONObject jo = json;
+            if (jo != null)
+            {
+                return jo;
+            }
+            Snapshot p = prev;
+            if (p == null)
+            {
+                return json;    // merged by other thread
+            }
+            // iterative so that long chain doesn't overflow stack
+            Deque<Snapshot> chain = new ArrayDeque<>();
+            chain.push(this);
+            while (p != null && p.json == null)
+            {
+                chain.push(p);
+                p = p.prev;
+            }
+            jo = p != null ? p.json : chain.peek().json;
+            while (!chain.isEmpty())
+            {
+                Snapshot s = chain.pop();
+                if (s.json == null)
+                {
+                    s.json = JSON.mergeCopy(jo, new JSONObject(s.data.substring(s.start, s.end)));
+                    s.prev = null;
+                }
+                jo = s.json;
+            }
+            return jo;
+        }
+
+        public boolean hasOn()
+        {
+            return hasOn;
+        }
+        
+        public boolean isOn()
+        {
+            return on;
+        }
+        /**
+         * Returns brightness or NaN
+         * @return 
+         */
+        public double getBrightness()
+        {
+            return brightness;
+        }
+        /**
+         * Returns mirek or -1
+         * @return 
+         */
+        public int getMirek()
+        {
+            return mirek;
+        }
+        /**
+         * Returns light level or -1. Grouped light level is returned for 
+         * grouped_light_level.
+         * @return 
+         */
+        public int getLightLevel()
+        {
+            return lightLevel;
+        }
+
+        public boolean hasMotion()
+        {
+            return hasMotion;
+        }
+        
+        public boolean isMotion()
+        {
+            return motion;
+        }
+
+        @Override
+        public String toString()
+        {
+            return "Snapshot{" + "version=" + version + ", json=" + json + '}';
+        }
+        
+    }
+}
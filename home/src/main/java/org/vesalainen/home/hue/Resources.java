@@ -16,17 +16,20 @@
  */
 package org.vesalainen.home.hue;
 
-import static java.lang.Math.max;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
 import java.util.HashMap;
-import java.util.Iterator;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Objects;
 import java.util.Set;
 import org.json.JSONArray;
 import org.json.JSONObject;
-import org.json.JSONPointer;
-import org.json.JSONPointerException;
+import org.vesalainen.home.LatencyHistogram;
+import org.vesalainen.home.Metrics;
 import org.vesalainen.util.HashMapList;
 import org.vesalainen.util.MapList;
 
@@ -36,24 +39,53 @@ import org.vesalainen.util.MapList;
  */
 public class Resources
 {
-    private static final JSONPointer NAME = new JSONPointer("/metadata/name");
-    private static final JSONPointer OWNER = new JSONPointer("/owner/rid");
+    private static final String NAME = "/metadata/name";
+    private static final String OWNER = "/owner/rid";
     private Map<String,Resource> resourceMap = new HashMap<>();
     private MapList<String,Resource> nameMap = new HashMapList<>();
+    private Map<String,Set<Resource>> keyIndex = new HashMap<>();
+    private final ResourceStateCache cache;
+    private final LatencyHistogram lookupTime = Metrics.getDefault().histogram("resources.lookup");
 
     public Resources(JSONArray jsonArray)
     {
+        cache = new ResourceStateCache(jsonArray);
         jsonArray.forEach((Object o) ->
         {
             JSONObject jo = (JSONObject) o;
             Resource res = new Resource(jo);
             resourceMap.put(res.getId(), res);
-            String name = res.getName();
-            if (name != null)
+        });
+        for (Resource res : resourceMap.values())
+        {
+            res.owner = res.ownerRid != null ? resourceMap.get(res.ownerRid) : null;
+        }
+        for (Resource res : resourceMap.values())
+        {
+            nameMap.add(res.getName().toLowerCase(), res);
+            res.services = resolve(res.json.optJSONArray("services"));
+            res.children = resolve(res.json.optJSONArray("children"));
+            for (String key : JSON.keySet(res.json))
             {
-                nameMap.add(name.toLowerCase(), res);
+                keyIndex.computeIfAbsent(key, (k)->new HashSet<>()).add(res);
             }
-        });
+        }
+    }
+    private Resource[] resolve(JSONArray array)
+    {
+        List<Resource> list = new ArrayList<>();
+        if (array != null)
+        {
+            for (int ii=0;ii<array.length();ii++)
+            {
+                Resource res = resourceMap.get(array.getJSONObject(ii).optString("rid"));
+                if (res != null)
+                {
+                    list.add(res);
+                }
+            }
+        }
+        return list.toArray(new Resource[list.size()]);
     }
     
     public List<Resource> getResources(String name)
@@ -64,70 +96,181 @@ public class Resources
     {
         return resourceMap.get(id);
     }
+    /**
+     * Returns resources having all key paths. Key paths are from resource
+     * json at load time, e.g. /dimming/brightness.
+     * @param keys
+     * @return 
+     */
+    public Set<Resource> getResourcesWithKeys(Collection<String> keys)
+    {
+        if (keys.isEmpty())
+        {
+            return new HashSet<>(resourceMap.values());
+        }
+        List<Set<Resource>> sets = new ArrayList<>();
+        for (String key : keys)
+        {
+            Set<Resource> set = keyIndex.get(key);
+            if (set == null)
+            {
+                return Collections.emptySet();
+            }
+            sets.add(set);
+        }
+        sets.sort((s1, s2)->s1.size() - s2.size());
+        Set<Resource> result = new HashSet<>(sets.get(0));
+        for (int ii=1;ii<sets.size() && !result.isEmpty();ii++)
+        {
+            result.retainAll(sets.get(ii));
+        }
+        return result;
+    }
+    /**
+     * Returns resources named name or their services or children having all 
+     * key paths. Search doesn't descend below matching resource and children 
+     * are searched only if nothing was found from services.
+     * @param name
+     * @param keys
+     * @return 
+     */
+    public List<Resource> getResources(String name, Collection<String> keys)
+    {
+        long start = System.nanoTime();
+        List<Resource> list = new ArrayList<>();
+        List<Resource> roots = getResources(name);
+        if (roots != null)
+        {
+            Set<Resource> candidates = getResourcesWithKeys(keys);
+            if (!candidates.isEmpty())
+            {
+                for (Resource res : roots)
+                {
+                    find(res, candidates, list);
+                }
+            }
+        }
+        lookupTime.record(System.nanoTime() - start);
+        return list;
+    }
+    private void find(Resource res, Set<Resource> candidates, List<Resource> list)
+    {
+        if (candidates.contains(res))
+        {
+            list.add(res);
+        }
+        else
+        {
+            for (Resource r : res.services)
+            {
+                find(r, candidates, list);
+            }
+            if (list.isEmpty())
+            {
+                for (Resource r : res.children)
+                {
+                    find(r, candidates, list);
+                }
+            }
+        }
+    }
+    /**
+     * Merges update events into resources.
+     * @param ev Event from event stream
+     */
+    public void event(JSONObject ev)
+    {
+        cache.event(ev);
+    }
+
+    public ResourceStateCache getStateCache()
+    {
+        return cache;
+    }
+    
     public class Resource
     {
-        private JSONObject json;
+        private final JSONObject json;
+        private final String id;
+        private final String type;
+        private final String metadataName;
+        private final String ownerRid;
+        private final int hash;
+        private Resource owner;
+        private String name;
+        private Resource[] services;
+        private Resource[] children;
         private Set<String> keySet;
+        private long keySetVersion;
         private Set<String> valueSet;
-        private long last;
+        private long valueSetVersion;
 
         public Resource(JSONObject json)
         {
             this.json = json;
+            this.id = json.optString("id", null);
+            this.type = json.optString("type", null);
+            this.metadataName = query(NAME);
+            this.ownerRid = query(OWNER);
+            this.hash = 97 * 7 + Objects.hashCode(id);
         }
-        
-        public long getDelay()
-        {
-            long now = System.currentTimeMillis();
-            String type = getType();
-            long d;
-            switch (type)
-            {
-                case "light":
-                    d = 100;
-                    break;
-                default:
-                    d = 1000;
-            }
-            long n = last + d;
-            long delay = max(0, n - now);
-            last = now + delay;
-            return delay;
-        }
+        /**
+         * Returns metadata name or owners name followed by ':'. Names are 
+         * fixed at load time.
+         * @return 
+         */
         public String getName()
         {
-            String name = query(NAME);
-            if (name != null)
-            {
-                return name;
-            }
-            else
+            String n = name;
+            if (n == null)
             {
-                Resource owner = getOwner();
-                if (owner != null)
+                if (metadataName != null)
                 {
-                    return owner.getName()+":";
+                    n = metadataName;
                 }
                 else
                 {
-                    return ":";
+                    if (owner != null)
+                    {
+                        n = owner.getName()+":";
+                    }
+                    else
+                    {
+                        n = ":";
+                    }
                 }
+                name = n;
             }
+            return n;
         }
         
         public String getId()
         {
-            return json.optString("id", null);
+            return id;
         }
         
         public String getType()
         {
-            return json.optString("type", null);
+            return type;
+        }
+        
+        /**
+         * Returns current state of this resource.
+         * @return 
+         */
+        public ResourceStateCache.Snapshot getState()
+        {
+            return cache.get(getId());
+        }
+        
+        public Object getValue(String key)
+        {
+            return JSON.get(getState().getJson(), key);
         }
         
         public String get(String key)
         {
-            Object ob = JSON.get(json, key);
+            Object ob = getValue(key);
             if (ob != null)
             {
                 return ob.toString();
@@ -140,40 +283,34 @@ public class Resources
 
         public Resource getOwner()
         {
-            String rid = query(OWNER);
-            if (rid != null)
-            {
-                return resourceMap.get(rid);
-            }
-            return null;
+            return owner;
         }
         public Iterable<Resource> childrens()
         {
-            return iterable("children");
+            return Arrays.asList(children);
         }
         public Iterable<Resource> services()
         {
-            return iterable("services");
-        }
-        private ArrayIterator iterable(String name)
-        {
-            JSONArray array = json.optJSONArray(name);
-            return new ArrayIterator(array);
+            return Arrays.asList(services);
         }
-        public Set<String> keySet()
+        public synchronized Set<String> keySet()
         {
-            if (keySet == null)
+            ResourceStateCache.Snapshot state = getState();
+            if (keySet == null || keySetVersion != state.getVersion())
             {
-                keySet = JSON.keySet(json);
+                keySet = JSON.keySet(state.getJson());
+                keySetVersion = state.getVersion();
             }
             return keySet;
         }
 
-        public Set<String> valueSet()
+        public synchronized Set<String> valueSet()
         {
-            if (valueSet == null)
+            ResourceStateCache.Snapshot state = getState();
+            if (valueSet == null || valueSetVersion != state.getVersion())
             {
-                valueSet = JSON.valueSet(json);
+                valueSet = JSON.valueSet(state.getJson());
+                valueSetVersion = state.getVersion();
             }
             return valueSet;
         }
@@ -181,8 +318,6 @@ public class Resources
         @Override
         public int hashCode()
         {
-            int hash = 7;
-            hash = 97 * hash + Objects.hashCode(this.getId());
             return hash;
         }
 
@@ -202,7 +337,7 @@ public class Resources
                 return false;
             }
             final Resource other = (Resource) obj;
-            if (!Objects.equals(this.getId(), other.getId()))
+            if (hash != other.hash || !Objects.equals(this.id, other.id))
             {
                 return false;
             }
@@ -215,51 +350,10 @@ public class Resources
             return "Resource{" + getName()+ ":" + getType() + '}';
         }
 
-        private String query(JSONPointer ptr)
-        {
-            try
-            {
-                return (String) ptr.queryFrom(json);
-            }
-            catch (JSONPointerException ex)
-            {
-                return null;
-            }
-        }
-        
-    }
-    private class ArrayIterator implements Iterator<Resource>, Iterable<Resource>
-    {
-        private JSONArray array;
-        private int index;
-
-        public ArrayIterator(JSONArray array)
-        {
-            this.array = array;
-        }
-        
-        @Override
-        public boolean hasNext()
-        {
-            if (array != null)
-            {
-                return index < array.length();
-            }
-            return false;
-        }
-
-        @Override
-        public Resource next()
-        {
-            JSONObject jo = array.getJSONObject(index++);
-            String rid = jo.getString("rid");
-            return resourceMap.get(rid);
-        }
-
-        @Override
-        public Iterator<Resource> iterator()
+        private String query(String ptr)
         {
-            return this;
+            Object o = JSON.get(json, ptr);
+            return o instanceof String ? (String) o : null;
         }
         
     }
@@ -30,6 +30,7 @@ import java.nio.file.WatchService;
 import java.util.ArrayDeque;
 import java.util.ArrayList;
 import java.util.Collection;
+import java.util.Collections;
 import java.util.Deque;
 import java.util.HashMap;
 import java.util.List;
@@ -598,6 +599,7 @@ import org.vesalainen.util.logging.JavaLogging;
         protected String content;
         protected Function<Set<String>,JSONObject> upd;
         protected Predicate<Set<String>> predicate;
+        protected Set<String> keys = Collections.emptySet();
         
         public Update(JSONObject json, Node parent)
         {
@@ -620,12 +622,13 @@ import org.vesalainen.util.logging.JavaLogging;
                 Set<String> keySet = JSON.keySet(data);
                 upd = (s)->data;
                 predicate = (s)->s.containsAll(keySet);
+                keys = keySet;
             }
         }
 
         private void update()
         {
-            hue.update(name, upd, predicate);
+            hue.update(name, upd, predicate, keys);
         }
         
     }
@@ -0,0 +1,88 @@
+/*
+ * Copyright (C) 2026 Timo Vesalainen <timo.vesalainen@iki.fi>
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.vesalainen.home.hue;
+
+import static java.lang.Math.min;
+
+/**
+ * Token bucket. Not thread-safe.
+ * @author Timo Vesalainen <timo.vesalainen@iki.fi>
+ */
+public class TokenBucket
+{
+    private final double rate;
+    private final double capacity;
+    private double tokens;
+    private long last;
+    /**
+     * Creates full bucket
+     * @param rate Tokens per second
+     * @param capacity Max tokens
+     */
+    public TokenBucket(double rate, double capacity)
+    {
+        this(rate, capacity, System.nanoTime());
+    }
+
+    public TokenBucket(double rate, double capacity, long nanos)
+    {
+        this.rate = rate;
+        this.capacity = capacity;
+        this.tokens = capacity;
+        this.last = nanos;
+    }
+    
+    public boolean tryAcquire(long nanos)
+    {
+        refill(nanos);
+        if (tokens >= 1)
+        {
+            tokens -= 1;
+            return true;
+        }
+        return false;
+    }
+    /**
+     * Returns nanoseconds until next token is available.
+     * @param nanos
+     * @return 
+     */
+    public long nanosToNext(long nanos)
+    {
+        refill(nanos);
+        if (tokens >= 1)
+        {
+            return 0;
+        }
+        return (long) Math.ceil((1-tokens)*1e9/rate);
+    }
+    private void refill(long nanos)
+    {
+        if (nanos > last)
+        {
+            tokens = min(capacity, tokens + (nanos-last)*rate/1e9);
+            last = nanos;
+        }
+    }
+
+    @Override
+    public String toString()
+    {
+        return "TokenBucket{" + "rate=" + rate + ", capacity=" + capacity + '}';
+    }
+    
+}
@@ -0,0 +1,414 @@
+/*
+ * Copyright (C) 2026 Timo Vesalainen <timo.vesalainen@iki.fi>
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.vesalainen.home.hue;
+
+import static java.lang.Math.max;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ScheduledExecutorService;
+import static java.util.concurrent.TimeUnit.NANOSECONDS;
+import java.util.function.BiFunction;
+import org.json.JSONObject;
+import org.vesalainen.home.LatencyHistogram;
+import org.vesalainen.home.Metrics;
+import org.vesalainen.home.hue.Resources.Resource;
+import org.vesalainen.util.logging.JavaLogging;
+
+/**
+ * Bridge-wide update scheduler. Updates are rate limited with token buckets
+ * per resource type. Within a bucket higher priority updates are sent first.
+ * <p>
+ * Updates are coalesced per resource. While an update is waiting for a token 
+ * later updates to the same resource are merged into it (last write wins) and 
+ * only one request is sent.
+ * <p>
+ * At most one request per resource is in flight. Update to a resource with 
+ * request in flight is held, and merged with later updates, until previous
+ * request completes. This keeps requests to the same resource in order even
+ * if they are sent in different threads or connections.
+ * @author Timo Vesalainen <timo.vesalainen@iki.fi>
+ */
+public class UpdateQueue extends JavaLogging
+{
+    private static final String DEFAULT = "default";
+    private final ScheduledExecutorService pool;
+    private final Clock clock;
+    private final BiFunction<Resource,JSONObject,CompletableFuture<Object>> sender;
+    private final Map<String,Pending> map = new HashMap<>();
+    private final Map<String,Pending> inFlight = new HashMap<>();
+    private final Map<String,Bucket> buckets = new HashMap<>();
+    private long coalesced;
+
+    public UpdateQueue(ScheduledExecutorService pool, BiFunction<Resource, JSONObject, CompletableFuture<Object>> sender)
+    {
+        this(pool, clock(pool), sender);
+    }
+    /**
+     * Creates UpdateQueue
+     * @param pool Runs dispatching
+     * @param clock Time source and timer for rate limiting
+     * @param sender 
+     */
+    public UpdateQueue(ScheduledExecutorService pool, Clock clock, BiFunction<Resource, JSONObject, CompletableFuture<Object>> sender)
+    {
+        super(UpdateQueue.class);
+        this.pool = pool;
+        this.clock = clock;
+        this.sender = sender;
+        addBucket("light", 10, 5);
+        addBucket("grouped_light", 1, 1);
+        addBucket(DEFAULT, 10, 5);
+    }
+    /**
+     * Adds or replaces rate limit for resource type
+     * @param type
+     * @param rate Requests per second
+     * @param burst Max requests in a burst
+     */
+    public final void addBucket(String type, double rate, double burst)
+    {
+        synchronized (map)
+        {
+            Bucket bucket = new Bucket(type, new TokenBucket(rate, burst, clock.nanoTime()));
+            buckets.put(type, bucket);
+        }
+    }
+    public CompletableFuture<Object> update(Resource res, JSONObject upd)
+    {
+        return update(res, upd, Priority.NORMAL);
+    }
+    public CompletableFuture<Object> update(Resource res, JSONObject upd, Priority priority)
+    {
+        Bucket bucket;
+        Pending pending;
+        synchronized (map)
+        {
+            pending = map.get(res.getId());
+            if (pending != null)
+            {
+                JSON.merge(pending.json, upd);
+                coalesced++;
+                fine("coalesced %s %s", res, pending.json);
+                if (priority.compareTo(pending.priority) < 0)
+                {
+                    pending.bucket.raise(pending, priority);
+                }
+                return pending.future;
+            }
+            bucket = getBucket(res.getType());
+            pending = new Pending(res, upd, priority, bucket);
+            map.put(res.getId(), pending);
+            if (inFlight.containsKey(res.getId()))
+            {
+                fine("held %s", res);
+                return pending.future;
+            }
+            if (!schedule(pending))
+            {
+                return pending.future;
+            }
+        }
+        // dispatch after current task so that updates issued together are merged
+        pool.execute(bucket::dispatch);
+        return pending.future;
+    }
+    /**
+     * Adds pending to its bucket. Called with map locked.
+     * @param pending
+     * @return true if bucket dispatch needs to be executed.
+     */
+    private boolean schedule(Pending pending)
+    {
+        Bucket bucket = pending.bucket;
+        bucket.add(pending);
+        if (bucket.scheduled)
+        {
+            return false;
+        }
+        bucket.scheduled = true;
+        return true;
+    }
+    /**
+     * Called when request completes. Queues held update to the same 
+     * resource.
+     * @param sent 
+     */
+    private void completed(Pending sent)
+    {
+        Pending next;
+        synchronized (map)
+        {
+            String id = sent.res.getId();
+            inFlight.remove(id);
+            next = map.get(id);
+            if (next == null || !schedule(next))
+            {
+                return;
+            }
+        }
+        pool.execute(next.bucket::dispatch);
+    }
+    /**
+     * Returns number of updates merged into an already pending update.
+     * @return 
+     */
+    public long getCoalesced()
+    {
+        synchronized (map)
+        {
+            return coalesced;
+        }
+    }
+    /**
+     * Returns number of pending updates
+     * @return 
+     */
+    public int size()
+    {
+        synchronized (map)
+        {
+            return map.size();
+        }
+    }
+    /**
+     * Returns number of pending updates for resource type
+     * @param type
+     * @return 
+     */
+    public int getDepth(String type)
+    {
+        synchronized (map)
+        {
+            return getBucket(type).depth();
+        }
+    }
+    /**
+     * Returns histogram of time updates of resource type waited in queue
+     * @param type
+     * @return 
+     */
+    public LatencyHistogram getWait(String type)
+    {
+        synchronized (map)
+        {
+            return getBucket(type).wait;
+        }
+    }
+
+    @Override
+    public String toString()
+    {
+        StringBuilder sb = new StringBuilder();
+        synchronized (map)
+        {
+            sb.append("coalesced=").append(coalesced);
+            for (Bucket bucket : buckets.values())
+            {
+                sb.append(' ').append(bucket);
+            }
+        }
+        return sb.toString();
+    }
+    
+    /**
+     * Returns clock using System.nanoTime and scheduling in pool.
+     * @param pool
+     * @return 
+     */
+    public static Clock clock(ScheduledExecutorService pool)
+    {
+        return new Clock()
+        {
+            @Override
+            public long nanoTime()
+            {
+                return System.nanoTime();
+            }
+
+            @Override
+            public void schedule(Runnable task, long delay)
+            {
+                pool.schedule(task, delay, NANOSECONDS);
+            }
+        };
+    }
+    /**
+     * Time source for rate limiting. Replay uses recorded time.
+     */
+    public interface Clock
+    {
+        /**
+         * Returns current time in nanoseconds.
+         * @return 
+         */
+        long nanoTime();
+        /**
+         * Runs task after delay nanoseconds of this clocks time.
+         * @param task
+         * @param delay 
+         */
+        void schedule(Runnable task, long delay);
+    }
+    private Bucket getBucket(String type)
+    {
+        Bucket bucket = buckets.get(type);
+        if (bucket == null)
+        {
+            bucket = buckets.get(DEFAULT);
+        }
+        return bucket;
+    }
+    private class Bucket
+    {
+        private final String type;
+        private final TokenBucket tokens;
+        private final Deque<Pending>[] lanes = new Deque[Priority.values().length];
+        private final LatencyHistogram wait;
+        private boolean scheduled;
+        private int maxDepth;
+
+        public Bucket(String type, TokenBucket tokens)
+        {
+            this.type = type;
+            this.tokens = tokens;
+            this.wait = Metrics.getDefault().histogram("hue.wait."+type);
+            for (int ii=0;ii<lanes.length;ii++)
+            {
+                lanes[ii] = new ArrayDeque<>();
+            }
+        }
+        
+        private void add(Pending pending)
+        {
+            lanes[pending.priority.ordinal()].addLast(pending);
+            maxDepth = max(maxDepth, depth());
+        }
+        private void raise(Pending pending, Priority priority)
+        {
+            if (lanes[pending.priority.ordinal()].remove(pending))
+            {
+                lanes[priority.ordinal()].addLast(pending);
+            }
+            pending.priority = priority;
+        }
+        private Pending poll()
+        {
+            for (Deque<Pending> lane : lanes)
+            {
+                Pending pending = lane.pollFirst();
+                if (pending != null)
+                {
+                    return pending;
+                }
+            }
+            return null;
+        }
+        private int depth()
+        {
+            int depth = 0;
+            for (Deque<Pending> lane : lanes)
+            {
+                depth += lane.size();
+            }
+            return depth;
+        }
+        private void dispatch()
+        {
+            List<Pending> ready = new ArrayList<>();
+            synchronized (map)
+            {
+                long now = clock.nanoTime();
+                while (depth() > 0 && tokens.tryAcquire(now))
+                {
+                    Pending pending = poll();
+                    map.remove(pending.res.getId());
+                    inFlight.put(pending.res.getId(), pending);
+                    wait.record(now - pending.queued);
+                    ready.add(pending);
+                }
+                if (depth() > 0)
+                {
+                    clock.schedule(this::dispatch, tokens.nanosToNext(now));
+                }
+                else
+                {
+                    scheduled = false;
+                }
+            }
+            for (Pending pending : ready)
+            {
+                pending.send();
+            }
+        }
+
+        @Override
+        public String toString()
+        {
+            return type + "{depth=" + depth() + ", maxDepth=" + maxDepth + ", wait=" + wait + '}';
+        }
+        
+    }
+    private class Pending
+    {
+        private final Resource res;
+        private final JSONObject json;
+        private final Bucket bucket;
+        private final long queued = clock.nanoTime();
+        private final CompletableFuture<Object> future = new CompletableFuture<>();
+        private Priority priority;
+
+        public Pending(Resource res, JSONObject upd, Priority priority, Bucket bucket)
+        {
+            this.res = res;
+            this.json = JSON.merge(new JSONObject(), upd);
+            this.priority = priority;
+            this.bucket = bucket;
+        }
+        
+        private void send()
+        {
+            CompletableFuture<Object> sent;
+            try
+            {
+                sent = sender.apply(res, json);
+            }
+            catch (RuntimeException ex)
+            {
+                sent = new CompletableFuture<>();
+                sent.completeExceptionally(ex);
+            }
+            sent.whenComplete((r, ex)->
+            {
+                completed(this);
+                if (ex != null)
+                {
+                    future.completeExceptionally(ex);
+                }
+                else
+                {
+                    future.complete(r);
+                }
+            });
+        }
+        
+    }
+}
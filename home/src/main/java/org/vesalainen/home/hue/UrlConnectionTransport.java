@@ -0,0 +1,175 @@
+/*
+ * Copyright (C) 2026 Timo Vesalainen <timo.vesalainen@iki.fi>
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.vesalainen.home.hue;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.io.PrintWriter;
+import java.net.URL;
+import static java.nio.charset.StandardCharsets.UTF_8;
+import java.security.KeyManagementException;
+import java.security.NoSuchAlgorithmException;
+import java.security.cert.X509Certificate;
+import javax.net.ssl.HostnameVerifier;
+import javax.net.ssl.HttpsURLConnection;
+import javax.net.ssl.SSLContext;
+import javax.net.ssl.SSLSession;
+import javax.net.ssl.SSLSocketFactory;
+import javax.net.ssl.TrustManager;
+import javax.net.ssl.X509TrustManager;
+import org.json.JSONObject;
+import org.json.JSONTokener;
+
+/**
+ * Transport which opens a new HttpsURLConnection for every request. Connection
+ * reuse is left to jdk keep-alive cache.
+ * @author Timo Vesalainen <timo.vesalainen@iki.fi>
+ */
+public class UrlConnectionTransport implements HueTransport
+{
+    static final TrustManager[] trustAllCerts;
+    static final HostnameVerifier allHostsValid;
+    static final SSLSocketFactory sslSocketFactory;
+
+    static
+    {
+        try
+        {
+            // Create a trust manager that does not validate certificate chains
+            trustAllCerts = new TrustManager[]
+            {
+                new X509TrustManager()
+                {
+                    public java.security.cert.X509Certificate[] getAcceptedIssuers()
+                    {
+                        return null;
+                    }
+
+                    public void checkClientTrusted(X509Certificate[] certs, String authType)
+                    {
+                    }
+
+                    public void checkServerTrusted(X509Certificate[] certs, String authType)
+                    {
+                    }
+                }
+            };
+
+            // Install the all-trusting trust manager
+            SSLContext sc = SSLContext.getInstance("SSL");
+            sc.init(null, trustAllCerts, new java.security.SecureRandom());
+            sslSocketFactory = sc.getSocketFactory();
+
+            // Create all-trusting host name verifier
+            allHostsValid = new HostnameVerifier()
+            {
+                public boolean verify(String hostname, SSLSession session)
+                {
+                    return true;
+                }
+            };
+
+        }
+        catch (NoSuchAlgorithmException | KeyManagementException ex)
+        {
+            throw new RuntimeException(ex);
+        }
+    }
+    private final String host;
+    private final String appKey;
+
+    public UrlConnectionTransport(String host, String appKey)
+    {
+        this.host = host;
+        this.appKey = appKey;
+    }
+
+    @Override
+    public Object request(String method, String path, JSONObject body) throws IOException
+    {
+        HttpsURLConnection urlConnection = getHttpsUrlConnection(host, path);
+        urlConnection.setRequestProperty("hue-application-key", appKey);
+        urlConnection.setRequestMethod(method);
+        if (body != null)
+        {
+            urlConnection.setDoOutput(true);
+            urlConnection.setRequestProperty("Content-Type", "application/json");
+            OutputStream os = urlConnection.getOutputStream();
+            PrintWriter pw = new PrintWriter(os);
+            body.write(pw);
+            pw.flush();
+        }
+        return fetch(urlConnection);
+    }
+    
+    static HttpsURLConnection getHttpsUrlConnection(String host, String path) throws IOException
+    {
+        URL url = new URL("https://" + host + path);
+        HttpsURLConnection urlConnection = (HttpsURLConnection) url.openConnection();
+        urlConnection.setSSLSocketFactory(sslSocketFactory);
+        urlConnection.setHostnameVerifier(allHostsValid);
+        urlConnection.setRequestProperty("accept", "application/json");
+        return urlConnection;
+    }
+
+    static Object fetch(HttpsURLConnection con) throws IOException
+    {
+        con.connect();
+        int rc = con.getResponseCode();
+        if (rc >= 200 && rc < 300)
+        {
+            try (InputStream is = con.getInputStream())
+            {
+                JSONTokener jsonTokener = new JSONTokener(is);
+                Object obj = jsonTokener.nextValue();
+                if (rc == 200)
+                {
+                    return obj;
+                }
+                else
+                {
+                    String err = (String) JSON.get(obj, "/errors/0/description");
+                    throw new IOException(err);
+                }
+            }
+        }
+        else
+        {
+            StringBuilder sb = new StringBuilder();
+            InputStream es = con.getErrorStream();
+            if (es != null)
+            {
+                try (InputStream is = es;
+                        InputStreamReader isr = new InputStreamReader(is, UTF_8);
+                        BufferedReader br = new BufferedReader(isr))
+                {
+                    String line = br.readLine();
+                    while (line != null)
+                    {
+                        sb.append(line);
+                        line = br.readLine();
+                    }
+                }
+            }
+            throw new IOException("rc = "+rc+" "+sb);
+        }
+    }
+
+}
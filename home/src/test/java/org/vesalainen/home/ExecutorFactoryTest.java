@@ -0,0 +1,66 @@
+/*
+ * Copyright (C) 2026 Timo Vesalainen <timo.vesalainen@iki.fi>
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.vesalainen.home;
+
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import org.junit.jupiter.api.Test;
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ *
+ * @author Timo Vesalainen <timo.vesalainen@iki.fi>
+ */
+public class ExecutorFactoryTest
+{
+    
+    public ExecutorFactoryTest()
+    {
+    }
+
+    @Test
+    public void testPlatform() throws InterruptedException, ExecutionException
+    {
+        ExecutorFactory factory = ExecutorFactory.platform();
+        assertFalse(factory.isVirtual());
+        ExecutorService executor = factory.newExecutor("test", 2);
+        String name = executor.submit(()->Thread.currentThread().getName()).get();
+        assertTrue(name.startsWith("test-"));
+        executor.shutdown();
+        ScheduledExecutorService scheduler = factory.newScheduler("sched", 1);
+        assertEquals("x", scheduler.schedule(()->"x", 1, TimeUnit.MILLISECONDS).get());
+        scheduler.shutdown();
+        Thread thread = factory.newThread("single", ()->{});
+        assertEquals("single", thread.getName());
+        assertFalse(thread.isDaemon());
+        assertTrue(factory.newThread("daemon", true, ()->{}).isDaemon());
+    }
+    @Test
+    public void testVirtual() throws InterruptedException, ExecutionException
+    {
+        ExecutorFactory factory = ExecutorFactory.virtual();
+        ExecutorService executor = factory.newExecutor("test", 2);
+        String name = executor.submit(()->Thread.currentThread().getName()).get();
+        assertTrue(name.startsWith("test-"));
+        executor.shutdown();
+        assertEquals(factory.isVirtual(), !System.getProperty("java.specification.version").startsWith("1") 
+                && Integer.parseInt(System.getProperty("java.specification.version")) >= 21);
+    }
+    
+}
@@ -16,10 +16,20 @@
  */
 package org.vesalainen.home;
 
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
 import java.time.Duration;
 import java.time.ZonedDateTime;
+import java.util.Random;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
 import org.junit.jupiter.api.Test;
 import static org.junit.jupiter.api.Assertions.*;
 
@@ -59,6 +69,234 @@ public class IndexedDataTest
             q.set(start+ii, "x", ii+2);
         }
     }
+    @Test
+    public void test3() throws OutOfDataException
+    {
+        IndexedData q = new IndexedData(Duration.ofMinutes(15), Duration.ofHours(1));
+        q.addDoubleSupplier("sum", (p)->p[0]+p[1], "x", "y");
+        q.addSupplier("b", f::new, "x", "y");
+        int index = q.getIndex();
+        q.setDouble(index, "x", 1.5);
+        q.set(index, "y", 2);
+        assertEquals(1.5, q.getDouble(index, "x"));
+        assertEquals(2.0, q.getDouble(index, "y"));
+        assertEquals(1.5, (double)q.get(index, "x"));
+        assertEquals(3.5, q.getDouble(index, "sum"));
+        f b = q.get(index, "b");
+        assertEquals(1.5, b.x);
+        assertEquals(2.0, b.y);
+        assertThrows(OutOfDataException.class, ()->q.getDouble(index+1, "x"));
+    }
+    @Test
+    public void testRegistry() throws OutOfDataException
+    {
+        IndexedData q = new IndexedData(1, 4, "x");
+        q.addSupplier("b", f::new, "x", "x");
+        q.setDouble(1, "X", 2.0);
+        assertEquals(2.0, q.getDouble(1, "x"));
+        assertEquals(2.0, ((f)q.get(1, "b")).y);
+        assertThrows(IllegalArgumentException.class, ()->q.setDouble(1, "y", 1.0));
+        assertThrows(OutOfDataException.class, ()->q.getDouble(5, "x"));
+    }
+    @Test
+    public void testHandle() throws OutOfDataException
+    {
+        IndexedData q = new IndexedData(1, 4, "x", "y");
+        q.addSupplier("b", f::new, "x", "y");
+        IndexedData.ParameterHandle<Double> x = q.doubleHandle("X");
+        IndexedData.ParameterHandle<f> b = q.handle("b");
+        x.setDouble(1, 1.5);
+        q.setDouble(1, "y", 2.5);
+        assertEquals(1.5, q.getDouble(1, "x"));
+        assertEquals(1.5, x.get(1));
+        assertEquals(2.5, b.get(1).y);
+        assertEquals("X", x.getName());
+        assertThrows(IllegalArgumentException.class, ()->q.handle("z"));
+    }
+    @Test
+    public void testObjectColumn() throws OutOfDataException
+    {
+        IndexedData q = new IndexedData(1, 8);
+        q.set(1, "o", 1.5);
+        q.set(2, "s", "text");
+        q.addObjectSupplier("b", (p)->new f(p[0], p[1]), "o", "o");
+        assertEquals(1.5, q.getDouble(1, "o"));
+        assertThrows(OutOfDataException.class, ()->q.getDouble(2, "o"));
+        assertThrows(OutOfDataException.class, ()->q.getDouble(1, "s"));
+        assertThrows(ClassCastException.class, ()->q.getDouble(2, "s"));
+        f b = q.get(1, "b");
+        assertEquals(1.5, b.x);
+        assertEquals(1.5, b.y);
+    }
+    @Test
+    public void testDerivation() throws OutOfDataException
+    {
+        AtomicLong calls = new AtomicLong();
+        IndexedData q = new IndexedData(1, 8);
+        q.addDoubleSupplier("w", (p)->{calls.incrementAndGet();return 2*p[0];}, "z");
+        q.addDoubleSupplier("z", (p)->p[0]+p[1], "x", "y");
+        assertThrows(IllegalArgumentException.class, ()->q.addDoubleSupplier("x", (p)->p[0], "w"));
+        for (int ii=1;ii<=4;ii++)
+        {
+            q.setDouble(ii, "x", ii);
+            q.setDouble(ii, "y", 1);
+        }
+        assertEquals(6.0, q.getDouble(2, "w"));
+        assertEquals(6.0, q.getDouble(2, "w"));
+        assertEquals(1, calls.get());
+        q.setDouble(2, "x", 3);
+        assertEquals(2.0, q.getDouble(1, "z"));
+        assertEquals(8.0, q.getDouble(2, "w"));
+        assertEquals(2, calls.get());
+        q.recompute(1, 5);
+        assertEquals(6, calls.get());
+        assertEquals(10.0, q.getDouble(4, "w"));
+        assertEquals(6, calls.get());
+        assertThrows(OutOfDataException.class, ()->q.getDouble(5, "w"));
+    }
+    @Test
+    public void testStore() throws IOException, OutOfDataException
+    {
+        Path path = Files.createTempFile("indexed", ".dat");
+        try
+        {
+            IndexedData q1 = new IndexedData(1, 8, path, "x", "y");
+            q1.addDoubleSupplier("z", (p)->p[0]+p[1], "x", "y");
+            for (int ii=10;ii<20;ii++)
+            {
+                q1.setDouble(ii, "x", ii);
+                q1.setDouble(ii, "y", 0.5);
+            }
+            q1.flush();
+            IndexedData q2 = new IndexedData(1, 8, path, "x", "y");
+            q2.addDoubleSupplier("z", (p)->p[0]+p[1], "x", "y");
+            assertEquals(19, q2.getMaxIndex("x"));
+            assertEquals(19.0, q2.getDouble(19, "x"));
+            assertEquals(12.5, q2.getDouble(12, "z"));
+            assertThrows(OutOfDataException.class, ()->q2.getDouble(11, "x"));
+            IndexedData q3 = new IndexedData(1, 8, path, "x", "w");
+            assertEquals(0, q3.getMaxIndex("x"));
+            assertThrows(OutOfDataException.class, ()->q3.getDouble(19, "x"));
+        }
+        finally
+        {
+            Files.deleteIfExists(path);
+        }
+    }
+    /**
+     * Writers overwrite a small ring while readers check that each value 
+     * belongs to the requested period.
+     */
+    @Test
+    public void testStress() throws InterruptedException
+    {
+        IndexedData q = new IndexedData(1, 4);
+        int periods = 16;
+        long end = System.currentTimeMillis()+1000;
+        AtomicLong reads = new AtomicLong();
+        AtomicLong torn = new AtomicLong();
+        ExecutorService pool = Executors.newFixedThreadPool(4);
+        for (int ii=0;ii<2;ii++)
+        {
+            int start = ii;
+            pool.submit(()->
+            {
+                int gen = 0;
+                while (System.currentTimeMillis() < end)
+                {
+                    for (int p=1+start;p<=periods;p+=2)
+                    {
+                        q.setDouble(p, "x", p*1000000.0+gen);
+                        q.set(p, "o", p);
+                    }
+                    gen++;
+                }
+            });
+        }
+        for (int ii=0;ii<2;ii++)
+        {
+            pool.submit(()->
+            {
+                Random random = new Random();
+                while (System.currentTimeMillis() < end)
+                {
+                    int p = 1+random.nextInt(periods);
+                    try
+                    {
+                        double x = q.getDouble(p, "x");
+                        if ((int)(x/1000000) != p)
+                        {
+                            torn.incrementAndGet();
+                        }
+                        int o = q.get(p, "o");
+                        if (o != p)
+                        {
+                            torn.incrementAndGet();
+                        }
+                        reads.incrementAndGet();
+                    }
+                    catch (OutOfDataException ex)
+                    {
+                    }
+                }
+            });
+        }
+        pool.shutdown();
+        assertTrue(pool.awaitTermination(10, TimeUnit.SECONDS));
+        assertTrue(reads.get() > 0);
+        assertEquals(0, torn.get());
+    }
+    /**
+     * Writer updates input while reader derives lazily. After writer is done
+     * derived value must be derived from the latest input.
+     * @throws InterruptedException 
+     * @throws OutOfDataException 
+     */
+    @Test
+    public void testDerivationRace() throws InterruptedException, OutOfDataException
+    {
+        IndexedData q = new IndexedData(1, 4);
+        q.addDoubleSupplier("z", (p)->{Thread.yield();return 2*p[0];}, "x");
+        int periods = 200;
+        int writes = 200;
+        AtomicBoolean done = new AtomicBoolean();
+        ExecutorService pool = Executors.newFixedThreadPool(2);
+        for (int p=1;p<=periods;p++)
+        {
+            int period = p;
+            q.setDouble(period, "x", 0);
+            done.set(false);
+            Future<?> reader = pool.submit(()->
+            {
+                while (!done.get())
+                {
+                    try
+                    {
+                        q.getDouble(period, "z");
+                    }
+                    catch (OutOfDataException ex)
+                    {
+                    }
+                }
+            });
+            for (int ii=1;ii<=writes;ii++)
+            {
+                q.setDouble(period, "x", ii);
+                Thread.yield();
+            }
+            done.set(true);
+            try
+            {
+                reader.get();
+            }
+            catch (ExecutionException ex)
+            {
+                throw new RuntimeException(ex);
+            }
+            assertEquals(2.0*writes, q.getDouble(period, "z"), "period "+period);
+        }
+        pool.shutdown();
+    }
     private void read(IndexedData q)
     {
         int start = q.getIndex();
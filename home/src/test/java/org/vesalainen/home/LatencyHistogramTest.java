@@ -0,0 +1,64 @@
+/*
+ * Copyright (C) 2026 Timo Vesalainen <timo.vesalainen@iki.fi>
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.vesalainen.home;
+
+import org.junit.jupiter.api.Test;
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ *
+ * @author Timo Vesalainen <timo.vesalainen@iki.fi>
+ */
+public class LatencyHistogramTest
+{
+    
+    public LatencyHistogramTest()
+    {
+    }
+
+    @Test
+    public void testIndex()
+    {
+        for (long v=0;v<100000;v++)
+        {
+            int idx = LatencyHistogram.index(v);
+            long lb = LatencyHistogram.lowerBound(idx);
+            assertTrue(lb <= v);
+            assertTrue(v - lb <= v/8, v+" "+lb);
+        }
+    }
+    @Test
+    public void testPercentile()
+    {
+        LatencyHistogram h = new LatencyHistogram();
+        for (int ii=1;ii<=100;ii++)
+        {
+            h.record(ii*1000000L);
+        }
+        assertEquals(100, h.getCount());
+        assertEquals(100000, h.getMax());
+        assertEquals(50500, h.getMean(), 1e-6);
+        long p50 = h.getPercentile(50);
+        assertTrue(p50 <= 50000 && p50 > 44000, ""+p50);
+        long p99 = h.getPercentile(99);
+        assertTrue(p99 <= 99000 && p99 > 88000, ""+p99);
+        h.reset();
+        assertEquals(0, h.getCount());
+        assertEquals(0, h.getPercentile(50));
+    }
+    
+}
@@ -0,0 +1,79 @@
+/*
+ * Copyright (C) 2026 Timo Vesalainen <timo.vesalainen@iki.fi>
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.vesalainen.home;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import org.junit.jupiter.api.Test;
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ *
+ * @author Timo Vesalainen <timo.vesalainen@iki.fi>
+ */
+public class MailboxTest
+{
+    
+    public MailboxTest()
+    {
+    }
+
+    @Test
+    public void testOrder() throws InterruptedException
+    {
+        ExecutorService workers = Executors.newFixedThreadPool(4);
+        int boxes = 8;
+        int count = 1000;
+        List<List<Integer>> results = new ArrayList<>();
+        List<Mailbox> mailboxes = new ArrayList<>();
+        CountDownLatch latch = new CountDownLatch(boxes*count);
+        for (int ii=0;ii<boxes;ii++)
+        {
+            results.add(Collections.synchronizedList(new ArrayList<>()));
+            mailboxes.add(new Mailbox("box"+ii, workers));
+        }
+        for (int jj=0;jj<count;jj++)
+        {
+            for (int ii=0;ii<boxes;ii++)
+            {
+                int n = jj;
+                List<Integer> list = results.get(ii);
+                Mailbox mb = mailboxes.get(ii);
+                mb.execute(()->
+                {
+                    list.add(n);
+                    latch.countDown();
+                });
+            }
+        }
+        assertTrue(latch.await(10, TimeUnit.SECONDS));
+        for (List<Integer> list : results)
+        {
+            for (int jj=0;jj<count;jj++)
+            {
+                assertEquals(jj, list.get(jj));
+            }
+        }
+        workers.shutdown();
+    }
+    
+}
@@ -0,0 +1,84 @@
+/*
+ * Copyright (C) 2026 Timo Vesalainen <timo.vesalainen@iki.fi>
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.vesalainen.home;
+
+import com.sun.net.httpserver.HttpServer;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import static java.nio.charset.StandardCharsets.UTF_8;
+import java.util.concurrent.atomic.LongAdder;
+import org.junit.jupiter.api.Test;
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ *
+ * @author Timo Vesalainen <timo.vesalainen@iki.fi>
+ */
+public class MetricsTest
+{
+    
+    public MetricsTest()
+    {
+    }
+
+    @Test
+    public void test1() throws IOException
+    {
+        Metrics metrics = new Metrics();
+        LatencyHistogram h = metrics.histogram("b.latency");
+        assertSame(h, metrics.histogram("b.latency"));
+        h.record(2000000);
+        LongAdder c = metrics.counter("a.count");
+        assertSame(c, metrics.counter("a.count"));
+        c.increment();
+        c.increment();
+        metrics.gauge("c.gauge", ()->42);
+        String text = metrics.toText();
+        assertTrue(text.startsWith("b.latency n=1 "), text);
+        assertTrue(text.contains("a.count 2\n"), text);
+        assertTrue(text.endsWith("c.gauge 42\n"), text);
+        HttpServer server = metrics.serve(0);
+        try
+        {
+            assertTrue(server.getAddress().getAddress().isLoopbackAddress());
+            URL url = new URL("http", server.getAddress().getAddress().getHostAddress(), server.getAddress().getPort(), "/metrics");
+            HttpURLConnection con = (HttpURLConnection) url.openConnection();
+            assertEquals(200, con.getResponseCode());
+            assertTrue(con.getContentType().startsWith("text/plain"));
+            ByteArrayOutputStream baos = new ByteArrayOutputStream();
+            try (InputStream is = con.getInputStream())
+            {
+                byte[] buf = new byte[1024];
+                int rc = is.read(buf);
+                while (rc != -1)
+                {
+                    baos.write(buf, 0, rc);
+                    rc = is.read(buf);
+                }
+            }
+            assertEquals(text, new String(baos.toByteArray(), UTF_8));
+        }
+        finally
+        {
+            server.stop(0);
+        }
+    }
+    
+}
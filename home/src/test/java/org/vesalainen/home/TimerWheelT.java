@@ -0,0 +1,110 @@
+/*
+ * Copyright (C) 2026 Timo Vesalainen <timo.vesalainen@iki.fi>
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.vesalainen.home;
+
+import java.util.concurrent.Executor;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import static java.util.concurrent.TimeUnit.*;
+import org.junit.jupiter.api.Test;
+import org.vesalainen.home.TimerWheel.Timeout;
+
+/**
+ * Compares TimerWheel to ScheduledThreadPoolExecutor with motion like load 
+ * where nearly every scheduled off is cancelled by next on.
+ * @author Timo Vesalainen <timo.vesalainen@iki.fi>
+ */
+public class TimerWheelT
+{
+    private static final int ROUNDS = 5;
+    private static final int RATE = 10000;
+    private static final int SECONDS = 5;
+    private static final int ACTIONS = 100;
+    
+    public TimerWheelT()
+    {
+    }
+
+    @Test
+    public void test1() throws InterruptedException
+    {
+        for (int round=0;round<ROUNDS;round++)
+        {
+            ScheduledThreadPoolExecutor stpe = new ScheduledThreadPoolExecutor(1);
+            long t1 = stpe(stpe);
+            int left = stpe.getQueue().size();
+            stpe.shutdownNow();
+            ScheduledThreadPoolExecutor ticker = new ScheduledThreadPoolExecutor(1);
+            TimerWheel wheel = new TimerWheel(ticker, 100, MILLISECONDS, 1024);
+            long t2 = wheel(wheel);
+            int waiting = wheel.size();
+            wheel.stop();
+            ticker.shutdownNow();
+            System.err.printf("stpe %d ns/op queue=%d wheel %d ns/op waiting=%d\n", t1, left, t2, waiting);
+        }
+    }
+    /**
+     * Schedules and cancels at RATE for SECONDS.
+     * @return nanos per schedule+cancel
+     */
+    private long stpe(ScheduledThreadPoolExecutor stpe) throws InterruptedException
+    {
+        ScheduledFuture<?>[] futures = new ScheduledFuture<?>[ACTIONS];
+        Runnable off = ()->{};
+        long busy = 0;
+        for (int ii=0;ii<RATE*SECONDS;ii++)
+        {
+            int idx = ii % ACTIONS;
+            long start = System.nanoTime();
+            if (futures[idx] != null)
+            {
+                futures[idx].cancel(true);
+            }
+            futures[idx] = stpe.schedule(off, 60, MINUTES);
+            busy += System.nanoTime() - start;
+            pace(ii);
+        }
+        return busy/(RATE*SECONDS);
+    }
+    private long wheel(TimerWheel wheel) throws InterruptedException
+    {
+        Timeout[] timeouts = new Timeout[ACTIONS];
+        Runnable off = ()->{};
+        Executor direct = Runnable::run;
+        long busy = 0;
+        for (int ii=0;ii<RATE*SECONDS;ii++)
+        {
+            int idx = ii % ACTIONS;
+            long start = System.nanoTime();
+            if (timeouts[idx] != null)
+            {
+                timeouts[idx].cancel();
+            }
+            timeouts[idx] = wheel.schedule(off, direct, 60, MINUTES);
+            busy += System.nanoTime() - start;
+            pace(ii);
+        }
+        return busy/(RATE*SECONDS);
+    }
+    private void pace(int ii) throws InterruptedException
+    {
+        if (ii % (RATE/100) == 0)
+        {
+            Thread.sleep(10);
+        }
+    }
+}
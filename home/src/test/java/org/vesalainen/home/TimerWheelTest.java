@@ -0,0 +1,91 @@
+/*
+ * Copyright (C) 2026 Timo Vesalainen <timo.vesalainen@iki.fi>
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.vesalainen.home;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import static java.util.concurrent.TimeUnit.*;
+import org.junit.jupiter.api.Test;
+import static org.junit.jupiter.api.Assertions.*;
+import org.vesalainen.home.TimerWheel.Timeout;
+
+/**
+ *
+ * @author Timo Vesalainen <timo.vesalainen@iki.fi>
+ */
+public class TimerWheelTest
+{
+    
+    public TimerWheelTest()
+    {
+    }
+
+    @Test
+    public void test1() throws InterruptedException
+    {
+        ScheduledExecutorService scheduler = Executors.newSingleThreadScheduledExecutor();
+        Executor direct = Runnable::run;
+        TimerWheel wheel = new TimerWheel(scheduler, 5, MILLISECONDS, 4);
+        List<Integer> list = Collections.synchronizedList(new ArrayList<>());
+        CountDownLatch latch = new CountDownLatch(3);
+        long start = System.nanoTime();
+        wheel.schedule(()->{list.add(3);latch.countDown();}, direct, 120, MILLISECONDS);
+        wheel.schedule(()->{list.add(1);latch.countDown();}, direct, 10, MILLISECONDS);
+        Timeout cancelled = wheel.schedule(()->list.add(0), direct, 40, MILLISECONDS);
+        wheel.schedule(()->{list.add(2);latch.countDown();}, direct, 60, MILLISECONDS);
+        assertEquals(4, wheel.size());
+        assertTrue(cancelled.cancel());
+        assertFalse(cancelled.cancel());
+        assertTrue(cancelled.isDone());
+        assertEquals(3, wheel.size());
+        assertTrue(latch.await(5, SECONDS));
+        assertTrue(System.nanoTime() - start >= MILLISECONDS.toNanos(120));
+        assertEquals(3, list.size());
+        assertEquals(1, list.get(0));
+        assertEquals(2, list.get(1));
+        assertEquals(3, list.get(2));
+        assertEquals(0, wheel.size());
+        wheel.stop();
+        scheduler.shutdown();
+    }
+    @Test
+    public void testCancelFired()
+    {
+        TimerWheel wheel = new TimerWheel(null, 1, MILLISECONDS, 8);
+        List<Runnable> queue = new ArrayList<>();
+        List<Integer> list = new ArrayList<>();
+        Timeout t1 = wheel.schedule(()->list.add(1), queue::add, 1, MILLISECONDS);
+        Timeout t2 = wheel.schedule(()->list.add(2), queue::add, 1, MILLISECONDS);
+        while (queue.size() < 2)
+        {
+            wheel.tick();
+        }
+        assertFalse(t1.isDone());
+        assertTrue(t1.cancel());
+        queue.forEach(Runnable::run);
+        assertEquals(1, list.size());
+        assertEquals(2, list.get(0));
+        assertTrue(t2.isDone());
+        assertFalse(t2.isCancelled());
+    }
+    
+}
@@ -0,0 +1,555 @@
+/*
+ * Copyright (C) 2026 Timo Vesalainen <timo.vesalainen@iki.fi>
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.vesalainen.home.hue;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpsConfigurator;
+import com.sun.net.httpserver.HttpsServer;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import static java.nio.charset.StandardCharsets.UTF_8;
+import java.security.GeneralSecurityException;
+import java.security.KeyStore;
+import java.time.Instant;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import static java.util.concurrent.TimeUnit.MILLISECONDS;
+import java.util.concurrent.atomic.LongAdder;
+import javax.net.ssl.KeyManagerFactory;
+import javax.net.ssl.SSLContext;
+import org.json.JSONArray;
+import org.json.JSONObject;
+import org.json.JSONTokener;
+import org.vesalainen.home.ExecutorFactory;
+import org.vesalainen.util.logging.JavaLogging;
+
+/**
+ * In-process Hue bridge for tests. Serves clip v2 resources, /api 
+ * authentication and event stream over local HTTPS. Updates are rate limited
+ * per resource type and delayed by configured latency like in real bridge.
+ * @author Timo Vesalainen <timo.vesalainen@iki.fi>
+ */
+public class BridgeSimulator extends JavaLogging implements AutoCloseable
+{
+    private static final String KEYSTORE = "/bridge-simulator.p12";
+    private static final char[] PASSWORD = "secret".toCharArray();
+    private static final int HISTORY = 1000;
+    private static final long KEEP_ALIVE = 10000;
+    private final String appKey = UUID.randomUUID().toString().replace("-", "");
+    private final HttpsServer server;
+    private final ExecutorService executor;
+    private final Map<String,JSONObject> resources = new LinkedHashMap<>();
+    private final Map<String,String> names = new HashMap<>();
+    private final Map<String,TokenBucket> limits = new HashMap<>();
+    private final List<BlockingQueue<String[]>> streams = new CopyOnWriteArrayList<>();
+    private final Deque<String[]> history = new ArrayDeque<>();
+    private final LongAdder updates = new LongAdder();
+    private final LongAdder rejected = new LongAdder();
+    private volatile long latency;
+    private volatile boolean linkButton = true;
+    private long eventId;
+
+    public BridgeSimulator() throws IOException
+    {
+        super(BridgeSimulator.class);
+        setRateLimit("light", 10, 10);
+        setRateLimit("grouped_light", 1, 1);
+        server = HttpsServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        server.setHttpsConfigurator(new HttpsConfigurator(sslContext()));
+        executor = Executors.newCachedThreadPool(ExecutorFactory.getDefault().threadFactory("bridge-simulator"));
+        server.setExecutor(executor);
+        server.createContext("/api", this::api);
+        server.createContext("/clip/v2/resource", this::resource);
+        server.createContext("/eventstream/clip/v2", this::eventStream);
+        server.start();
+        config("bridge simulator at %s", getAddress());
+    }
+    /**
+     * Returns address as host:port
+     * @return 
+     */
+    public String getAddress()
+    {
+        return "127.0.0.1:"+server.getAddress().getPort();
+    }
+    /**
+     * Returns application key accepted by simulator.
+     * @return 
+     */
+    public String getAppKey()
+    {
+        return appKey;
+    }
+    /**
+     * Sets delay added to each request.
+     * @param millis 
+     */
+    public void setLatency(long millis)
+    {
+        this.latency = millis;
+    }
+    /**
+     * Sets PUT rate limit for resource type. Requests over limit are rejected
+     * with 429.
+     * @param type
+     * @param rate Requests per second
+     * @param burst 
+     */
+    public final synchronized void setRateLimit(String type, double rate, double burst)
+    {
+        limits.put(type, new TokenBucket(rate, burst));
+    }
+    /**
+     * If false /api returns link button not pressed error.
+     * @param pressed 
+     */
+    public void setLinkButton(boolean pressed)
+    {
+        this.linkButton = pressed;
+    }
+    /**
+     * Adds device with light service.
+     * @param name
+     * @return Light service id
+     */
+    public synchronized String addLight(String name)
+    {
+        String device = addDevice(name, "light");
+        String id = id(name, "light");
+        JSONObject light = JSON.build("/id", id)
+                .set("/type", "light")
+                .set("/owner/rid", device)
+                .set("/owner/rtype", "device")
+                .set("/metadata/name", name)
+                .set("/on/on", false)
+                .set("/dimming/brightness", 50.2)
+                .set("/color_temperature/mirek", 300)
+                .set("/color/xy/x", 0.4)
+                .set("/color/xy/y", 0.4)
+                .get();
+        resources.put(id, light);
+        return id;
+    }
+    /**
+     * Adds device with motion and light_level services.
+     * @param name
+     * @return Motion service id
+     */
+    public synchronized String addMotionSensor(String name)
+    {
+        String device = addDevice(name, "motion", "light_level");
+        String id = id(name, "motion");
+        resources.put(id, JSON.build("/id", id)
+                .set("/type", "motion")
+                .set("/owner/rid", device)
+                .set("/owner/rtype", "device")
+                .set("/motion/motion", false)
+                .set("/motion/motion_valid", true)
+                .get());
+        String ll = id(name, "light_level");
+        resources.put(ll, JSON.build("/id", ll)
+                .set("/type", "light_level")
+                .set("/owner/rid", device)
+                .set("/owner/rtype", "device")
+                .set("/light/light_level", 10000)
+                .get());
+        return id;
+    }
+    /**
+     * Sets motion state of sensor and sends event.
+     * @param name
+     * @param motion 
+     */
+    public void motion(String name, boolean motion)
+    {
+        change(id(name, "motion"), JSON.build("/motion/motion", motion).get());
+    }
+    /**
+     * Sets light level of sensor and sends event.
+     * @param name
+     * @param level 
+     */
+    public void lightLevel(String name, int level)
+    {
+        change(id(name, "light_level"), JSON.build("/light/light_level", level).get());
+    }
+    /**
+     * Returns copy of resource state
+     * @param id
+     * @return 
+     */
+    public synchronized JSONObject getResource(String id)
+    {
+        JSONObject jo = resources.get(id);
+        return jo != null ? new JSONObject(jo.toString()) : null;
+    }
+    /**
+     * Returns light service id of named device
+     * @param name
+     * @return 
+     */
+    public String getLightId(String name)
+    {
+        return id(name, "light");
+    }
+    /**
+     * Returns number of accepted updates
+     * @return 
+     */
+    public long getUpdates()
+    {
+        return updates.sum();
+    }
+    /**
+     * Returns number of updates rejected because of rate limit.
+     * @return 
+     */
+    public long getRejected()
+    {
+        return rejected.sum();
+    }
+    /**
+     * Returns number of connected event streams.
+     * @return 
+     */
+    public int getStreams()
+    {
+        return streams.size();
+    }
+
+    @Override
+    public void close()
+    {
+        server.stop(0);
+        executor.shutdownNow();
+    }
+    
+    private String addDevice(String name, String... services)
+    {
+        String id = id(name, "device");
+        JSONArray array = new JSONArray();
+        for (String type : services)
+        {
+            array.put(new JSONObject().put("rid", id(name, type)).put("rtype", type));
+        }
+        resources.put(id, JSON.build("/id", id)
+                .set("/type", "device")
+                .set("/metadata/name", name)
+                .get()
+                .put("services", array));
+        return id;
+    }
+    private String id(String name, String type)
+    {
+        return UUID.nameUUIDFromBytes((type+":"+name).getBytes(UTF_8)).toString();
+    }
+    private void change(String id, JSONObject delta)
+    {
+        JSONObject ev;
+        synchronized (this)
+        {
+            JSONObject res = resources.get(id);
+            if (res == null)
+            {
+                throw new IllegalArgumentException(id+" not found");
+            }
+            JSON.merge(res, delta);
+            ev = new JSONObject(delta.toString())
+                    .put("id", id)
+                    .put("type", res.getString("type"))
+                    .put("owner", res.optJSONObject("owner"));
+        }
+        publish(ev);
+    }
+    private synchronized void publish(JSONObject ev)
+    {
+        JSONObject envelope = new JSONObject()
+                .put("creationtime", Instant.now().toString())
+                .put("id", UUID.randomUUID().toString())
+                .put("type", "update")
+                .put("data", new JSONArray().put(ev));
+        String[] event = new String[]{String.valueOf(++eventId), new JSONArray().put(envelope).toString()};
+        history.addLast(event);
+        if (history.size() > HISTORY)
+        {
+            history.removeFirst();
+        }
+        for (BlockingQueue<String[]> queue : streams)
+        {
+            queue.add(event);
+        }
+    }
+    private void api(HttpExchange exchange) throws IOException
+    {
+        try
+        {
+            delay();
+            if (!"POST".equals(exchange.getRequestMethod()))
+            {
+                send(exchange, 405, error("method not allowed"));
+                return;
+            }
+            JSONObject req = new JSONObject(new JSONTokener(body(exchange)));
+            JSONObject resp;
+            if (!linkButton)
+            {
+                resp = JSON.build("/error/type", 101)
+                        .set("/error/address", "")
+                        .set("/error/description", "link button not pressed")
+                        .get();
+            }
+            else
+            {
+                resp = JSON.build("/success/username", appKey)
+                        .set("/success/clientkey", "0123456789ABCDEF")
+                        .get();
+            }
+            config("authenticate %s", req.optString("devicetype"));
+            send(exchange, 200, new JSONArray().put(resp).toString());
+        }
+        finally
+        {
+            exchange.close();
+        }
+    }
+    private void resource(HttpExchange exchange) throws IOException
+    {
+        try
+        {
+            delay();
+            if (!appKey.equals(exchange.getRequestHeaders().getFirst("hue-application-key")))
+            {
+                send(exchange, 403, error("unauthorized user"));
+                return;
+            }
+            String[] path = exchange.getRequestURI().getPath().substring("/clip/v2/resource".length()).split("/");
+            String type = path.length > 1 ? path[1] : null;
+            String id = path.length > 2 ? path[2] : null;
+            switch (exchange.getRequestMethod())
+            {
+                case "GET":
+                    get(exchange, type, id);
+                    break;
+                case "PUT":
+                    put(exchange, type, id);
+                    break;
+                default:
+                    send(exchange, 405, error("method not allowed"));
+                    break;
+            }
+        }
+        catch (RuntimeException ex)
+        {
+            send(exchange, 400, error(ex.getMessage()));
+        }
+        finally
+        {
+            exchange.close();
+        }
+    }
+    private void get(HttpExchange exchange, String type, String id) throws IOException
+    {
+        JSONArray data = new JSONArray();
+        synchronized (this)
+        {
+            for (JSONObject res : resources.values())
+            {
+                if ((type == null || type.equals(res.getString("type"))) && (id == null || id.equals(res.getString("id"))))
+                {
+                    data.put(res);
+                }
+            }
+        }
+        if (id != null && data.length() == 0)
+        {
+            send(exchange, 404, error("Not Found"));
+        }
+        else
+        {
+            send(exchange, 200, new JSONObject().put("errors", new JSONArray()).put("data", data).toString());
+        }
+    }
+    private void put(HttpExchange exchange, String type, String id) throws IOException
+    {
+        JSONObject body = new JSONObject(new JSONTokener(body(exchange)));
+        int rc = 200;
+        synchronized (this)
+        {
+            JSONObject res = id != null ? resources.get(id) : null;
+            TokenBucket bucket = limits.get(type);
+            if (res == null || !res.getString("type").equals(type))
+            {
+                rc = 404;
+            }
+            else
+            {
+                if (bucket != null && !bucket.tryAcquire(System.nanoTime()))
+                {
+                    rc = 429;
+                    rejected.increment();
+                }
+                else
+                {
+                    updates.increment();
+                }
+            }
+        }
+        switch (rc)
+        {
+            case 404:
+                send(exchange, 404, error("Not Found"));
+                return;
+            case 429:
+                send(exchange, 429, error("Too Many Requests"));
+                return;
+        }
+        change(id, body);
+        JSONObject rid = new JSONObject().put("rid", id).put("rtype", type);
+        send(exchange, 200, new JSONObject().put("errors", new JSONArray()).put("data", new JSONArray().put(rid)).toString());
+    }
+    private void eventStream(HttpExchange exchange) throws IOException
+    {
+        BlockingQueue<String[]> queue = new LinkedBlockingQueue<>();
+        try
+        {
+            if (!appKey.equals(exchange.getRequestHeaders().getFirst("hue-application-key")))
+            {
+                send(exchange, 403, error("unauthorized user"));
+                return;
+            }
+            String lastEventId = exchange.getRequestHeaders().getFirst("Last-Event-ID");
+            synchronized (this)
+            {
+                if (lastEventId != null)
+                {
+                    long last = Long.parseLong(lastEventId);
+                    for (String[] event : history)
+                    {
+                        if (Long.parseLong(event[0]) > last)
+                        {
+                            queue.add(event);
+                        }
+                    }
+                }
+                streams.add(queue);
+            }
+            exchange.getResponseHeaders().set("Content-Type", "text/event-stream");
+            exchange.sendResponseHeaders(200, 0);
+            OutputStream os = exchange.getResponseBody();
+            os.write(": hi\n\n".getBytes(UTF_8));
+            os.flush();
+            while (!Thread.currentThread().isInterrupted())
+            {
+                String[] event = queue.poll(KEEP_ALIVE, MILLISECONDS);
+                if (event != null)
+                {
+                    os.write(("id: "+event[0]+"\ndata: "+event[1]+"\n\n").getBytes(UTF_8));
+                }
+                else
+                {
+                    os.write(": keep-alive\n\n".getBytes(UTF_8));
+                }
+                os.flush();
+            }
+        }
+        catch (InterruptedException | IOException ex)
+        {
+            fine("event stream closed %s", ex);
+        }
+        finally
+        {
+            streams.remove(queue);
+            exchange.close();
+        }
+    }
+    private void delay()
+    {
+        long l = latency;
+        if (l > 0)
+        {
+            try
+            {
+                Thread.sleep(l);
+            }
+            catch (InterruptedException ex)
+            {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+    private static String body(HttpExchange exchange) throws IOException
+    {
+        ByteArrayOutputStream baos = new ByteArrayOutputStream();
+        try (InputStream is = exchange.getRequestBody())
+        {
+            byte[] buf = new byte[4096];
+            int rc = is.read(buf);
+            while (rc != -1)
+            {
+                baos.write(buf, 0, rc);
+                rc = is.read(buf);
+            }
+        }
+        return new String(baos.toByteArray(), UTF_8);
+    }
+    private static String error(String description)
+    {
+        JSONArray errors = new JSONArray().put(new JSONObject().put("description", description));
+        return new JSONObject().put("errors", errors).put("data", new JSONArray()).toString();
+    }
+    private static void send(HttpExchange exchange, int rc, String body) throws IOException
+    {
+        byte[] bytes = body.getBytes(UTF_8);
+        exchange.getResponseHeaders().set("Content-Type", "application/json");
+        exchange.sendResponseHeaders(rc, bytes.length);
+        try (OutputStream os = exchange.getResponseBody())
+        {
+            os.write(bytes);
+        }
+    }
+    private static SSLContext sslContext() throws IOException
+    {
+        try (InputStream is = BridgeSimulator.class.getResourceAsStream(KEYSTORE))
+        {
+            KeyStore ks = KeyStore.getInstance("PKCS12");
+            ks.load(is, PASSWORD);
+            KeyManagerFactory kmf = KeyManagerFactory.getInstance(KeyManagerFactory.getDefaultAlgorithm());
+            kmf.init(ks, PASSWORD);
+            SSLContext sc = SSLContext.getInstance("TLS");
+            sc.init(kmf.getKeyManagers(), null, null);
+            return sc;
+        }
+        catch (GeneralSecurityException ex)
+        {
+            throw new IOException(ex);
+        }
+    }
+}
@@ -0,0 +1,128 @@
+/*
+ * Copyright (C) 2026 Timo Vesalainen <timo.vesalainen@iki.fi>
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.vesalainen.home.hue;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import static java.nio.charset.StandardCharsets.UTF_8;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ScheduledExecutorService;
+import static java.util.concurrent.TimeUnit.SECONDS;
+import javax.net.ssl.HttpsURLConnection;
+import org.json.JSONArray;
+import org.json.JSONObject;
+import org.junit.jupiter.api.Test;
+import static org.junit.jupiter.api.Assertions.*;
+import org.vesalainen.home.ExecutorFactory;
+import org.vesalainen.home.hue.Resources.Resource;
+
+/**
+ *
+ * @author Timo Vesalainen <timo.vesalainen@iki.fi>
+ */
+public class BridgeSimulatorTest
+{
+    
+    public BridgeSimulatorTest()
+    {
+    }
+
+    @Test
+    public void test1() throws Exception
+    {
+        ScheduledExecutorService pool = ExecutorFactory.getDefault().newScheduler("test", 1);
+        try (BridgeSimulator sim = new BridgeSimulator())
+        {
+            sim.addLight("Lamp");
+            sim.addMotionSensor("Sensor");
+            Hue hue = new Hue("test", pool, sim.getAddress(), sim.getAppKey(), KeepAliveTransport::new);
+            hue.readAllResources();
+            Resource res = hue.getResource(sim.getLightId("Lamp"));
+            assertEquals("light", res.getType());
+            hue.updateAsync(res, JSON.build("/on/on", true).get()).get(10, SECONDS);
+            assertEquals(true, JSON.get(sim.getResource(res.getId()), "/on/on"));
+            assertEquals(1, sim.getUpdates());
+            BlockingQueue<String> frames = new LinkedBlockingQueue<>();
+            Thread thread = new Thread(()->
+            {
+                try
+                {
+                    hue.eventData(frames::add);
+                }
+                catch (IOException ex)
+                {
+                }
+            });
+            thread.setDaemon(true);
+            thread.start();
+            while (sim.getStreams() == 0)
+            {
+                Thread.sleep(10);
+            }
+            sim.motion("Sensor", true);
+            String frame = frames.poll(10, SECONDS);
+            assertNotNull(frame);
+            JSONObject ev = new JSONArray(frame).getJSONObject(0).getJSONArray("data").getJSONObject(0);
+            assertEquals("motion", ev.getString("type"));
+            assertEquals(true, JSON.get(ev, "/motion/motion"));
+            thread.interrupt();
+        }
+        finally
+        {
+            pool.shutdownNow();
+        }
+    }
+    @Test
+    public void testRateLimit() throws Exception
+    {
+        try (BridgeSimulator sim = new BridgeSimulator())
+        {
+            String id = sim.addLight("Lamp");
+            sim.setRateLimit("light", 1, 1);
+            UrlConnectionTransport transport = new UrlConnectionTransport(sim.getAddress(), sim.getAppKey());
+            transport.request("PUT", "/clip/v2/resource/light/"+id, JSON.build("/on/on", true).get());
+            assertThrows(IOException.class, ()->transport.request("PUT", "/clip/v2/resource/light/"+id, JSON.build("/on/on", false).get()));
+            assertEquals(1, sim.getUpdates());
+            assertEquals(1, sim.getRejected());
+            UrlConnectionTransport wrongKey = new UrlConnectionTransport(sim.getAddress(), "wrong");
+            assertThrows(IOException.class, ()->wrongKey.request("GET", "/clip/v2/resource", null));
+        }
+    }
+    @Test
+    public void testAuthenticate() throws Exception
+    {
+        try (BridgeSimulator sim = new BridgeSimulator())
+        {
+            sim.setLinkButton(false);
+            assertEquals("link button not pressed", JSON.get(authenticate(sim), "/0/error/description"));
+            sim.setLinkButton(true);
+            assertEquals(sim.getAppKey(), JSON.get(authenticate(sim), "/0/success/username"));
+        }
+    }
+    private Object authenticate(BridgeSimulator sim) throws IOException
+    {
+        HttpsURLConnection con = UrlConnectionTransport.getHttpsUrlConnection(sim.getAddress(), "/api");
+        con.setDoOutput(true);
+        con.setRequestMethod("POST");
+        try (OutputStream os = con.getOutputStream())
+        {
+            os.write("{\"devicetype\":\"test#test\",\"generateclientkey\":true}".getBytes(UTF_8));
+        }
+        return UrlConnectionTransport.fetch(con);
+    }
+}
@@ -0,0 +1,118 @@
+/*
+ * Copyright (C) 2026 Timo Vesalainen <timo.vesalainen@iki.fi>
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.vesalainen.home.hue;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import org.json.JSONArray;
+import org.json.JSONObject;
+import org.json.JSONPointer;
+import org.json.JSONTokener;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Compares EventDecoder to building json tree and querying pointers.
+ * @author Timo Vesalainen <timo.vesalainen@iki.fi>
+ */
+public class EventDecoderT
+{
+    private static final JSONPointer RID = new JSONPointer("/owner/rid");
+    private static final JSONPointer ONON = new JSONPointer("/on/on");
+    private static final JSONPointer BRIGHTNESS = new JSONPointer("/dimming/brightness");
+    private static final JSONPointer MIREK = new JSONPointer("/color_temperature/mirek");
+    private static final int ROUNDS = 5;
+    private static final int COUNT = 200000;
+    private long sink;
+    private ResourceStateCache cache;
+    
+    public EventDecoderT()
+    {
+    }
+
+    @Test
+    public void test1()
+    {
+        String frame = EventDecoderTest.FRAME;
+        EventDecoder decoder = new EventDecoder();
+        // state cache is updated in both paths as event handling does
+        JSONArray resources = new JSONArray();
+        for (Object o : (JSONArray) new JSONTokener(frame).nextValue())
+        {
+            for (Object d : ((JSONObject)o).getJSONArray("data"))
+            {
+                resources.put(new JSONObject().put("id", ((JSONObject)d).getString("id")));
+            }
+        }
+        cache = new ResourceStateCache(resources);
+        for (int round=0;round<ROUNDS;round++)
+        {
+            long allocTree = allocated();
+            long start = System.nanoTime();
+            for (int ii=0;ii<COUNT;ii++)
+            {
+                tree(frame);
+            }
+            long tree = System.nanoTime() - start;
+            allocTree = allocated() - allocTree;
+            long allocDecoder = allocated();
+            start = System.nanoTime();
+            for (int ii=0;ii<COUNT;ii++)
+            {
+                decoder.decode(frame, this::consume);
+            }
+            long dec = System.nanoTime() - start;
+            allocDecoder = allocated() - allocDecoder;
+            System.err.printf("tree %d ns/op %d B/op decoder %d ns/op %d B/op\n", 
+                    tree/COUNT, allocTree/COUNT, 
+                    dec/COUNT, allocDecoder/COUNT);
+        }
+        System.err.println(sink);
+    }
+    private void tree(String frame)
+    {
+        JSONArray ja = (JSONArray) new JSONTokener(frame).nextValue();
+        for (Object o : ja)
+        {
+            JSONArray data = ((JSONObject)o).getJSONArray("data");
+            for (Object d : data)
+            {
+                JSONObject jo = (JSONObject) d;
+                String rid = (String) RID.queryFrom(jo);
+                String type = jo.getString("type");
+                Object on = jo.optQuery(ONON);
+                Object br = jo.optQuery(BRIGHTNESS);
+                Object mi = jo.optQuery(MIREK);
+                cache.update(jo);
+                sink += rid.length() + type.length() + (on != null ? 1 : 0) + (br != null ? 1 : 0) + (mi != null ? 1 : 0);
+            }
+        }
+    }
+    private void consume(HueEvent ev)
+    {
+        cache.update(ev);
+        sink += ev.getOwnerRid().length() + ev.getType().length() + (ev.hasOn() ? 1 : 0) + (ev.hasBrightness() ? 1 : 0) + (ev.hasMirek() ? 1 : 0);
+    }
+    private static long allocated()
+    {
+        ThreadMXBean bean = ManagementFactory.getThreadMXBean();
+        if (bean instanceof com.sun.management.ThreadMXBean)
+        {
+            return ((com.sun.management.ThreadMXBean)bean).getThreadAllocatedBytes(Thread.currentThread().getId());
+        }
+        return 0;
+    }
+}
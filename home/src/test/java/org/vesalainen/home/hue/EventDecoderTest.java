@@ -0,0 +1,125 @@
+/*
+ * Copyright (C) 2026 Timo Vesalainen <timo.vesalainen@iki.fi>
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.vesalainen.home.hue;
+
+import java.util.ArrayList;
+import java.util.List;
+import org.json.JSONArray;
+import org.junit.jupiter.api.Test;
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ *
+ * @author Timo Vesalainen <timo.vesalainen@iki.fi>
+ */
+public class EventDecoderTest
+{
+    static final String FRAME = 
+            "[{\"creationtime\":\"2024-01-01T10:00:00Z\",\"data\":["
+            + "{\"id\":\"l1\",\"id_v1\":\"/lights/1\",\"owner\":{\"rid\":\"d1\",\"rtype\":\"device\"},"
+            + "\"color_temperature\":{\"mirek\":366,\"mirek_valid\":true},"
+            + "\"color\":{\"xy\":{\"x\":0.4573,\"y\":0.41}},\"type\":\"light\"},"
+            + "{\"id\":\"g1\",\"owner\":{\"rid\":\"r1\",\"rtype\":\"room\"},\"on\":{\"on\":true},"
+            + "\"dimming\":{\"brightness\":39.37},\"type\":\"grouped_light\"}"
+            + "],\"id\":\"e1\",\"type\":\"update\"},"
+            + "{\"data\":[{\"id\":\"m1\",\"owner\":{\"rid\":\"d2\",\"rtype\":\"device\"},"
+            + "\"motion\":{\"motion\":false,\"motion_report\":{\"changed\":\"2024-01-01T10:00:00.1Z\",\"motion\":true}},"
+            + "\"type\":\"motion\"},"
+            + "{\"id\":\"ll1\",\"owner\":{\"rid\":\"d3\",\"rtype\":\"device\"},"
+            + "\"light\":{\"light_level\":12345,\"light_level_valid\":true},\"type\":\"light_level\"},"
+            + "{\"id\":\"l2\",\"owner\":{\"rid\":\"d4\",\"rtype\":\"device\"},"
+            + "\"color_temperature\":{\"mirek\":null,\"mirek_valid\":false},\"type\":\"light\","
+            + "\"name\":\"a \\\"quoted\\\" [name]\",\"dimming\":{\"brightness\":1e2}}"
+            + "],\"id\":\"e2\",\"type\":\"update\"}]";
+    
+    public EventDecoderTest()
+    {
+    }
+
+    @Test
+    public void test1()
+    {
+        EventDecoder decoder = new EventDecoder();
+        List<String> list = new ArrayList<>();
+        List<HueEvent> events = new ArrayList<>();
+        decoder.decode(FRAME, (ev)->
+        {
+            events.add(ev);
+            switch (ev.getId())
+            {
+                case "l1":
+                    assertEquals("light", ev.getType());
+                    assertEquals("d1", ev.getOwnerRid());
+                    assertTrue(ev.hasMirek());
+                    assertEquals(366, ev.getMirek());
+                    assertTrue(ev.hasColor());
+                    assertEquals(0.4573, ev.getColorX(), 1e-10);
+                    assertEquals(0.41, ev.getColorY(), 1e-10);
+                    assertFalse(ev.hasOn());
+                    assertFalse(ev.hasBrightness());
+                    break;
+                case "g1":
+                    assertEquals("grouped_light", ev.getType());
+                    assertEquals("r1", ev.getOwnerRid());
+                    assertTrue(ev.hasOn());
+                    assertTrue(ev.isOn());
+                    assertEquals(39.37, ev.getBrightness(), 1e-10);
+                    assertFalse(ev.hasMirek());
+                    assertFalse(ev.hasColor());
+                    break;
+                case "m1":
+                    assertEquals("motion", ev.getType());
+                    assertTrue(ev.hasMotion());
+                    assertTrue(ev.isMotion());
+                    assertFalse(ev.hasOn());
+                    break;
+                case "ll1":
+                    assertTrue(ev.hasLightLevel());
+                    assertEquals(12345, ev.getLightLevel());
+                    assertFalse(ev.hasMotion());
+                    break;
+                case "l2":
+                    assertFalse(ev.hasMirek());
+                    assertEquals(100, ev.getBrightness(), 1e-10);
+                    break;
+                default:
+                    fail(ev.getId());
+            }
+            list.add(ev.getId());
+        });
+        assertEquals(5, list.size());
+        assertSame(events.get(0), events.get(4));
+    }
+    @Test
+    public void testIllegal()
+    {
+        EventDecoder decoder = new EventDecoder();
+        assertThrows(IllegalArgumentException.class, ()->decoder.decode("[{\"data\":[{\"id\":", (ev)->{}));
+        assertThrows(IllegalArgumentException.class, ()->decoder.decode("{}", (ev)->{}));
+        decoder.decode("[]", (ev)->fail());
+    }
+    @Test
+    public void testToJSON()
+    {
+        EventDecoder decoder = new EventDecoder();
+        ResourceStateCache cache = new ResourceStateCache(new JSONArray("[{\"id\":\"g1\",\"type\":\"grouped_light\",\"on\":{\"on\":false}}]"));
+        decoder.decode(FRAME, (ev)->cache.update(ev));
+        ResourceStateCache.Snapshot snapshot = cache.get("g1");
+        assertTrue(snapshot.isOn());
+        assertEquals(39.37, snapshot.getBrightness(), 1e-10);
+    }
+}
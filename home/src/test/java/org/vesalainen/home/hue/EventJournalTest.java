@@ -0,0 +1,132 @@
+/*
+ * Copyright (C) 2026 Timo Vesalainen <timo.vesalainen@iki.fi>
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.vesalainen.home.hue;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import static java.nio.file.StandardOpenOption.*;
+import org.junit.jupiter.api.Test;
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ *
+ * @author Timo Vesalainen <timo.vesalainen@iki.fi>
+ */
+public class EventJournalTest
+{
+    
+    public EventJournalTest()
+    {
+    }
+
+    @Test
+    public void test1() throws IOException
+    {
+        Path path = Files.createTempFile("journal", ".dat");
+        Files.delete(path);
+        try
+        {
+            try (EventJournal.Writer writer = new EventJournal.Writer(path, 64))
+            {
+                writer.append(EventJournal.RESOURCES, 1, "[]");
+                for (int ii=0;ii<100;ii++)
+                {
+                    writer.append(EventJournal.FRAME, 100+ii, "frameä"+ii);
+                }
+            }
+            assertEquals(8+13+2+100*13+10*8+90*9, Files.size(path));
+            try (EventJournal.Writer writer = new EventJournal.Writer(path, 64))
+            {
+                writer.append(EventJournal.FRAME, 200, "last");
+            }
+            try (EventJournal.Reader reader = new EventJournal.Reader(path, 32))
+            {
+                assertTrue(reader.next());
+                assertEquals(EventJournal.RESOURCES, reader.getType());
+                assertEquals(1, reader.getTime());
+                assertEquals("[]", reader.getData());
+                for (int ii=0;ii<100;ii++)
+                {
+                    assertTrue(reader.next());
+                    assertEquals(EventJournal.FRAME, reader.getType());
+                    assertEquals(100+ii, reader.getTime());
+                    assertEquals("frameä"+ii, reader.getData());
+                }
+                assertTrue(reader.next());
+                assertEquals("last", reader.getData());
+                assertFalse(reader.next());
+            }
+        }
+        finally
+        {
+            Files.deleteIfExists(path);
+        }
+    }
+    @Test
+    public void testZeroTail() throws IOException
+    {
+        Path path = Files.createTempFile("journal", ".dat");
+        Files.delete(path);
+        try
+        {
+            try (EventJournal.Writer writer = EventJournal.append(path))
+            {
+                writer.append("a");
+                writer.append("b");
+            }
+            try (FileChannel ch = FileChannel.open(path, WRITE, APPEND))
+            {
+                ch.write(ByteBuffer.allocate(100));
+            }
+            try (EventJournal.Writer writer = EventJournal.append(path))
+            {
+                writer.append("c");
+            }
+            try (EventJournal.Reader reader = EventJournal.read(path))
+            {
+                assertTrue(reader.next());
+                assertEquals("a", reader.getData());
+                assertTrue(reader.next());
+                assertEquals("b", reader.getData());
+                assertTrue(reader.next());
+                assertEquals("c", reader.getData());
+                assertFalse(reader.next());
+            }
+        }
+        finally
+        {
+            Files.deleteIfExists(path);
+        }
+    }
+    @Test
+    public void testIllegal() throws IOException
+    {
+        Path path = Files.createTempFile("journal", ".dat");
+        try
+        {
+            Files.write(path, "not a journal".getBytes());
+            assertThrows(IOException.class, ()->EventJournal.read(path));
+        }
+        finally
+        {
+            Files.deleteIfExists(path);
+        }
+    }
+}
@@ -0,0 +1,252 @@
+/*
+ * Copyright (C) 2026 Timo Vesalainen <timo.vesalainen@iki.fi>
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.vesalainen.home.hue;
+
+import java.io.IOException;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import org.json.JSONArray;
+import org.json.JSONObject;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.vesalainen.home.Metrics;
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ *
+ * @author Timo Vesalainen <timo.vesalainen@iki.fi>
+ */
+public class EventManagerTest
+{
+    private static final int LIGHTS = 3;
+    private static final int MOTIONS = 2;
+    private final AtomicLong clock = new AtomicLong();
+    private final List<JSONObject> puts = new ArrayList<>();
+    private final List<String> occupancy = new CopyOnWriteArrayList<>();
+    private ScheduledExecutorService pool;
+    private ExecutorService io;
+    private Hue hue;
+    private EventManager manager;
+    
+    public EventManagerTest()
+    {
+    }
+    
+    @BeforeEach
+    public void setUp() throws IOException
+    {
+        pool = Executors.newSingleThreadScheduledExecutor();
+        io = Executors.newSingleThreadExecutor();
+        hue = new Hue("test", pool, UpdateQueue.clock(pool), io, "stub", "stub", (ip, key)->new StubTransport());
+        manager = new EventManager(Paths.get("src/test/resources/motions.xml"));
+        manager.init(hue, clock::get);
+        manager.addOccupancyListener((occupied, sensor)->occupancy.add(occupied+" "+sensor));
+    }
+    
+    @AfterEach
+    public void tearDown()
+    {
+        manager.stop();
+        hue.close();
+        io.shutdownNow();
+        pool.shutdownNow();
+    }
+    /**
+     * Enter, exit, re-enter and overlapping sensors.
+     * @throws Exception 
+     */
+    @Test
+    public void testOccupancy() throws Exception
+    {
+        assertFalse(manager.isOccupied());
+        // enter
+        motion(0, true);
+        assertTrue(manager.isOccupied());
+        assertEquals(1, occupancy.size());
+        assertEquals("true Motion 0", occupancy.get(0));
+        // exit arms Motion 0 exit
+        motion(0, false);
+        assertFalse(manager.isOccupied());
+        assertEquals(2, occupancy.size());
+        assertEquals("false Motion 0", occupancy.get(1));
+        // re-enter before delay cancels armed exit
+        advance(30);
+        motion(0, true);
+        assertTrue(manager.isOccupied());
+        assertEquals(3, occupancy.size());
+        assertEquals("true Motion 0", occupancy.get(2));
+        advance(120);
+        assertFalse(lightOff(2));
+        // overlapping sensors. No transitions and no exit while other is on
+        motion(1, true);
+        motion(1, true);
+        motion(0, false);
+        assertTrue(manager.isOccupied());
+        assertEquals(3, occupancy.size());
+        advance(120);
+        assertFalse(lightOff(2));
+        // last exit arms Motion 1 exit
+        motion(1, false);
+        assertFalse(manager.isOccupied());
+        assertEquals(4, occupancy.size());
+        assertEquals("false Motion 1", occupancy.get(3));
+        // entering from other sensor cancels it
+        advance(30);
+        motion(0, true);
+        assertTrue(manager.isOccupied());
+        assertEquals(5, occupancy.size());
+        assertEquals("true Motion 0", occupancy.get(4));
+        advance(120);
+        assertFalse(lightOff(2));
+        // armed exit is run after delay
+        motion(0, false);
+        assertFalse(manager.isOccupied());
+        assertEquals(6, occupancy.size());
+        assertEquals("false Motion 0", occupancy.get(5));
+        advance(30);
+        assertFalse(lightOff(2));
+        advance(60);
+        assertTrue(lightOff(2));
+    }
+    /**
+     * Events for configured rids reach their device or motion. Others are
+     * dropped.
+     * @throws Exception 
+     */
+    @Test
+    public void testRoutes() throws Exception
+    {
+        LongAdder dropped = Metrics.getDefault().counter("event.dropped");
+        long count = dropped.sum();
+        // unknown sensor and light
+        event(JSON.build("/type", "motion").set("/id", "m9").set("/owner/rid", "ds9").set("/motion/motion", true).get());
+        event(JSON.build("/type", "light").set("/id", "l9").set("/owner/rid", "dl9").set("/on/on", false).get());
+        assertEquals(count + 2, dropped.sum());
+        assertFalse(manager.isOccupied());
+        assertTrue(occupancy.isEmpty());
+        // light state reaches device. Light 2 is already off when exit runs.
+        // Otherwise it is set off as in testOccupancy
+        event(JSON.build("/type", "grouped_light").set("/id", "gl2").set("/owner/rid", "dl2").set("/on/on", false).get());
+        motion(0, true);
+        assertTrue(manager.isOccupied());
+        assertEquals("true Motion 0", occupancy.get(0));
+        motion(0, false);
+        advance(90);
+        assertFalse(lightOff(2));
+        assertEquals(count + 2, dropped.sum());
+    }
+    private void motion(int ii, boolean on) throws Exception
+    {
+        event(JSON.build("/type", "motion").set("/id", "m"+ii).set("/owner/rid", "ds"+ii).set("/motion/motion", on).get());
+    }
+    private void event(JSONObject ev) throws Exception
+    {
+        manager.event(frame(ev));
+        sync();
+    }
+    private void advance(int seconds) throws Exception
+    {
+        clock.addAndGet(TimeUnit.SECONDS.toNanos(seconds));
+        manager.tick();
+        sync();
+    }
+    private void sync() throws Exception
+    {
+        manager.sync();
+        long timeout = System.currentTimeMillis() + 5000;
+        while (hue.getUpdateQueue().size() > 0 && System.currentTimeMillis() < timeout)
+        {
+            Thread.sleep(10);
+        }
+        pool.submit(()->{}).get();
+        io.submit(()->{}).get();
+    }
+    /**
+     * Returns true if light off was put after last call.
+     * @param ii
+     * @return 
+     */
+    private boolean lightOff(int ii)
+    {
+        synchronized(puts)
+        {
+            boolean off = false;
+            for (JSONObject put : puts)
+            {
+                if (("/clip/v2/resource/light/l"+ii).equals(put.getString("path")) && Boolean.FALSE.equals(JSON.get(put, "/body/on/on")))
+                {
+                    off = true;
+                }
+            }
+            puts.clear();
+            return off;
+        }
+    }
+    private static String frame(JSONObject ev)
+    {
+        JSONObject envelope = new JSONObject()
+                .put("type", "update")
+                .put("data", new JSONArray().put(ev));
+        return new JSONArray().put(envelope).toString();
+    }
+    private class StubTransport implements HueTransport
+    {
+        @Override
+        public Object request(String method, String path, JSONObject body) throws IOException
+        {
+            if ("GET".equals(method))
+            {
+                // parsed like bridge response
+                return new JSONObject(new JSONObject().put("data", resources()).toString());
+            }
+            synchronized(puts)
+            {
+                puts.add(new JSONObject().put("path", path).put("body", body));
+            }
+            return new JSONObject();
+        }
+        
+    }
+    private static JSONArray resources()
+    {
+        JSONArray ja = new JSONArray();
+        for (int ii=0;ii<LIGHTS;ii++)
+        {
+            ja.put(JSON.build("/id", "dl"+ii).set("/type", "device").set("/metadata/name", "Light "+ii).get()
+                    .put("services", new JSONArray().put(new JSONObject().put("rid", "l"+ii))));
+            ja.put(JSON.build("/id", "l"+ii).set("/type", "light").set("/owner/rid", "dl"+ii)
+                    .set("/on/on", true).set("/dimming/brightness", 50.2).set("/color_temperature/mirek", 300).get());
+        }
+        for (int ii=0;ii<MOTIONS;ii++)
+        {
+            ja.put(JSON.build("/id", "ds"+ii).set("/type", "device").set("/metadata/name", "Motion "+ii).get()
+                    .put("services", new JSONArray().put(new JSONObject().put("rid", "m"+ii)).put(new JSONObject().put("rid", "ll"+ii))));
+            ja.put(JSON.build("/id", "m"+ii).set("/type", "motion").set("/owner/rid", "ds"+ii).set("/motion/motion", false).get());
+            ja.put(JSON.build("/id", "ll"+ii).set("/type", "light_level").set("/owner/rid", "ds"+ii).set("/light/light_level", 100).get());
+        }
+        return ja;
+    }
+}
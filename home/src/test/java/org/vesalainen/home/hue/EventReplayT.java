@@ -0,0 +1,144 @@
+/*
+ * Copyright (C) 2026 Timo Vesalainen <timo.vesalainen@iki.fi>
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.vesalainen.home.hue;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Random;
+import org.json.JSONArray;
+import org.json.JSONObject;
+import static org.junit.jupiter.api.Assertions.*;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Replays synthetic day of events with replay.xml configuration.
+ * @author Timo Vesalainen <timo.vesalainen@iki.fi>
+ */
+public class EventReplayT
+{
+    private static final int DEVICES = 4;
+    private static final int FRAMES = 100000;
+    
+    public EventReplayT()
+    {
+    }
+
+    @Test
+    public void test1() throws Exception
+    {
+        Path path = journal(FRAMES);
+        try
+        {
+            EventReplay replay = new EventReplay(Paths.get("src/test/resources/replay.xml"), path, 0, false);
+            replay.run();
+            System.err.println(replay);
+        }
+        finally
+        {
+            Files.deleteIfExists(path);
+        }
+    }
+    /**
+     * Update counts should not depend on replay speed or threading model.
+     * @throws Exception 
+     */
+    @Test
+    public void testSpeeds() throws Exception
+    {
+        Path path = journal(FRAMES/10);
+        try
+        {
+            long updates = -1;
+            for (boolean actors : new boolean[]{false, true})
+            {
+                for (double speed : new double[]{1000, 100, 0})
+                {
+                    EventReplay replay = new EventReplay(Paths.get("src/test/resources/replay.xml"), path, speed, actors);
+                    replay.run();
+                    System.err.println("actors="+actors+" speed="+speed+" "+replay);
+                    if (updates < 0)
+                    {
+                        updates = replay.getUpdates();
+                    }
+                    assertEquals(updates, replay.getUpdates());
+                }
+            }
+        }
+        finally
+        {
+            Files.deleteIfExists(path);
+        }
+    }
+    private Path journal(int count) throws IOException
+    {
+        Path path = Files.createTempFile("journal", ".dat");
+        Files.delete(path);
+        try (EventJournal.Writer writer = EventJournal.append(path))
+        {
+            writer.append(EventJournal.RESOURCES, 0, resources().toString());
+            Random random = new Random(1234);
+            long time = 0;
+            for (int ii=0;ii<count;ii++)
+            {
+                time += random.nextInt(1000);
+                int dev = random.nextInt(DEVICES);
+                JSONObject ev;
+                switch (random.nextInt(3))
+                {
+                    case 0:
+                        ev = JSON.build("/type", "motion").set("/id", "m"+dev).set("/owner/rid", "ds"+dev).set("/motion/motion", random.nextBoolean()).get();
+                        break;
+                    case 1:
+                        ev = JSON.build("/type", "light_level").set("/id", "ll"+dev).set("/owner/rid", "ds"+dev).set("/light/light_level", random.nextInt(30000)).get();
+                        break;
+                    default:
+                        ev = JSON.build("/type", "light").set("/id", "l"+dev).set("/owner/rid", "dl"+dev).set("/on/on", random.nextBoolean()).set("/dimming/brightness", random.nextInt(1000)/10.0+0.1).get();
+                        break;
+                }
+                writer.append(EventJournal.FRAME, time, frame(ev));
+            }
+        }
+        return path;
+    }
+    private static String frame(JSONObject ev)
+    {
+        JSONObject envelope = new JSONObject()
+                .put("creationtime", "2024-01-01T00:00:00Z")
+                .put("id", "e")
+                .put("type", "update")
+                .put("data", new JSONArray().put(ev));
+        return new JSONArray().put(envelope).toString();
+    }
+    private static JSONArray resources()
+    {
+        JSONArray ja = new JSONArray();
+        for (int ii=0;ii<DEVICES;ii++)
+        {
+            ja.put(JSON.build("/id", "dl"+ii).set("/type", "device").set("/metadata/name", "Light "+ii).get()
+                    .put("services", new JSONArray().put(new JSONObject().put("rid", "l"+ii))));
+            ja.put(JSON.build("/id", "l"+ii).set("/type", "light").set("/owner/rid", "dl"+ii)
+                    .set("/on/on", false).set("/dimming/brightness", 50.2).set("/color_temperature/mirek", 300).get());
+            ja.put(JSON.build("/id", "ds"+ii).set("/type", "device").set("/metadata/name", "Motion "+ii).get()
+                    .put("services", new JSONArray().put(new JSONObject().put("rid", "m"+ii)).put(new JSONObject().put("rid", "ll"+ii))));
+            ja.put(JSON.build("/id", "m"+ii).set("/type", "motion").set("/owner/rid", "ds"+ii).set("/motion/motion", false).get());
+            ja.put(JSON.build("/id", "ll"+ii).set("/type", "light_level").set("/owner/rid", "ds"+ii).set("/light/light_level", 100).get());
+        }
+        return ja;
+    }
+}
@@ -0,0 +1,70 @@
+/*
+ * Copyright (C) 2026 Timo Vesalainen <timo.vesalainen@iki.fi>
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.vesalainen.home.hue;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.util.ArrayList;
+import java.util.List;
+import org.junit.jupiter.api.Test;
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ *
+ * @author Timo Vesalainen <timo.vesalainen@iki.fi>
+ */
+public class EventStreamReaderTest
+{
+    
+    public EventStreamReaderTest()
+    {
+    }
+
+    @Test
+    public void test1() throws IOException
+    {
+        String stream = 
+                ": hi\n" +
+                "\n" +
+                "id: 1:0\n" +
+                "data: [{\"a\":1}]\n" +
+                "\n" +
+                "retry: 3000\n" +
+                "id: 2:0\r\n" +
+                "data: [{\"b\":1},\r\n" +
+                "data:{\"c\":2}]\r\n" +
+                "\r\n" +
+                "id: 3:0\n" +
+                "data: incomplete";
+        EventStreamReader reader = new EventStreamReader();
+        List<String> ids = new ArrayList<>();
+        List<String> datas = new ArrayList<>();
+        reader.read(new StringReader(stream), (id, data)->
+        {
+            ids.add(id);
+            datas.add(data);
+        });
+        assertEquals(2, datas.size());
+        assertEquals("1:0", ids.get(0));
+        assertEquals("[{\"a\":1}]", datas.get(0));
+        assertEquals("2:0", ids.get(1));
+        assertEquals("[{\"b\":1},\n{\"c\":2}]", datas.get(1));
+        assertEquals("2:0", reader.getLastEventId());
+        assertEquals(3000, reader.getRetry());
+    }
+    
+}
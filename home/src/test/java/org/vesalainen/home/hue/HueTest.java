@@ -0,0 +1,174 @@
+/*
+ * Copyright (C) 2026 Timo Vesalainen <timo.vesalainen@iki.fi>
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.vesalainen.home.hue;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import org.json.JSONArray;
+import org.json.JSONObject;
+import org.junit.jupiter.api.Test;
+import org.vesalainen.home.Metrics;
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ *
+ * @author Timo Vesalainen <timo.vesalainen@iki.fi>
+ */
+public class HueTest
+{
+    private static final int LIGHTS = 6;
+    
+    public HueTest()
+    {
+    }
+    /**
+     * Transport which never returns must not block caller or event thread.
+     * @throws Exception 
+     */
+    @Test
+    public void testBlockingTransport() throws Exception
+    {
+        CountDownLatch latch = new CountDownLatch(1);
+        ScheduledExecutorService pool = Executors.newSingleThreadScheduledExecutor();
+        Hue hue = new Hue("test", pool, "stub", "stub", (ip, key)->new StubTransport(()->
+        {
+            try
+            {
+                latch.await();
+            }
+            catch (InterruptedException ex)
+            {
+                throw new IOException(ex);
+            }
+        }));
+        try
+        {
+            hue.readAllResources();
+            List<CompletableFuture<Object>> futures = pool.submit(()->
+            {
+                List<CompletableFuture<Object>> list = new ArrayList<>();
+                for (int ii=1;ii<=LIGHTS;ii++)
+                {
+                    list.add(hue.updateAsync(hue.getResource("l"+ii), JSON.build("/on/on", true).get(), Priority.NORMAL));
+                }
+                return list;
+            }).get(1, TimeUnit.SECONDS);
+            assertEquals(LIGHTS, futures.size());
+            // event thread is free while requests are blocked
+            pool.submit(()->{}).get(1, TimeUnit.SECONDS);
+            for (CompletableFuture<Object> future : futures)
+            {
+                assertFalse(future.isDone());
+            }
+        }
+        finally
+        {
+            latch.countDown();
+            hue.close();
+            pool.shutdownNow();
+        }
+    }
+    /**
+     * Transport failure fails the returned future.
+     * @throws Exception 
+     */
+    @Test
+    public void testFailingTransport() throws Exception
+    {
+        ScheduledExecutorService pool = Executors.newSingleThreadScheduledExecutor();
+        Hue hue = new Hue("test", pool, "stub", "stub", (ip, key)->new StubTransport(()->
+        {
+            throw new IOException("bridge down");
+        }));
+        try
+        {
+            hue.readAllResources();
+            CompletableFuture<Object> future = pool.submit(()->hue.updateAsync(hue.getResource("l1"), JSON.build("/on/on", true).get(), Priority.NORMAL)).get();
+            ExecutionException ex = assertThrows(ExecutionException.class, ()->future.get(5, TimeUnit.SECONDS));
+            assertEquals(IOException.class, ex.getCause().getClass());
+        }
+        finally
+        {
+            hue.close();
+            pool.shutdownNow();
+        }
+    }
+    /**
+     * Restarted hue keeps histograms. Closed hue removes only its own gauge.
+     * @throws Exception 
+     */
+    @Test
+    public void testMetrics() throws Exception
+    {
+        ScheduledExecutorService pool = Executors.newSingleThreadScheduledExecutor();
+        Hue hue1 = new Hue("test", pool, "stub", "stub", (ip, key)->new StubTransport(()->{}));
+        Hue hue2 = new Hue("test", pool, "stub", "stub", (ip, key)->new StubTransport(()->{}));
+        try
+        {
+            Metrics metrics = Metrics.getDefault();
+            assertSame(hue1.getLatency(), hue2.getLatency());
+            assertSame(metrics.histogram("hue.put"), hue2.getLatency());
+            hue1.close();
+            assertTrue(metrics.toText().contains("hue.queue "));
+            hue2.close();
+            assertFalse(metrics.toText().contains("hue.queue "));
+        }
+        finally
+        {
+            hue1.close();
+            hue2.close();
+            pool.shutdownNow();
+        }
+    }
+    private interface Put
+    {
+        void put() throws IOException;
+    }
+    private static class StubTransport implements HueTransport
+    {
+        private final Put put;
+
+        public StubTransport(Put put)
+        {
+            this.put = put;
+        }
+        
+        @Override
+        public Object request(String method, String path, JSONObject body) throws IOException
+        {
+            if ("GET".equals(method))
+            {
+                JSONArray data = new JSONArray();
+                for (int ii=1;ii<=LIGHTS;ii++)
+                {
+                    data.put(JSON.build("/id", "l"+ii).set("/type", "light").get());
+                }
+                return new JSONObject().put("data", data);
+            }
+            put.put();
+            return new JSONObject();
+        }
+        
+    }
+}
@@ -61,5 +61,38 @@ public class JSONTest
         assertEquals("asd", JSON.get(obj, "/foo/1"));
         assertEquals(false, JSON.get(obj, "/foo/2"));
     }
+    @Test
+    public void testMerge()
+    {
+        JSONObject on = JSON.build("/on/on", true).get();
+        JSONObject target = JSON.merge(new JSONObject(), on);
+        JSON.merge(target, JSON.build("/dimming/brightness", 50).get());
+        JSON.merge(target, JSON.build("/on/on", false).get());
+        JSON.merge(target, JSON.build("/dimming/brightness", 60).get());
+        assertEquals(false, JSON.get(target, "/on/on"));
+        assertEquals(60, JSON.get(target, "/dimming/brightness"));
+        assertEquals(true, JSON.get(on, "/on/on"));
+    }
+    @Test
+    public void testGet()
+    {
+        JSONObject obj = new JSONObject("{\"a\":{\"b\":[1,{\"c\":2.5}],\"d/e\":true,\"n\":null}}");
+        assertEquals(1, JSON.get(obj, "/a/b/0"));
+        assertEquals(2.5, JSON.getDouble(obj, "/a/b/1/c", Double.NaN), 1e-10);
+        assertEquals(2, JSON.getInt(obj, "/a/b/1/c", -1));
+        assertTrue(JSON.getBoolean(obj, "/a/d~1e", false));
+        assertTrue(JSON.getBoolean(obj, "#/a/d~1e", false));
+        assertEquals(JSONObject.NULL, JSON.get(obj, "/a/n"));
+        assertNull(JSON.get(obj, "/a/x/y"));
+        assertNull(JSON.get(obj, "/a/b/2"));
+        assertNull(JSON.get(obj, "/a/b/x"));
+        assertNull(JSON.get(obj, "/a/b/0/c"));
+        assertEquals(-1, JSON.getInt(obj, "/a/n", -1));
+        assertEquals(-1, JSON.getInt(obj, "/a/d~1e", -1));
+        assertFalse(JSON.getBoolean(obj, "/x", false));
+        assertSame(obj, JSON.get(obj, ""));
+        assertSame(JSON.compile("/a/b/0"), JSON.compile("/a/b/0"));
+        assertThrows(IllegalArgumentException.class, ()->JSON.get(obj, "a:b"));
+    }
     
 }
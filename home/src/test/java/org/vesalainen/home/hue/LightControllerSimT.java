@@ -0,0 +1,117 @@
+/*
+ * Copyright (C) 2026 Timo Vesalainen <timo.vesalainen@iki.fi>
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.vesalainen.home.hue;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Random;
+import org.junit.jupiter.api.Test;
+import org.vesalainen.home.Metrics;
+
+/**
+ * Runs EventManager against bridge simulator with hundreds of lights and
+ * motion sensors.
+ * @author Timo Vesalainen <timo.vesalainen@iki.fi>
+ */
+public class LightControllerSimT
+{
+    private static final int ROOMS = 200;
+    private static final int EVENTS_PER_SECOND = 200;
+    private static final int SECONDS = 20;
+    
+    public LightControllerSimT()
+    {
+    }
+
+    @Test
+    public void test1() throws Exception
+    {
+        Path config = Files.createTempFile("sim", ".xml");
+        try (BridgeSimulator sim = new BridgeSimulator())
+        {
+            sim.setLatency(20);
+            StringBuilder sb = new StringBuilder();
+            sb.append("<hue><lights>");
+            sb.append("<level><point time=\"00:00\" value=\"10\"/><point time=\"12:00\" value=\"100\"/></level>");
+            sb.append("<temperature><point time=\"00:00\" value=\"500\"/><point time=\"12:00\" value=\"150\"/></temperature>");
+            for (int ii=0;ii<ROOMS;ii++)
+            {
+                sim.addLight("Light "+ii);
+                sim.addMotionSensor("Motion "+ii);
+                sb.append("<light name=\"Light ").append(ii).append("\" target=\"20000\" sensor=\"Motion ").append(ii).append("\"/>");
+            }
+            sb.append("</lights><motions>");
+            for (int ii=0;ii<ROOMS;ii++)
+            {
+                sb.append("<motion name=\"Motion ").append(ii).append("\"><action name=\"Light ").append(ii).append("\" delay=\"2 s\"/></motion>");
+            }
+            sb.append("</motions></hue>");
+            Files.write(config, sb.toString().getBytes(UTF_8));
+            EventManager em = new EventManager(config);
+            em.setBridge(sim.getAddress(), sim.getAppKey());
+            Thread thread = new Thread(()->
+            {
+                try
+                {
+                    em.start();
+                }
+                catch (Exception ex)
+                {
+                    ex.printStackTrace();
+                }
+            });
+            thread.setDaemon(true);
+            thread.start();
+            while (sim.getStreams() == 0)
+            {
+                Thread.sleep(100);
+            }
+            Random random = new Random(1234);
+            boolean[] motion = new boolean[ROOMS];
+            long start = System.nanoTime();
+            for (int ii=0;ii<EVENTS_PER_SECOND*SECONDS;ii++)
+            {
+                int room = random.nextInt(ROOMS);
+                if (random.nextBoolean())
+                {
+                    motion[room] = !motion[room];
+                    sim.motion("Motion "+room, motion[room]);
+                }
+                else
+                {
+                    sim.lightLevel("Motion "+room, random.nextInt(30000));
+                }
+                long due = start + (ii+1)*1000000000L/EVENTS_PER_SECOND;
+                long wait = due - System.nanoTime();
+                if (wait > 0)
+                {
+                    Thread.sleep(wait/1000000, (int) (wait%1000000));
+                }
+            }
+            Thread.sleep(3000);
+            System.err.printf("updates=%d rejected=%d\n%s", sim.getUpdates(), sim.getRejected(), Metrics.getDefault().toText());
+            thread.interrupt();
+            em.stop();
+        }
+        finally
+        {
+            Files.deleteIfExists(config);
+        }
+    }
+    
+}
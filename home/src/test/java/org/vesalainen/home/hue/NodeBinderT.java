@@ -0,0 +1,193 @@
+/*
+ * Copyright (C) 2026 Timo Vesalainen <timo.vesalainen@iki.fi>
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.vesalainen.home.hue;
+
+import java.lang.reflect.Constructor;
+import java.lang.reflect.Field;
+import java.util.List;
+import org.json.JSONObject;
+import org.json.XML;
+import org.junit.jupiter.api.Test;
+import org.vesalainen.home.hue.NodeBinderTest.Node;
+import org.vesalainen.home.hue.NodeBinderTest.Root;
+import org.vesalainen.util.ConvertUtility;
+
+/**
+ * Compares config binding with NodeBinder to the former reflective populate
+ * with 500 element configuration.
+ * @author Timo Vesalainen <timo.vesalainen@iki.fi>
+ */
+public class NodeBinderT
+{
+    private static final int GROUPS = 50;
+    private static final int ITEMS = 9;
+    private static final int ROUNDS = 200;
+    
+    public NodeBinderT()
+    {
+    }
+
+    @Test
+    public void test1()
+    {
+        StringBuilder sb = new StringBuilder("<root>");
+        for (int ii=0;ii<GROUPS;ii++)
+        {
+            sb.append("<group name=\"g").append(ii).append("\">");
+            for (int jj=0;jj<ITEMS;jj++)
+            {
+                if (jj % 3 == 0)
+                {
+                    sb.append("<special name=\"s").append(jj).append("\" delay=\"").append(jj).append("\" dim=\"50\"/>");
+                }
+                else
+                {
+                    sb.append("<item name=\"i").append(jj).append("\" delay=\"").append(jj).append("\"/>");
+                }
+            }
+            sb.append("</group>");
+        }
+        sb.append("</root>");
+        Object json = XML.toJSONObject(sb.toString()).get("root");
+        long t0 = System.nanoTime();
+        reflective(json);
+        long r1 = System.nanoTime() - t0;
+        t0 = System.nanoTime();
+        binder(json);
+        long b1 = System.nanoTime() - t0;
+        System.err.printf("first: reflective %d us binder %d us\n", r1/1000, b1/1000);
+        for (int round=0;round<5;round++)
+        {
+            t0 = System.nanoTime();
+            for (int ii=0;ii<ROUNDS;ii++)
+            {
+                reflective(json);
+            }
+            long r = (System.nanoTime() - t0)/ROUNDS;
+            t0 = System.nanoTime();
+            for (int ii=0;ii<ROUNDS;ii++)
+            {
+                binder(json);
+            }
+            long b = (System.nanoTime() - t0)/ROUNDS;
+            System.err.printf("reflective %d us binder %d us\n", r/1000, b/1000);
+        }
+    }
+    private void binder(Object json)
+    {
+        Root root = new Root(null, null);
+        JSON.walk(json, root::populate);
+    }
+    private void reflective(Object json)
+    {
+        Root root = new Root(null, null);
+        JSON.walk(json, (n, j)->populate(root, n, j));
+    }
+    /**
+     * Former EventManager.Node.populate
+     */
+    private static boolean populate(Node target, String name, Object json)
+    {
+        String pck = NodeBinderTest.class.getName();
+        try
+        {
+            if (json instanceof JSONObject)
+            {
+                String s = pck+"$"+name.substring(0, 1).toUpperCase()+name.substring(1);
+                Class<?> cls = Class.forName(s);
+                Constructor<?> cons = cls.getDeclaredConstructor(JSONObject.class, Node.class);
+                Node node = (Node) cons.newInstance(json, target);
+                JSON.walk(json, (n, j)->populate(node, n, j));
+                try
+                {
+                    fieldAdd(target, node);
+                }
+                catch (NoSuchFieldException ex)
+                {
+                    try
+                    {
+                        fieldSet(target, name, node);
+                    }
+                    catch (NoSuchFieldException e)
+                    {
+                        throw new IllegalArgumentException(name+" not assigned");
+                    }
+                }
+            }
+            else
+            {
+                try
+                {
+                    fieldSet(target, name, json);
+                }
+                catch (NoSuchFieldException ex1)
+                {
+                    throw new RuntimeException(ex1);
+                }
+            }
+        }
+        catch (ReflectiveOperationException | SecurityException | IllegalArgumentException ex)
+        {
+            throw new RuntimeException(ex);
+        }
+        return true;
+    }
+    private static void fieldSet(Node node, String name, Object value) throws NoSuchFieldException
+    {
+        Class<?> cls = node.getClass();
+        while (cls != null)
+        {
+            try
+            {
+                Field field = cls.getDeclaredField(name);
+                field.set(node, ConvertUtility.convert(field.getType(), value));
+                return;
+            }
+            catch (NoSuchFieldException | SecurityException | IllegalArgumentException | IllegalAccessException ex)
+            {
+            }
+            cls = cls.getSuperclass();
+        }
+        throw new NoSuchFieldException(name+" not found");
+    }
+    private static void fieldAdd(Node node, Node value) throws NoSuchFieldException
+    {
+        Class<?> nodeCls = node.getClass();
+        while (nodeCls != null)
+        {
+            Class<?> valueCls = value.getClass();
+            while (valueCls != null)
+            {
+                String name = valueCls.getSimpleName();
+                name = name.toLowerCase();
+                try
+                {
+                    Field field = nodeCls.getDeclaredField(name+"s");
+                    List<Node> list = (List) field.get(node);
+                    list.add(value);
+                    return;
+                }
+                catch (NoSuchFieldException | SecurityException | IllegalArgumentException | IllegalAccessException ex)
+                {
+                }
+                valueCls = valueCls.getSuperclass();
+            }
+            nodeCls = nodeCls.getSuperclass();
+        }
+        throw new NoSuchFieldException(value+" not found");
+    }
+}
@@ -0,0 +1,143 @@
+/*
+ * Copyright (C) 2026 Timo Vesalainen <timo.vesalainen@iki.fi>
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.vesalainen.home.hue;
+
+import java.util.ArrayList;
+import java.util.List;
+import org.json.JSONObject;
+import org.json.XML;
+import org.junit.jupiter.api.Test;
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ *
+ * @author Timo Vesalainen <timo.vesalainen@iki.fi>
+ */
+public class NodeBinderTest
+{
+    static final NodeBinder<Node> BINDER = new NodeBinder<>(Node.class, NodeBinderTest.class, JSONObject.class, Node.class);
+    
+    public NodeBinderTest()
+    {
+    }
+
+    @Test
+    public void test1()
+    {
+        String xml = "<root><group name=\"g1\"><item name=\"a\" delay=\"10\"/><special name=\"b\" delay=\"20\" dim=\"50\"/></group>"
+                + "<group name=\"g2\"><item name=\"c\" delay=\"30\"/></group><single name=\"s\"/></root>";
+        Root root = bind(xml);
+        assertEquals(2, root.groups.size());
+        Group g1 = root.groups.get(0);
+        assertEquals(2, g1.items.size());
+        Item a = g1.items.stream().filter((i)->i.name.equals("a")).findAny().get();
+        assertEquals(10, a.delay);
+        Special sp = (Special) g1.items.stream().filter((i)->i.name.equals("b")).findAny().get();
+        assertEquals(20, sp.delay);
+        assertEquals(50, sp.dim);
+        assertEquals("s", root.single.name);
+        assertThrows(IllegalArgumentException.class, ()->bind("<root><unknown/></root>"));
+        assertThrows(IllegalArgumentException.class, ()->bind("<root><group foo=\"1\"/></root>"));
+    }
+    static Root bind(String xml)
+    {
+        JSONObject jo = XML.toJSONObject(xml);
+        Root root = new Root(null, null);
+        JSON.walk(jo.get("root"), root::populate);
+        return root;
+    }
+    static class Node
+    {
+        protected JSONObject json;
+        protected Node parent;
+
+        public Node(JSONObject json, Node parent)
+        {
+            this.json = json;
+            this.parent = parent;
+        }
+        
+        final boolean populate(String name, Object json)
+        {
+            if (json instanceof JSONObject)
+            {
+                Node node = BINDER.create(name, json, this);
+                JSON.walk(json, node::populate);
+                if (!BINDER.add(this, node) && !BINDER.set(this, name, node))
+                {
+                    throw new IllegalArgumentException(name+" not assigned");
+                }
+            }
+            else
+            {
+                if (!BINDER.set(this, name, json))
+                {
+                    throw new IllegalArgumentException(name+" not found");
+                }
+            }
+            return true;
+        }
+    }
+    static class Root extends Node
+    {
+        protected List<Group> groups = new ArrayList<>();
+        protected Single single;
+        public Root(JSONObject json, Node parent)
+        {
+            super(json, parent);
+        }
+    }
+    static class Named extends Node
+    {
+        protected String name;
+        public Named(JSONObject json, Node parent)
+        {
+            super(json, parent);
+        }
+    }
+    static class Group extends Named
+    {
+        protected List<Item> items = new ArrayList<>();
+        public Group(JSONObject json, Node parent)
+        {
+            super(json, parent);
+        }
+    }
+    static class Single extends Named
+    {
+        public Single(JSONObject json, Node parent)
+        {
+            super(json, parent);
+        }
+    }
+    static class Item extends Named
+    {
+        protected long delay;
+        public Item(JSONObject json, Node parent)
+        {
+            super(json, parent);
+        }
+    }
+    static class Special extends Item
+    {
+        protected int dim;
+        public Special(JSONObject json, Node parent)
+        {
+            super(json, parent);
+        }
+    }
+}
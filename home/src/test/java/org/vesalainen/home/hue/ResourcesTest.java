@@ -0,0 +1,166 @@
+/*
+ * Copyright (C) 2026 Timo Vesalainen <timo.vesalainen@iki.fi>
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.vesalainen.home.hue;
+
+import java.util.Arrays;
+import org.json.JSONArray;
+import org.json.JSONObject;
+import org.junit.jupiter.api.Test;
+import static org.junit.jupiter.api.Assertions.*;
+import org.vesalainen.home.hue.Resources.Resource;
+
+/**
+ *
+ * @author Timo Vesalainen <timo.vesalainen@iki.fi>
+ */
+public class ResourcesTest
+{
+    
+    public ResourcesTest()
+    {
+    }
+
+    @Test
+    public void testEvent()
+    {
+        JSONArray ja = new JSONArray();
+        ja.put(JSON.build("/id", "l1")
+                .set("/type", "light")
+                .set("/on/on", false)
+                .set("/dimming/brightness", 10.0)
+                .get());
+        Resources resources = new Resources(ja);
+        Resource res = resources.getResource("l1");
+        assertEquals(false, res.getValue("/on/on"));
+        JSONObject ev = JSON.build("/type", "update").get();
+        ev.put("data", new JSONArray().put(JSON.build("/id", "l1")
+                .set("/type", "light")
+                .set("/on/on", true)
+                .get()));
+        resources.event(ev);
+        assertEquals(true, res.getValue("/on/on"));
+        assertEquals(10.0, ((Number)res.getValue("/dimming/brightness")).doubleValue());
+    }
+    @Test
+    public void testStateCache()
+    {
+        JSONArray ja = new JSONArray();
+        ja.put(JSON.build("/id", "l1")
+                .set("/type", "light")
+                .set("/on/on", false)
+                .set("/dimming/brightness", 10.0)
+                .set("/color_temperature/mirek", 300)
+                .get());
+        ja.put(JSON.build("/id", "m1")
+                .set("/type", "motion")
+                .set("/motion/motion", false)
+                .get());
+        ResourceStateCache cache = new ResourceStateCache(ja);
+        ResourceStateCache.Snapshot s0 = cache.get("l1");
+        assertTrue(s0.hasOn());
+        assertFalse(s0.isOn());
+        assertEquals(10.0, s0.getBrightness());
+        assertEquals(300, s0.getMirek());
+        assertEquals(-1, s0.getLightLevel());
+        assertTrue(cache.update(JSON.build("/id", "l1").set("/dimming/brightness", 55.5).get()));
+        assertTrue(cache.update(JSON.build("/id", "m1").set("/motion/motion", true).get()));
+        assertFalse(cache.update(JSON.build("/id", "x").set("/motion/motion", true).get()));
+        ResourceStateCache.Snapshot s1 = cache.get("l1");
+        assertEquals(1, s1.getVersion());
+        assertEquals(55.5, s1.getBrightness());
+        assertEquals(300, s1.getMirek());
+        assertEquals(10.0, s0.getBrightness());
+        assertEquals(10.0, ((Number)JSON.get(s0.getJson(), "/dimming/brightness")).doubleValue());
+        assertTrue(cache.get("m1").isMotion());
+        assertEquals(2, cache.getVersion());
+    }
+    @Test
+    public void testDecodedEvents()
+    {
+        JSONArray ja = new JSONArray();
+        ja.put(new JSONObject("{\"id\":\"l1\",\"type\":\"light\",\"on\":{\"on\":false},"
+                + "\"dimming\":{\"brightness\":10.0},\"status\":\"connected\"}"));
+        ResourceStateCache cache = new ResourceStateCache(ja);
+        EventDecoder decoder = new EventDecoder();
+        decoder.decode("[{\"type\":\"update\",\"data\":[{\"id\":\"l1\",\"type\":\"light\","
+                + "\"on\":{\"on\":true},\"status\":\"connectivity_issue\","
+                + "\"color\":{\"gamut_type\":\"C\"}}]}]", cache::update);
+        ResourceStateCache.Snapshot s1 = cache.get("l1");
+        assertTrue(s1.isOn());
+        assertEquals(10.0, s1.getBrightness());
+        // undecoded fields are merged too
+        assertEquals("connectivity_issue", JSON.get(s1.getJson(), "/status"));
+        assertEquals("C", JSON.get(s1.getJson(), "/color/gamut_type"));
+        assertEquals(true, JSON.get(s1.getJson(), "/on/on"));
+        assertEquals(10.0, ((Number)JSON.get(s1.getJson(), "/dimming/brightness")).doubleValue());
+        for (int ii=0;ii<1000;ii++)
+        {
+            decoder.decode("[{\"type\":\"update\",\"data\":[{\"id\":\"l1\",\"type\":\"light\","
+                    + "\"dimming\":{\"brightness\":"+ii+"}}]}]", cache::update);
+        }
+        ResourceStateCache.Snapshot s2 = cache.get("l1");
+        assertEquals(1001, s2.getVersion());
+        assertEquals(999.0, s2.getBrightness());
+        assertEquals(999.0, ((Number)JSON.get(s2.getJson(), "/dimming/brightness")).doubleValue());
+        assertEquals("connectivity_issue", JSON.get(s2.getJson(), "/status"));
+    }
+    @Test
+    public void testKeyIndex()
+    {
+        JSONArray ja = new JSONArray();
+        ja.put(new JSONObject("{\"id\":\"room\",\"type\":\"room\",\"metadata\":{\"name\":\"Kitchen\"},"
+                + "\"services\":[{\"rid\":\"g1\"}],\"children\":[{\"rid\":\"d1\"},{\"rid\":\"d2\"}]}"));
+        ja.put(new JSONObject("{\"id\":\"d1\",\"type\":\"device\",\"metadata\":{\"name\":\"Lamp\"},"
+                + "\"services\":[{\"rid\":\"l1\"},{\"rid\":\"missing\"}]}"));
+        ja.put(new JSONObject("{\"id\":\"d2\",\"type\":\"device\",\"metadata\":{\"name\":\"Spot\"},"
+                + "\"services\":[{\"rid\":\"l2\"}]}"));
+        ja.put(JSON.build("/id", "g1").set("/type", "grouped_light").set("/on/on", true).set("/dimming/brightness", 1.0).get());
+        ja.put(JSON.build("/id", "l1").set("/type", "light").set("/on/on", true).set("/dimming/brightness", 1.0).set("/color_temperature/mirek", 300).get());
+        ja.put(JSON.build("/id", "l2").set("/type", "light").set("/on/on", true).set("/dimming/brightness", 1.0).get());
+        Resources resources = new Resources(ja);
+        Resource l1 = resources.getResource("l1");
+        Resource g1 = resources.getResource("g1");
+        assertEquals(3, resources.getResourcesWithKeys(Arrays.asList("/on/on", "/dimming/brightness")).size());
+        assertEquals(1, resources.getResourcesWithKeys(Arrays.asList("/on/on", "/color_temperature/mirek")).size());
+        assertTrue(resources.getResourcesWithKeys(Arrays.asList("/on/on", "/xxx")).isEmpty());
+        assertEquals(Arrays.asList(g1), resources.getResources("kitchen", Arrays.asList("/dimming/brightness")));
+        assertEquals(Arrays.asList(l1), resources.getResources("Kitchen", Arrays.asList("/color_temperature/mirek")));
+        assertEquals(Arrays.asList(l1), resources.getResources("Lamp", Arrays.asList("/on/on")));
+        assertEquals(1, resources.getResource("d1").services().spliterator().getExactSizeIfKnown());
+    }
+    @Test
+    public void testIdentity()
+    {
+        JSONArray ja = new JSONArray();
+        ja.put(new JSONObject("{\"id\":\"l1\",\"type\":\"light\",\"owner\":{\"rid\":\"d1\"}}"));
+        ja.put(new JSONObject("{\"id\":\"d1\",\"type\":\"device\",\"metadata\":{\"name\":\"Lamp\"}}"));
+        Resources resources = new Resources(ja);
+        Resource l1 = resources.getResource("l1");
+        Resource d1 = resources.getResource("d1");
+        assertEquals("l1", l1.getId());
+        assertEquals("light", l1.getType());
+        assertEquals(d1, l1.getOwner());
+        assertEquals("Lamp:", l1.getName());
+        assertEquals("Lamp", d1.getName());
+        assertEquals(Arrays.asList(l1), resources.getResources("lamp:"));
+        Resource other = new Resources(ja).getResource("l1");
+        assertEquals(l1, other);
+        assertEquals(l1.hashCode(), other.hashCode());
+        assertFalse(l1.equals(d1));
+    }
+    
+}
\ No newline at end of file
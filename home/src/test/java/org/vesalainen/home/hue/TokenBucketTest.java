@@ -0,0 +1,53 @@
+/*
+ * Copyright (C) 2026 Timo Vesalainen <timo.vesalainen@iki.fi>
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.vesalainen.home.hue;
+
+import org.junit.jupiter.api.Test;
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ *
+ * @author Timo Vesalainen <timo.vesalainen@iki.fi>
+ */
+public class TokenBucketTest
+{
+    
+    public TokenBucketTest()
+    {
+    }
+
+    @Test
+    public void test1()
+    {
+        long t = 0;
+        TokenBucket tb = new TokenBucket(10, 2, t);
+        assertTrue(tb.tryAcquire(t));
+        assertTrue(tb.tryAcquire(t));
+        assertFalse(tb.tryAcquire(t));
+        assertEquals(100000000, tb.nanosToNext(t));
+        t += 50000000;
+        assertFalse(tb.tryAcquire(t));
+        assertEquals(50000000, tb.nanosToNext(t));
+        t += 50000000;
+        assertTrue(tb.tryAcquire(t));
+        t += 10000000000L;
+        assertTrue(tb.tryAcquire(t));
+        assertTrue(tb.tryAcquire(t));
+        assertFalse(tb.tryAcquire(t));
+    }
+    
+}
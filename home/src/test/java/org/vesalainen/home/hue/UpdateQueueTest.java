@@ -0,0 +1,168 @@
+/*
+ * Copyright (C) 2026 Timo Vesalainen <timo.vesalainen@iki.fi>
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.vesalainen.home.hue;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import org.json.JSONArray;
+import org.json.JSONObject;
+import org.junit.jupiter.api.Test;
+import static org.junit.jupiter.api.Assertions.*;
+import org.vesalainen.home.hue.Resources.Resource;
+
+/**
+ *
+ * @author Timo Vesalainen <timo.vesalainen@iki.fi>
+ */
+public class UpdateQueueTest
+{
+    
+    public UpdateQueueTest()
+    {
+    }
+
+    @Test
+    public void test1() throws Exception
+    {
+        JSONArray ja = new JSONArray();
+        ja.put(JSON.build("/id", "l1").set("/type", "light").get());
+        Resources resources = new Resources(ja);
+        Resource res = resources.getResource("l1");
+        ScheduledExecutorService pool = Executors.newSingleThreadScheduledExecutor();
+        List<JSONObject> sent = new ArrayList<>();
+        UpdateQueue queue = new UpdateQueue(pool, (r, j)->
+        {
+            sent.add(j);
+            return CompletableFuture.completedFuture(j);
+        });
+        CompletableFuture<Object> f1 = pool.submit(()->
+        {
+            CompletableFuture<Object> f = queue.update(res, JSON.build("/on/on", true).get());
+            queue.update(res, JSON.build("/dimming/brightness", 40).get());
+            queue.update(res, JSON.build("/dimming/brightness", 80).get());
+            return f;
+        }).get();
+        Object result = f1.get();
+        assertEquals(1, sent.size());
+        assertEquals(2, queue.getCoalesced());
+        assertEquals(true, JSON.get(result, "/on/on"));
+        assertEquals(80, JSON.get(result, "/dimming/brightness"));
+        assertEquals(0, queue.size());
+        pool.shutdown();
+    }
+    /**
+     * Requests complete later and out of order. Requests to the same resource
+     * must still be sent one at a time in update order.
+     * @throws Exception 
+     */
+    @Test
+    public void testInFlight() throws Exception
+    {
+        JSONArray ja = new JSONArray();
+        ja.put(JSON.build("/id", "l1").set("/type", "light").get());
+        ja.put(JSON.build("/id", "l2").set("/type", "light").get());
+        Resources resources = new Resources(ja);
+        Resource l1 = resources.getResource("l1");
+        Resource l2 = resources.getResource("l2");
+        ScheduledExecutorService pool = Executors.newSingleThreadScheduledExecutor();
+        List<String> sent = new ArrayList<>();
+        List<CompletableFuture<Object>> requests = new ArrayList<>();
+        List<JSONObject> bodies = new ArrayList<>();
+        UpdateQueue queue = new UpdateQueue(pool, (r, j)->
+        {
+            CompletableFuture<Object> future = new CompletableFuture<>();
+            synchronized (sent)
+            {
+                sent.add(r.getId());
+                bodies.add(j);
+                requests.add(future);
+            }
+            return future;
+        });
+        CompletableFuture<Object> off = pool.submit(()->queue.update(l1, JSON.build("/on/on", false).get())).get();
+        CompletableFuture<Object> other = pool.submit(()->queue.update(l2, JSON.build("/on/on", true).get())).get();
+        pool.submit(()->{}).get();
+        assertEquals(2, sent.size());
+        // held until off completes
+        CompletableFuture<Object> on = pool.submit(()->queue.update(l1, JSON.build("/on/on", true).get())).get();
+        CompletableFuture<Object> on2 = pool.submit(()->queue.update(l1, JSON.build("/dimming/brightness", 50).get())).get();
+        pool.submit(()->{}).get();
+        assertSame(on, on2);
+        assertEquals(2, sent.size());
+        assertEquals(1, queue.size());
+        // other resource completes first
+        requests.get(1).complete("l2");
+        pool.submit(()->{}).get();
+        assertEquals(2, sent.size());
+        assertEquals("l2", other.get());
+        requests.get(0).completeExceptionally(new IllegalStateException("off"));
+        pool.submit(()->{}).get();
+        pool.submit(()->{}).get();
+        assertTrue(off.isCompletedExceptionally());
+        assertEquals(3, sent.size());
+        assertEquals("l1", sent.get(2));
+        assertEquals(true, JSON.get(bodies.get(2), "/on/on"));
+        assertEquals(50, JSON.get(bodies.get(2), "/dimming/brightness"));
+        assertFalse(on.isDone());
+        requests.get(2).complete("on");
+        assertEquals("on", on.get());
+        assertEquals(0, queue.size());
+        pool.shutdown();
+    }
+    @Test
+    public void testPriority() throws Exception
+    {
+        JSONArray ja = new JSONArray();
+        ja.put(JSON.build("/id", "g1").set("/type", "grouped_light").get());
+        ja.put(JSON.build("/id", "g2").set("/type", "grouped_light").get());
+        ja.put(JSON.build("/id", "g3").set("/type", "grouped_light").get());
+        Resources resources = new Resources(ja);
+        ScheduledExecutorService pool = Executors.newSingleThreadScheduledExecutor();
+        List<String> sent = new ArrayList<>();
+        UpdateQueue queue = new UpdateQueue(pool, (r, j)->
+        {
+            sent.add(r.getId());
+            return CompletableFuture.completedFuture(j);
+        });
+        queue.addBucket("grouped_light", 100, 1);
+        CompletableFuture<Object> f = pool.submit(()->
+        {
+            queue.update(resources.getResource("g1"), JSON.build("/on/on", true).get(), Priority.LOW);
+            queue.update(resources.getResource("g2"), JSON.build("/on/on", true).get(), Priority.LOW);
+            queue.update(resources.getResource("g3"), JSON.build("/on/on", true).get(), Priority.HIGH);
+            // raises g2 to high
+            return queue.update(resources.getResource("g2"), JSON.build("/on/on", false).get(), Priority.HIGH);
+        }).get();
+        f.get();
+        assertEquals("g3", sent.get(0));
+        assertEquals("g2", sent.get(1));
+        pool.submit(()->{}).get();
+        while (queue.size() > 0)
+        {
+            Thread.sleep(10);
+        }
+        pool.submit(()->{}).get();
+        assertEquals(3, sent.size());
+        assertEquals("g1", sent.get(2));
+        assertEquals(3, queue.getWait("grouped_light").getCount());
+        pool.shutdown();
+    }
+    
+}